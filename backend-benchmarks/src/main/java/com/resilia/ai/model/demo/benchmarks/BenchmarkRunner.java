@@ -0,0 +1,54 @@
+package com.resilia.ai.model.demo.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Entry point of benchmarks.jar.
+ *
+ * Accepts the usual JMH options (e.g. "Jwt" to run one class, -f 1 -wi 2 -i 3), and always
+ * writes the results as JSON to target/jmh-results/jmh-<commit>.json, so two runs on
+ * different commits can be compared (diff, or https://jmh.morethan.io).
+ * Override the file with -rff path.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (commandLine.getResult().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        } else {
+            File results = new File("target/jmh-results", "jmh-" + currentCommit() + ".json");
+            results.getParentFile().mkdirs();
+            options.resultFormat(ResultFormatType.JSON).result(results.getPath());
+        }
+
+        new Runner(options.build()).run();
+    }
+
+    private static String currentCommit() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").start();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(git.getInputStream(), StandardCharsets.UTF_8))) {
+                String commit = reader.readLine();
+                if (git.waitFor() == 0 && commit != null && !commit.isBlank()) {
+                    return commit.trim();
+                }
+            }
+        } catch (Exception e) {
+            // Not a git checkout: fall through.
+        }
+        return "local";
+    }
+}
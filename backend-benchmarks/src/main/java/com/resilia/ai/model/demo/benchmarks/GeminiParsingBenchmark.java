@@ -0,0 +1,43 @@
+package com.resilia.ai.model.demo.benchmarks;
+
+import com.resilia.ai.model.demo.services.AiService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a Gemini generateContent answer, done once per chat turn
+ * (and once per chunk when streaming).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeminiParsingBenchmark {
+
+    // Typical answer: 3 sentences, plus the metadata Gemini always sends.
+    private static final String RESPONSE = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":"
+            + "\"It sounds like today has been really heavy for you. It's okay to feel tired and overwhelmed. "
+            + "Would you like to talk about what weighed on you the most?\"}],\"role\":\"model\"},"
+            + "\"finishReason\":\"STOP\",\"index\":0,\"safetyRatings\":["
+            + "{\"category\":\"HARM_CATEGORY_SEXUALLY_EXPLICIT\",\"probability\":\"NEGLIGIBLE\"},"
+            + "{\"category\":\"HARM_CATEGORY_HATE_SPEECH\",\"probability\":\"NEGLIGIBLE\"},"
+            + "{\"category\":\"HARM_CATEGORY_HARASSMENT\",\"probability\":\"NEGLIGIBLE\"},"
+            + "{\"category\":\"HARM_CATEGORY_DANGEROUS_CONTENT\",\"probability\":\"NEGLIGIBLE\"}]}],"
+            + "\"usageMetadata\":{\"promptTokenCount\":212,\"candidatesTokenCount\":38,\"totalTokenCount\":250},"
+            + "\"modelVersion\":\"gemini-1.5-flash\"}";
+
+    private AiService aiService;
+
+    @Setup
+    public void setUp() {
+        aiService = new AiService();
+    }
+
+    @Benchmark
+    public String extractTextFromGeminiResponse() throws Exception {
+        return aiService.extractTextFromGeminiResponse(RESPONSE);
+    }
+}
@@ -0,0 +1,47 @@
+package com.resilia.ai.model.demo.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.resilia.ai.model.demo.DTO.JwtResponse;
+import com.resilia.ai.model.demo.entites.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the login/register answer. JwtResponse carries the URL of the
+ * profile photo (GET /api/photos/...), not the image, so its size no longer depends on the photo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtResponseSerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JwtResponse response;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("user@resilia.ai");
+        user.setUsername("resilia");
+        user.setName("Lina");
+        user.setSurname("Doe");
+        user.setAge(27);
+        user.setGender("F");
+        user.setBio("Learning to take care of myself, one day at a time.");
+        user.setGoals("Sleep better, stress less.");
+        user.setEmergencyContact("+216 00 000 000");
+        user.setProfilePhotoKey("55c64d0fcd6f9d5f7c828093857e3fdfda68478bb4e9bd24d481ef391c7804e8.jpg");
+        response = new JwtResponse("header.payload.signature", user,
+                "http://localhost:8080/api/photos/42/55c64d0fcd6f9d5f7c828093857e3fdfda68478bb4e9bd24d481ef391c7804e8.jpg");
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
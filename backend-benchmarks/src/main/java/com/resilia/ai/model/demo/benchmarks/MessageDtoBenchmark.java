@@ -0,0 +1,58 @@
+package com.resilia.ai.model.demo.benchmarks;
+
+import com.resilia.ai.model.demo.DTO.ChatDtos.MessageDto;
+import com.resilia.ai.model.demo.entites.Message;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of messages to MessageDto (history endpoints), and the DateTimeFormatter cost
+ * behind it: building a pattern formatter per message vs reusing one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageDtoBenchmark {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private Message message;
+    private LocalDateTime timestamp;
+
+    @Setup
+    public void setUp() {
+        timestamp = LocalDateTime.of(2024, 5, 14, 21, 37, 12);
+        message = new Message();
+        message.setId(1234L);
+        message.setSender("user");
+        message.setContent("I couldn't sleep again last night and I feel exhausted.");
+        message.setEmotion("SADNESS");
+        message.setTimestamp(timestamp);
+    }
+
+    @Benchmark
+    public MessageDto fromEntity() {
+        return new MessageDto(message);
+    }
+
+    @Benchmark
+    public MessageDto fromProjection() {
+        return new MessageDto(message.getId(), message.getContent(), message.getSender(), message.getEmotion(), timestamp);
+    }
+
+    @Benchmark
+    public String formatWithNewPattern() {
+        return timestamp.format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+    }
+
+    @Benchmark
+    public String formatWithSharedPattern() {
+        return timestamp.format(TIME_FORMAT);
+    }
+}
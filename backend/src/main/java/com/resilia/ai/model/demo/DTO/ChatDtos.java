@@ -1,10 +1,10 @@
 package com.resilia.ai.model.demo.DTO;
 
-import com.resilia.ai.model.demo.entites.Conversation;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.resilia.ai.model.demo.entites.Message;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Container class for DTOs related to Chat operations.
@@ -13,48 +13,80 @@ import java.util.stream.Collectors;
  */
 public class ChatDtos {
 
-    /** * Formats conversation history for the sidebar list.
+    /** * One row of the sidebar list, built directly by the database (no messages loaded).
      */
-    public static class ConversationHistoryDto {
+    public static class ConversationSummaryDto {
         private Long id;
-        private String startTime;
-        private List<MessageDto> messages;
+        private LocalDateTime startTime;
+        private int messageCount;
+        private String preview;
+        private String dominantEmotion;
 
-        public ConversationHistoryDto(Conversation conversation) {
-            this.id = conversation.getId();
-            this.startTime = conversation.getStartTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            this.messages = conversation.getMessages().stream()
-                    .map(MessageDto::new)
-                    .collect(Collectors.toList());
+        public ConversationSummaryDto(Long id, LocalDateTime startTime, int messageCount, String preview, String dominantEmotion) {
+            this.id = id;
+            this.startTime = startTime;
+            this.messageCount = messageCount;
+            this.preview = preview;
+            this.dominantEmotion = dominantEmotion;
         }
 
-        public ConversationHistoryDto(Long id, String title, String string, String unknown) {
+        // Getters...
+        public Long getId() { return id; }
+        public LocalDateTime getStartTime() { return startTime; }
+        public int getMessageCount() { return messageCount; }
+        public String getPreview() { return preview; }
+        public String getDominantEmotion() { return dominantEmotion; }
+    }
+
+    /** * One page of the sidebar list.
+     * nextCursor is passed back as ?cursor= to get the following page (null on the last page).
+     */
+    public static class ConversationPage {
+        private List<ConversationSummaryDto> conversations;
+        private String nextCursor;
+
+        public ConversationPage(List<ConversationSummaryDto> conversations, String nextCursor) {
+            this.conversations = conversations;
+            this.nextCursor = nextCursor;
         }
 
-        // Getters and Setters...
-        public Long getId() { return id; }
-        public void setId(Long id) { this.id = id; }
-        public String getStartTime() { return startTime; }
-        public void setStartTime(String startTime) { this.startTime = startTime; }
-        public List<MessageDto> getMessages() { return messages; }
-        public void setMessages(List<MessageDto> messages) { this.messages = messages; }
+        public List<ConversationSummaryDto> getConversations() { return conversations; }
+        public String getNextCursor() { return nextCursor; }
     }
 
     /** * Formats a single message for the frontend.
      */
     public static class MessageDto {
+        // ISO date and time, whichever constructor built the DTO: the frontend parses it as a date.
+        private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
         private Long id;
         private String content;
         private String sender;
         private String emotion;
         private String timestamp;
+        @JsonIgnore
+        private LocalDateTime sentAt; // Raw timestamp, used to build page cursors
 
         public MessageDto(Message message) {
             this.id = message.getId();
             this.content = message.getContent();
             this.sender = message.getSender();
             this.emotion = message.getEmotion();
-            this.timestamp = message.getTimestamp().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+            this.timestamp = message.getTimestamp().format(TIMESTAMP_FORMAT);
+            this.sentAt = message.getTimestamp();
+        }
+
+        /**
+         * Projection constructor, called directly by the database query (no entity loaded).
+         */
+        public MessageDto(Long id, String content, String sender, String emotion, LocalDateTime timestamp) {
+            this.id = id;
+            this.content = content;
+            this.sender = sender;
+            this.emotion = emotion;
+            this.timestamp = timestamp.format(TIMESTAMP_FORMAT);
+            this.sentAt = timestamp;
         }
 
         // Getters and Setters...
@@ -68,6 +100,112 @@ public class ChatDtos {
         public void setEmotion(String emotion) { this.emotion = emotion; }
         public String getTimestamp() { return timestamp; }
         public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
+        public LocalDateTime getSentAt() { return sentAt; }
+    }
+
+    /** * One page of a conversation's messages, in chronological order.
+     * olderCursor is passed back as ?before= to load the previous (older) messages,
+     * it is null once the beginning of the conversation is reached.
+     */
+    public static class MessagePage {
+        private List<MessageDto> messages;
+        private String olderCursor;
+
+        public MessagePage(List<MessageDto> messages, String olderCursor) {
+            this.messages = messages;
+            this.olderCursor = olderCursor;
+        }
+
+        public List<MessageDto> getMessages() { return messages; }
+        public String getOlderCursor() { return olderCursor; }
+        public boolean isHasMore() { return olderCursor != null; }
+    }
+
+    /** * A message as the search index sees it (also built directly by the rebuild query).
+     */
+    public static class SearchableMessage {
+        private Long id;
+        private Long conversationId;
+        private Long userId;
+        private String sender;
+        private String emotion;
+        private String content;
+        private LocalDateTime timestamp;
+
+        public SearchableMessage(Long id, Long conversationId, Long userId, String sender, String emotion,
+                                 String content, LocalDateTime timestamp) {
+            this.id = id;
+            this.conversationId = conversationId;
+            this.userId = userId;
+            this.sender = sender;
+            this.emotion = emotion;
+            this.content = content;
+            this.timestamp = timestamp;
+        }
+
+        // Getters...
+        public Long getId() { return id; }
+        public Long getConversationId() { return conversationId; }
+        public Long getUserId() { return userId; }
+        public String getSender() { return sender; }
+        public String getEmotion() { return emotion; }
+        public String getContent() { return content; }
+        public LocalDateTime getTimestamp() { return timestamp; }
+    }
+
+    /** * One search result. The snippet is HTML-escaped text where the matched words
+     * are wrapped in <mark></mark>; conversationId + messageId open the conversation at that message.
+     */
+    public static class SearchHitDto {
+        private Long messageId;
+        private Long conversationId;
+        private String sender;
+        private String emotion;
+        private String timestamp;
+        private String snippet;
+        private float score;
+
+        public SearchHitDto(Long messageId, Long conversationId, String sender, String emotion,
+                            LocalDateTime timestamp, String snippet, float score) {
+            this.messageId = messageId;
+            this.conversationId = conversationId;
+            this.sender = sender;
+            this.emotion = emotion;
+            this.timestamp = timestamp == null ? null : timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            this.snippet = snippet;
+            this.score = score;
+        }
+
+        // Getters...
+        public Long getMessageId() { return messageId; }
+        public Long getConversationId() { return conversationId; }
+        public String getSender() { return sender; }
+        public String getEmotion() { return emotion; }
+        public String getTimestamp() { return timestamp; }
+        public String getSnippet() { return snippet; }
+        public float getScore() { return score; }
+    }
+
+    /** * One page of search results, best match first.
+     * total counts exactly up to 1000 matches (it is a lower bound beyond).
+     */
+    public static class SearchPage {
+        private List<SearchHitDto> hits;
+        private long total;
+        private int page;
+        private boolean hasMore;
+
+        public SearchPage(List<SearchHitDto> hits, long total, int page, boolean hasMore) {
+            this.hits = hits;
+            this.total = total;
+            this.page = page;
+            this.hasMore = hasMore;
+        }
+
+        public List<SearchHitDto> getHits() { return hits; }
+        public long getTotal() { return total; }
+        public int getPage() { return page; }
+        public boolean isHasMore() { return hasMore; }
     }
 
     /** * Catches the JSON payload sent by the user when they type a message.
@@ -5,6 +5,7 @@ import com.resilia.ai.model.demo.entites.User;
 /**
  * Response sent after successful Login/Register.
  * Contains the JWT Token + User Profile Data.
+ * profilePhoto is the URL of the photo (GET /api/photos/...), not the image itself.
  */
 public class JwtResponse {
     private String jwt;
@@ -21,7 +22,7 @@ public class JwtResponse {
     private String profilePhoto;
 
     // Constructor to map User Entity to this Response
-    public JwtResponse(String jwt, User user) {
+    public JwtResponse(String jwt, User user, String profilePhotoUrl) {
         this.jwt = jwt;
         this.id = user.getId();
         this.email = user.getEmail();
@@ -33,7 +34,7 @@ public class JwtResponse {
         this.bio = user.getBio();
         this.goals = user.getGoals();
         this.emergencyContact = user.getEmergencyContact();
-        this.profilePhoto = user.getProfilePhoto();
+        this.profilePhoto = profilePhotoUrl;
     }
 
     // Getters...
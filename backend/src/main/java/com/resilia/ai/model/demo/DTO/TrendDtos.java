@@ -0,0 +1,162 @@
+package com.resilia.ai.model.demo.DTO;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Container class for the DTOs of the mood trends (GET /api/trends, /api/trends/distribution,
+ * /api/trends/streaks).
+ */
+public class TrendDtos {
+
+    /** * One precomputed counter: messages classified with an emotion on a given day.
+     */
+    public static class DailyEmotionCount {
+        private LocalDate day;
+        private String emotion;
+        private long count;
+
+        public DailyEmotionCount(LocalDate day, String emotion, long count) {
+            this.day = day;
+            this.emotion = emotion;
+            this.count = count;
+        }
+
+        // Getters...
+        public LocalDate getDay() { return day; }
+        public String getEmotion() { return emotion; }
+        public long getCount() { return count; }
+    }
+
+    /** * Emotions of one period (a day, or a week starting on Monday).
+     * Periods without any message are not listed.
+     */
+    public static class TrendPoint {
+        private LocalDate periodStart;
+        private Map<String, Long> emotions;
+        private long total;
+
+        public TrendPoint(LocalDate periodStart, Map<String, Long> emotions, long total) {
+            this.periodStart = periodStart;
+            this.emotions = emotions;
+            this.total = total;
+        }
+
+        // Getters...
+        public LocalDate getPeriodStart() { return periodStart; }
+        public Map<String, Long> getEmotions() { return emotions; }
+        public long getTotal() { return total; }
+    }
+
+    /** * Mood trend of the logged-in user between two dates (inclusive).
+     * totals sums each emotion over the whole range.
+     */
+    public static class TrendResponse {
+        private String granularity;
+        private LocalDate from;
+        private LocalDate to;
+        private List<TrendPoint> points;
+        private Map<String, Long> totals;
+
+        public TrendResponse(String granularity, LocalDate from, LocalDate to, List<TrendPoint> points, Map<String, Long> totals) {
+            this.granularity = granularity;
+            this.from = from;
+            this.to = to;
+            this.points = points;
+            this.totals = totals;
+        }
+
+        // Getters...
+        public String getGranularity() { return granularity; }
+        public LocalDate getFrom() { return from; }
+        public LocalDate getTo() { return to; }
+        public List<TrendPoint> getPoints() { return points; }
+        public Map<String, Long> getTotals() { return totals; }
+    }
+
+    /** * One classified user message, as loaded into the EmotionTimeline at startup.
+     */
+    public static class TimelineEntry {
+        private Long messageId;
+        private Long userId;
+        private String emotion;
+        private LocalDateTime timestamp;
+
+        public TimelineEntry(Long messageId, Long userId, String emotion, LocalDateTime timestamp) {
+            this.messageId = messageId;
+            this.userId = userId;
+            this.emotion = emotion;
+            this.timestamp = timestamp;
+        }
+
+        // Getters...
+        public Long getMessageId() { return messageId; }
+        public Long getUserId() { return userId; }
+        public String getEmotion() { return emotion; }
+        public LocalDateTime getTimestamp() { return timestamp; }
+    }
+
+    /** * Messages per emotion of the logged-in user over the last days.
+     */
+    public static class EmotionDistribution {
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private long total;
+        private Map<String, Long> emotions;
+
+        public EmotionDistribution(LocalDateTime from, LocalDateTime to, long total, Map<String, Long> emotions) {
+            this.from = from;
+            this.to = to;
+            this.total = total;
+            this.emotions = emotions;
+        }
+
+        // Getters...
+        public LocalDateTime getFrom() { return from; }
+        public LocalDateTime getTo() { return to; }
+        public long getTotal() { return total; }
+        public Map<String, Long> getEmotions() { return emotions; }
+    }
+
+    /** * Consecutive user messages classified with a negative emotion (length 0: no streak).
+     */
+    public static class Streak {
+        private int length;
+        private LocalDateTime start;
+        private LocalDateTime end;
+
+        public Streak(int length, LocalDateTime start, LocalDateTime end) {
+            this.length = length;
+            this.start = start;
+            this.end = end;
+        }
+
+        // Getters...
+        public int getLength() { return length; }
+        public LocalDateTime getStart() { return start; }
+        public LocalDateTime getEnd() { return end; }
+    }
+
+    /** * Negative streaks of the logged-in user over the last days.
+     * current ends with the user's latest message (length 0 if that message is not negative),
+     * longest is the longest streak of the range.
+     */
+    public static class NegativeStreaks {
+        private List<String> negativeEmotions;
+        private Streak current;
+        private Streak longest;
+
+        public NegativeStreaks(List<String> negativeEmotions, Streak current, Streak longest) {
+            this.negativeEmotions = negativeEmotions;
+            this.current = current;
+            this.longest = longest;
+        }
+
+        // Getters...
+        public List<String> getNegativeEmotions() { return negativeEmotions; }
+        public Streak getCurrent() { return current; }
+        public Streak getLongest() { return longest; }
+    }
+}
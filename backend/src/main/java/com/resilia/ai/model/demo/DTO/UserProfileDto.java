@@ -12,6 +12,8 @@ public class UserProfileDto {
     private String bio;
     private String goals;
     private String emergencyContact;
+    // "data:image/...;base64,..." to replace the photo, "" to remove it.
+    // Any other value (the current photo URL sent back by the form) leaves it unchanged.
     private String profilePhoto;
 
     // Getters and Setters...
@@ -0,0 +1,129 @@
+package com.resilia.ai.model.demo.config;
+
+import com.resilia.ai.model.demo.services.BackendGuard;
+import com.resilia.ai.model.demo.services.ChatMetrics;
+import com.resilia.ai.model.demo.services.ClassifierEndpoints;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shared clients and protections for the AI backends (Python classifier, Gemini).
+ * The blocking and the reactive pipelines use the same BackendGuards, so a backend
+ * that is down is seen as down by both.
+ */
+@Configuration
+public class AiBackendConfig {
+
+    /**
+     * Request attribute of aiWebClient calls to a third-party API (Gemini): the trace headers
+     * are removed before the request is sent.
+     */
+    public static final String EXTERNAL_CALL = AiBackendConfig.class.getName() + ".EXTERNAL_CALL";
+
+    // W3C propagation (Boot's default)
+    private static final List<String> TRACE_HEADERS = List.of("traceparent", "tracestate", "baggage");
+
+    @Value("${ia.resilience.max-concurrent:32}")
+    private int emotionMaxConcurrent;
+
+    @Value("${gemini.resilience.max-concurrent:64}")
+    private int geminiMaxConcurrent;
+
+    @Value("${ai.circuit.window-size:20}")
+    private int circuitWindowSize;
+
+    @Value("${ai.circuit.min-calls:10}")
+    private int circuitMinCalls;
+
+    @Value("${ai.circuit.failure-rate:50}")
+    private int circuitFailureRate;
+
+    @Value("${ai.circuit.open-ms:10000}")
+    private long circuitOpenMs;
+
+    @Bean
+    public BackendGuard emotionGuard(MeterRegistry meterRegistry) {
+        return new BackendGuard("emotion", emotionMaxConcurrent, circuitWindowSize,
+                circuitMinCalls, circuitFailureRate, circuitOpenMs, meterRegistry);
+    }
+
+    @Bean
+    public BackendGuard geminiGuard(MeterRegistry meterRegistry) {
+        return new BackendGuard("gemini", geminiMaxConcurrent, circuitWindowSize,
+                circuitMinCalls, circuitFailureRate, circuitOpenMs, meterRegistry);
+    }
+
+    /**
+     * Replicas of the Python classifier. ia.service.urls lists their base URLs; older
+     * configurations with a single ia.service.url (.../analyze) still work.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "ia.classifier", havingValue = "http", matchIfMissing = true)
+    public ClassifierEndpoints classifierEndpoints(@Value("${ia.service.urls:}") String urls,
+                                                   @Value("${ia.service.url:http://localhost:5000/analyze}") String legacyUrl,
+                                                   @Value("${ia.client.max-outstanding-per-endpoint:16}") int maxOutstanding,
+                                                   @Value("${ia.client.executor-threads:4}") int executorThreads,
+                                                   @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                                   @Value("${ai.http.connect-timeout-ms:1000}") long connectTimeoutMs,
+                                                   @Value("${ia.client.health.path:/health}") String healthPath,
+                                                   @Value("${ia.client.health.interval-ms:5000}") long healthIntervalMs,
+                                                   @Value("${ia.client.health.timeout-ms:500}") long healthTimeoutMs,
+                                                   MeterRegistry meterRegistry, ChatMetrics chatMetrics) {
+        List<String> baseUrls = Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        if (baseUrls.isEmpty()) {
+            baseUrls = List.of(legacyUrl.replaceAll("/analyze/?$", ""));
+        }
+        return new ClassifierEndpoints(baseUrls, maxOutstanding, executorThreads, virtualThreads, connectTimeoutMs,
+                healthPath, healthIntervalMs, healthTimeoutMs, meterRegistry, chatMetrics);
+    }
+
+    /**
+     * Connection pool of the reactive pipeline. Idle connections are reused, so thousands of
+     * concurrent calls share a few hundred sockets and the Reactor Netty event loops.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider aiConnectionProvider(@Value("${ai.reactive.max-connections:500}") int maxConnections,
+                                                   @Value("${ai.reactive.pending-acquire-max:5000}") int pendingAcquireMax) {
+        return ConnectionProvider.builder("ai-backends")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .evictInBackground(Duration.ofSeconds(60))
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * Built from Boot's WebClient.Builder, so every call is observed (http.client.requests)
+     * and carries the trace headers like the blocking pipeline's calls, except the ones
+     * marked EXTERNAL_CALL.
+     */
+    @Bean
+    public WebClient aiWebClient(WebClient.Builder webClientBuilder, ConnectionProvider aiConnectionProvider,
+                                 @Value("${ai.http.connect-timeout-ms:1000}") int connectTimeoutMs) {
+        HttpClient httpClient = HttpClient.create(aiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs);
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter((request, next) -> next.exchange(request.attribute(EXTERNAL_CALL).isPresent()
+                        ? ClientRequest.from(request).headers(headers -> TRACE_HEADERS.forEach(headers::remove)).build()
+                        : request))
+                .build();
+    }
+}
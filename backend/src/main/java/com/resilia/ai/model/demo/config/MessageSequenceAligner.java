@@ -0,0 +1,38 @@
+package com.resilia.ai.model.demo.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Message IDs used to come from MySQL AUTO_INCREMENT. They now come from the "message_seq"
+ * table (a pooled sequence, so inserts can be batched). On databases that already contain
+ * messages, this moves the sequence past the highest existing ID before any insert happens.
+ */
+@Component
+@DependsOn("entityManagerFactory") // The sequence table is created by Hibernate
+public class MessageSequenceAligner {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSequenceAligner.class);
+
+    // Must match allocationSize of the sequence declared on Message.id
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void align() {
+        try {
+            jdbcTemplate.update("UPDATE message_seq SET next_val = GREATEST(next_val, " +
+                    "(SELECT COALESCE(MAX(id), 0) + ? FROM message))", ALLOCATION_SIZE + 1);
+        } catch (Exception e) {
+            // Databases with native sequences have no message_seq table: nothing to align.
+            log.info("Message sequence not aligned: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.resilia.ai.model.demo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.resilia.ai.model.demo.services.ChatMetrics;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+
+/**
+ * Metrics and traces that cannot be recorded from the services themselves.
+ *
+ * Tracing (Micrometer Tracing + OpenTelemetry): each HTTP request is a root span; the
+ * ChatMetrics stages, the repository calls and the calls to the AI backends are its children.
+ */
+@Configuration
+public class ObservabilityConfig {
+
+    /**
+     * Replaces Boot's JSON converter (same ObjectMapper) with one that records
+     * the "serialize" stage of ChatMetrics: time spent writing a response body.
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                   ChatMetrics chatMetrics) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException, HttpMessageNotWritableException {
+                try {
+                    chatMetrics.observe("serialize", () -> {
+                        try {
+                            super.writeInternal(object, type, outputMessage);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+    }
+
+    /**
+     * Every Spring Data repository call becomes a "repository.call" observation
+     * (tags repository, method), i.e. a child span of the stage that made it.
+     * Static: a BeanPostProcessor must not wait for the rest of this configuration.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryObservationPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repository) -> proxyFactory.addAdvice(observeRepository(
+                                    repository.getRepositoryInterface().getSimpleName(), observationRegistry))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static MethodInterceptor observeRepository(String repository, ObjectProvider<ObservationRegistry> observationRegistry) {
+        return invocation -> Observation.createNotStarted("repository.call",
+                        Observation.Context::new, observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP))
+                .contextualName(repository + "." + invocation.getMethod().getName())
+                .lowCardinalityKeyValue("repository", repository)
+                .lowCardinalityKeyValue("method", invocation.getMethod().getName())
+                .observeChecked(invocation::proceed);
+    }
+
+    /**
+     * Prints finished spans to the application log (console, or the file set by logging.file.name),
+     * for local use without an OpenTelemetry collector.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "tracing.exporter.logging.enabled", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+}
@@ -1,9 +1,11 @@
 package com.resilia.ai.model.demo.config;
 
 import com.resilia.ai.model.demo.security.JwtRequestFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -69,8 +71,16 @@ public class SecurityConfig {
 
                 // Define URL access rules.
                 .authorizeHttpRequests(authorize -> authorize
+                        // Async dispatches (end of a streamed response) were already authorized on the original request,
+                        // and so were error dispatches (otherwise every 400/404 would be turned into a 403).
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         // Allow anyone to access login and register endpoints.
                         .requestMatchers("/api/auth/**").permitAll()
+                        // Health checks and the Prometheus scraper. Actuator is only served on the management port
+                        // (management.server.port, bound to 127.0.0.1): the public port answers 404.
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                        // Profile photos: unguessable content-addressed URLs, loaded by <img> tags without a token.
+                        .requestMatchers(HttpMethod.GET, "/api/photos/**").permitAll()
                         .requestMatchers("/api/user/**").authenticated()
                         // All other endpoints require a valid JWT token.
                         .anyRequest().authenticated()
@@ -0,0 +1,58 @@
+package com.resilia.ai.model.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Access to Java 21 virtual threads from code compiled for Java 17.
+ *
+ * The default build targets Java 17, so Executors.newVirtualThreadPerTaskExecutor() is
+ * looked up by reflection. On an older JVM, callers get a regular cached thread pool.
+ * Enable with spring.threads.virtual.enabled=true (the "virtual" Spring profile),
+ * which also moves Tomcat request handling to virtual threads.
+ */
+public final class VirtualThreads {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final Method NEW_VIRTUAL_EXECUTOR = findVirtualExecutorFactory();
+
+    private VirtualThreads() {}
+
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * One new virtual thread per task, or a cached pool of daemon platform threads
+     * named namePrefix-N when virtual threads are not available.
+     */
+    public static ExecutorService newPerTaskExecutor(String namePrefix) {
+        if (isSupported()) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads not available: {}", e.getMessage());
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Method findVirtualExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null; // Java 17-20
+        }
+    }
+}
@@ -5,17 +5,20 @@ import com.resilia.ai.model.demo.DTO.LoginRequest;
 import com.resilia.ai.model.demo.DTO.RegisterRequest;
 import com.resilia.ai.model.demo.entites.User;
 import com.resilia.ai.model.demo.repositories.UserRepository;
-import com.resilia.ai.model.demo.security.CustomUserDetailsService;
+import com.resilia.ai.model.demo.security.AuthenticatedUser;
 import com.resilia.ai.model.demo.security.JwtUtil;
+import com.resilia.ai.model.demo.services.ProfilePhotoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -29,7 +32,7 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private ProfilePhotoService profilePhotoService;
 
     /**
      * Registers a new user.
@@ -55,11 +58,11 @@ public class AuthController {
 
         userRepository.save(user);
 
-        // Auto-login: Generate token immediately after saving
-        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-        String jwt = jwtUtil.generateToken(userDetails);
+        // Auto-login: Generate token immediately after saving (no need to reload the user)
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getEmail(), user.getPassword(), new ArrayList<>());
+        String jwt = jwtUtil.generateToken(principal);
 
-        return ResponseEntity.ok(new JwtResponse(jwt, user));
+        return ResponseEntity.ok(new JwtResponse(jwt, user, null)); // A new user has no photo yet
     }
 
     /**
@@ -70,15 +73,16 @@ public class AuthController {
      */
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
-        authenticationManager.authenticate(
+        Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword())
         );
 
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(loginRequest.getEmail());
-        final String jwt = jwtUtil.generateToken(userDetails);
+        // The AuthenticationManager already loaded the user: reuse it instead of loading it again.
+        final AuthenticatedUser principal = (AuthenticatedUser) authentication.getPrincipal();
+        final String jwt = jwtUtil.generateToken(principal);
 
-        User user = userRepository.findByEmail(loginRequest.getEmail()).get();
+        User user = userRepository.findById(principal.getId()).get();
 
-        return ResponseEntity.ok(new JwtResponse(jwt, user));
+        return ResponseEntity.ok(new JwtResponse(jwt, user, profilePhotoService.urlOf(user)));
     }
 }
\ No newline at end of file
@@ -1,130 +1,106 @@
 package com.resilia.ai.model.demo.controller;
 
+import com.resilia.ai.model.demo.DTO.ChatDtos.ConversationPage;
+import com.resilia.ai.model.demo.DTO.ChatDtos.MessagePage;
+import com.resilia.ai.model.demo.DTO.ChatDtos.SearchPage;
 import com.resilia.ai.model.demo.DTO.ChatDtos.UserMessageRequest;
+import com.resilia.ai.model.demo.DTO.ChatResponse;
 import com.resilia.ai.model.demo.entites.Conversation;
 import com.resilia.ai.model.demo.entites.Message;
-import com.resilia.ai.model.demo.entites.User;
 import com.resilia.ai.model.demo.repositories.ConversationRepository;
 import com.resilia.ai.model.demo.repositories.MessageRepository;
-import com.resilia.ai.model.demo.repositories.UserRepository;
-import com.resilia.ai.model.demo.services.AiService;
+import com.resilia.ai.model.demo.security.AuthenticatedUser;
+import com.resilia.ai.model.demo.services.ChatService;
+import com.resilia.ai.model.demo.services.MessageSearchIndex;
+import com.resilia.ai.model.demo.services.ReactiveChatService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/api/chat")
 public class ChatController {
 
     @Autowired
-    private AiService aiService;
+    private ChatService chatService;
+    @Autowired
+    private ReactiveChatService reactiveChatService;
     @Autowired
     private MessageRepository messageRepository;
     @Autowired
     private ConversationRepository conversationRepository;
     @Autowired
-    private UserRepository userRepository;
+    private MessageSearchIndex messageSearchIndex;
 
     /**
-     * Main Chat Logic:
-     * 1. Identifies the logged-in user.
-     * 2. Finds the existing conversation OR creates a new one.
-     * 3. Saves the User's message to the DB (initially without emotion).
-     * 4. Calls the AI Service (Python for emotion, Gemini for text).
-     * 5. Updates the User's message with the detected emotion.
-     * 6. Saves the AI's response to the DB (This was missing before!).
-     * 7. Returns everything to the frontend.
+     * Main Chat Logic.
+     * Delegates to ChatService, which saves the user's message, runs the emotion
+     * classifier and Gemini concurrently, and saves the AI's response.
+     * Returns the AI text, the detected emotion and the conversation ID.
      */
     @PostMapping("/message")
-    public ResponseEntity<Map<String, Object>> sendMessage(
-            @RequestBody UserMessageRequest request,
-            Authentication authentication
-    ) {
-        // Step 1: Get User from Security Context
-        String email = authentication.getName();
-        User currentUser = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // Step 2: Handle Conversation (New vs Existing)
-        Conversation conversation;
-        if (request.getConversationId() != null) {
-            conversation = conversationRepository.findById(request.getConversationId())
-                    .orElseThrow(() -> new RuntimeException("Conversation not found"));
-        } else {
-            conversation = new Conversation();
-            conversation.setUser(currentUser);
-            conversation.setStartTime(LocalDateTime.now());
-            conversation = conversationRepository.save(conversation);
-        }
-
-        // Step 3: Create and Save User Message
-        // We save it now to ensure it exists in the DB even if the AI fails later.
-        Message userMsg = new Message();
-        userMsg.setSender("user");
-        userMsg.setContent(request.getUserMessage());
-        userMsg.setTimestamp(LocalDateTime.now());
-        userMsg.setConversation(conversation);
-
-        // We use saveAndFlush to force the DB to write this immediately.
-        messageRepository.saveAndFlush(userMsg);
-
-        // Step 4: Get AI Response
-        String emotion = "NEUTRAL";
-        String aiReplyText;
-
-        try {
-            // Get emotion from Python
-            emotion = aiService.analyzeEmotion(request.getUserMessage());
-            // Get text from Gemini
-            aiReplyText = aiService.generateAiResponse(emotion, "", request.getUserMessage());
-        } catch (Exception e) {
-            e.printStackTrace();
-            aiReplyText = "I'm having trouble connecting right now, but I saved your message.";
-        }
-
-        // Step 5: Update User Message with Emotion
-        // We go back to the user message we saved in Step 3 and add the emotion.
-        userMsg.setEmotion(emotion);
-        messageRepository.saveAndFlush(userMsg);
-
-        // Step 6: Create and Save AI Message (THIS WAS MISSING)
-        // Now we create the bot's reply row in the database.
-        Message aiMsg = new Message();
-        aiMsg.setSender("bot");
-        aiMsg.setContent(aiReplyText);
-        // Add a small delay (1 second) to ensure it appears *after* the user message in the list
-        aiMsg.setTimestamp(LocalDateTime.now().plusSeconds(1));
-        aiMsg.setConversation(conversation);
-        aiMsg.setEmotion(null); // The bot itself has no emotion
+    public ResponseEntity<ChatResponse> sendMessage(@RequestBody UserMessageRequest request) {
+        return ResponseEntity.ok(chatService.processUserMessage(request));
+    }
 
-        messageRepository.saveAndFlush(aiMsg);
+    /**
+     * Streaming version of /message (Server-Sent Events).
+     * The AI's answer is sent token by token as Gemini generates it, followed by
+     * a final "done" event carrying the same JSON as /message.
+     */
+    @PostMapping(value = "/message/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessage(@RequestBody UserMessageRequest request) {
+        return chatService.streamUserMessage(request);
+    }
 
-        // Step 7: Return JSON Response to Frontend
-        Map<String, Object> response = new HashMap<>();
-        response.put("aiResponse", aiReplyText);
-        response.put("detectedEmotion", emotion);
-        response.put("conversationId", conversation.getId());
+    /**
+     * Non-blocking version of /message: same JSON, but the request thread is released
+     * while the AI backends answer (the Mono is completed by the WebClient event loops).
+     */
+    @PostMapping("/reactive/message")
+    public Mono<ChatResponse> sendMessageReactive(@RequestBody UserMessageRequest request) {
+        return reactiveChatService.processUserMessage(request);
+    }
 
-        return ResponseEntity.ok(response);
+    /**
+     * Non-blocking version of /message/stream: same events (token, emotion, done).
+     */
+    @PostMapping(value = "/reactive/message/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamMessageReactive(@RequestBody UserMessageRequest request) {
+        return reactiveChatService.streamUserMessage(request);
     }
 
     /**
      * Returns a list of all conversations for the sidebar history.
      */
     @GetMapping("/conversations")
-    public ResponseEntity<List<Conversation>> getUserConversations(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email).orElseThrow();
+    public ResponseEntity<List<Conversation>> getUserConversations(@AuthenticationPrincipal AuthenticatedUser user) {
         List<Conversation> conversations = conversationRepository.findByUserIdOrderByStartTimeDesc(user.getId());
         return ResponseEntity.ok(conversations);
     }
 
+    /**
+     * Paginated sidebar list (keyset pagination), newest conversation first.
+     * Each item carries id, startTime, messageCount, preview and dominantEmotion.
+     * Pass the returned nextCursor as ?cursor= to load the next page.
+     */
+    @GetMapping("/conversations/page")
+    public ResponseEntity<ConversationPage> getConversationPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        int pageSize = Math.max(1, Math.min(size, 100));
+        return ResponseEntity.ok(chatService.getConversationPage(cursor, pageSize));
+    }
+
     /**
      * Returns all messages for a specific conversation ID.
      * Used when a user clicks a conversation in the sidebar.
@@ -134,4 +110,37 @@ public class ChatController {
         List<Message> messages = messageRepository.findByConversationIdOrderByTimestampAsc(conversationId);
         return ResponseEntity.ok(messages);
     }
-}
\ No newline at end of file
+
+    /**
+     * Paginated messages of a conversation, newest page first ("load older" scrolling).
+     * Messages inside a page are in chronological order. Pass the returned olderCursor
+     * as ?before= to load the previous page.
+     */
+    @GetMapping("/conversations/{conversationId}/messages/page")
+    public ResponseEntity<MessagePage> getConversationMessagePage(
+            @PathVariable Long conversationId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "30") int size
+    ) {
+        int pageSize = Math.max(1, Math.min(size, 100));
+        return ResponseEntity.ok(chatService.getMessagePage(conversationId, before, pageSize));
+    }
+
+    /**
+     * Searches the user's past messages (all conversations), best match first.
+     * q: words to find ("exact phrase", -exclude, prefix* supported); emotion: optional,
+     * repeatable filter (e.g. ?emotion=SADNESS&emotion=FEAR), enough on its own.
+     * Pass page=1, 2... while hasMore is true.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<SearchPage> search(
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) List<String> emotion,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        int pageSize = Math.max(1, Math.min(size, 50));
+        return ResponseEntity.ok(messageSearchIndex.search(user.getId(), q, emotion, Math.max(page, 0), pageSize));
+    }
+}
@@ -0,0 +1,75 @@
+package com.resilia.ai.model.demo.controller;
+
+import com.resilia.ai.model.demo.services.ProfilePhotoStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Serves profile photos (URLs built by ProfilePhotoService).
+ *
+ * Public, so that a plain <img src> can load it: the URL contains the SHA-256 of the image,
+ * which cannot be guessed. A URL always points to the same bytes, so browsers may cache it
+ * forever and revalidate with the ETag.
+ */
+@RestController
+@RequestMapping("/api/photos")
+public class ProfilePhotoController {
+
+    // Tomcat's sendfile request attributes (NIO connector).
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private ProfilePhotoStore profilePhotoStore;
+
+    @GetMapping("/{userId}/{key:.+}")
+    public void getPhoto(@PathVariable Long userId, @PathVariable String key,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = profilePhotoStore.find(userId, key);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String etag = "\"" + key + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long size = Files.size(file);
+        response.setContentType(ProfilePhotoStore.contentTypeOf(key));
+        response.setContentLengthLong(size);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat sends the file itself once this method returns: kernel sendfile, no copy through the JVM.
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return;
+        }
+        // Other containers: copy with FileChannel.transferTo, without loading the image in memory.
+        try (FileChannel channel = FileChannel.open(file)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, out);
+            }
+        }
+    }
+}
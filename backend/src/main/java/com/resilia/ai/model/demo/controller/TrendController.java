@@ -0,0 +1,62 @@
+package com.resilia.ai.model.demo.controller;
+
+import com.resilia.ai.model.demo.DTO.TrendDtos.EmotionDistribution;
+import com.resilia.ai.model.demo.DTO.TrendDtos.NegativeStreaks;
+import com.resilia.ai.model.demo.DTO.TrendDtos.TrendResponse;
+import com.resilia.ai.model.demo.security.AuthenticatedUser;
+import com.resilia.ai.model.demo.services.EmotionTimeline;
+import com.resilia.ai.model.demo.services.EmotionTrendService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/trends")
+public class TrendController {
+
+    @Autowired
+    private EmotionTrendService emotionTrendService;
+
+    @Autowired
+    private EmotionTimeline emotionTimeline;
+
+    /**
+     * Mood trend of the logged-in user.
+     * EXPECTS: ?from=2025-01-01&to=2025-01-31 (ISO dates, inclusive, default: last 30 days)
+     * and ?granularity=day|week (default: day).
+     */
+    @GetMapping
+    public ResponseEntity<TrendResponse> getTrends(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = EmotionTrendService.DAY) String granularity,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        return ResponseEntity.ok(emotionTrendService.getTrends(principal.getId(), from, to, granularity));
+    }
+
+    /**
+     * Messages per emotion of the logged-in user over the last ?days= days (default: 30),
+     * answered from the in-memory EmotionTimeline.
+     */
+    @GetMapping("/distribution")
+    public ResponseEntity<EmotionDistribution> getDistribution(
+            @RequestParam(required = false) Integer days,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        return ResponseEntity.ok(emotionTimeline.distribution(principal.getId(), days));
+    }
+
+    /**
+     * Current and longest runs of consecutive negative messages (sadness, anger, fear)
+     * of the logged-in user over the last ?days= days (default: 30).
+     */
+    @GetMapping("/streaks")
+    public ResponseEntity<NegativeStreaks> getNegativeStreaks(
+            @RequestParam(required = false) Integer days,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        return ResponseEntity.ok(emotionTimeline.negativeStreaks(principal.getId(), days));
+    }
+}
@@ -4,10 +4,18 @@ import com.resilia.ai.model.demo.DTO.JwtResponse;
 import com.resilia.ai.model.demo.DTO.UserProfileDto;
 import com.resilia.ai.model.demo.entites.User;
 import com.resilia.ai.model.demo.repositories.UserRepository;
+import com.resilia.ai.model.demo.security.AuthenticatedUser;
+import com.resilia.ai.model.demo.services.ProfilePhotoService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.Collections;
 
 @RestController
 @RequestMapping("/api/user")
@@ -16,16 +24,18 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ProfilePhotoService profilePhotoService;
+
     /**
      * Updates user profile.
      * EXPECTS: JSON with fields like bio, goals, emergencyContact, profilePhoto.
      */
     @PutMapping("/profile")
-    public ResponseEntity<?> updateProfile(@RequestBody UserProfileDto request, Authentication authentication) {
-        // 1. Find the user based on the JWT token (authentication.getName() returns the email)
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    public ResponseEntity<?> updateProfile(@RequestBody UserProfileDto request,
+                                           @AuthenticationPrincipal AuthenticatedUser principal) throws IOException {
+        // 1. Find the user based on the ID carried by the JWT token
+        User user = findUser(principal);
 
         // 2. Update fields ONLY if they are not null
         if (request.getUsername() != null) user.setUsername(request.getUsername());
@@ -38,12 +48,56 @@ public class UserController {
         if (request.getBio() != null) user.setBio(request.getBio());
         if (request.getGoals() != null) user.setGoals(request.getGoals());
         if (request.getEmergencyContact() != null) user.setEmergencyContact(request.getEmergencyContact());
-        if (request.getProfilePhoto() != null) user.setProfilePhoto(request.getProfilePhoto());
 
-        // 4. SAVE the changes to the database
+        // 4. The photo goes to the photo store (only a new image is uploaded; the current URL is ignored)
+        if (ProfilePhotoService.isDataUrl(request.getProfilePhoto())) {
+            storePhoto(() -> profilePhotoService.replaceFromDataUrl(user, request.getProfilePhoto()));
+        } else if ("".equals(request.getProfilePhoto())) {
+            profilePhotoService.remove(user);
+        }
+
+        // 5. SAVE the changes to the database
         userRepository.save(user);
 
-        // 5. Return the full updated user so the frontend can update its local storage
-        return ResponseEntity.ok(new JwtResponse(null, user));
+        // 6. Return the full updated user so the frontend can update its local storage
+        return ResponseEntity.ok(new JwtResponse(null, user, profilePhotoService.urlOf(user)));
+    }
+
+    /**
+     * Uploads a new profile photo as raw bytes (Content-Type: image/png, image/jpeg, image/gif or image/webp).
+     * The body is streamed to the photo store, never held in memory.
+     * Returns {"profilePhoto": "<url>"}.
+     */
+    @PutMapping("/photo")
+    public ResponseEntity<?> uploadPhoto(HttpServletRequest request,
+                                         @AuthenticationPrincipal AuthenticatedUser principal) throws IOException {
+        User user = findUser(principal);
+        storePhoto(() -> profilePhotoService.replace(user, request.getContentType(), request.getInputStream()));
+        return ResponseEntity.ok(Collections.singletonMap("profilePhoto", profilePhotoService.urlOf(user)));
+    }
+
+    @DeleteMapping("/photo")
+    public ResponseEntity<?> deletePhoto(@AuthenticationPrincipal AuthenticatedUser principal) {
+        profilePhotoService.remove(findUser(principal));
+        return ResponseEntity.noContent().build();
+    }
+
+    private User findUser(AuthenticatedUser principal) {
+        return userRepository.findById(principal.getId())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    // Bad images (type, size, encoding) are the client's fault: 400 instead of 500.
+    private static void storePhoto(PhotoUpload upload) throws IOException {
+        try {
+            upload.run();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface PhotoUpload {
+        void run() throws IOException;
     }
 }
\ No newline at end of file
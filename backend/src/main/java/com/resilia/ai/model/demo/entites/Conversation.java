@@ -9,8 +9,12 @@ import java.util.List;
 /**
  * Represents a chat session.
  * Links a User to many Messages.
+ *
+ * preview, messageCount and dominantEmotion are denormalized copies maintained on every
+ * message insert, so the sidebar list never has to load the messages themselves.
  */
 @Entity
+@Table(indexes = @Index(name = "idx_conversation_user_start", columnList = "user_id, start_time, id"))
 public class Conversation {
 
     @Id
@@ -19,6 +23,16 @@ public class Conversation {
 
     private LocalDateTime startTime = LocalDateTime.now();
 
+    // Beginning of the first user message (shown as the title in the sidebar).
+    @Column(length = 120)
+    private String preview;
+
+    private int messageCount;
+
+    // Most frequent emotion among the user's messages.
+    @Column(length = 32)
+    private String dominantEmotion;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonIgnore // Crucial: Prevents infinite loop when converting to JSON (User -> Conversation -> User...)
@@ -35,6 +49,12 @@ public class Conversation {
     public void setId(Long id) { this.id = id; }
     public LocalDateTime getStartTime() { return startTime; }
     public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+    public String getPreview() { return preview; }
+    public void setPreview(String preview) { this.preview = preview; }
+    public int getMessageCount() { return messageCount; }
+    public void setMessageCount(int messageCount) { this.messageCount = messageCount; }
+    public String getDominantEmotion() { return dominantEmotion; }
+    public void setDominantEmotion(String dominantEmotion) { this.dominantEmotion = dominantEmotion; }
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
     public List<Message> getMessages() { return messages; }
@@ -0,0 +1,39 @@
+package com.resilia.ai.model.demo.entites;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Persisted memory of a conversation for the AI prompt:
+ * a rolling summary of the older messages, so the prompt context can be rebuilt
+ * after a restart without rereading the whole conversation.
+ * Messages sent after summarizedUntil are not in the summary yet.
+ */
+@Entity
+public class ConversationContext {
+
+    @Id
+    private Long conversationId;
+
+    @Lob
+    @Column(columnDefinition = "TEXT")
+    private String summary;
+
+    private LocalDateTime summarizedUntil;
+
+    public ConversationContext() {}
+
+    public ConversationContext(Long conversationId, String summary, LocalDateTime summarizedUntil) {
+        this.conversationId = conversationId;
+        this.summary = summary;
+        this.summarizedUntil = summarizedUntil;
+    }
+
+    // Getters and Setters...
+    public Long getConversationId() { return conversationId; }
+    public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
+    public String getSummary() { return summary; }
+    public void setSummary(String summary) { this.summary = summary; }
+    public LocalDateTime getSummarizedUntil() { return summarizedUntil; }
+    public void setSummarizedUntil(LocalDateTime summarizedUntil) { this.summarizedUntil = summarizedUntil; }
+}
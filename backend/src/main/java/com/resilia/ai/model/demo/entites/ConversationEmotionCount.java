@@ -0,0 +1,60 @@
+package com.resilia.ai.model.demo.entites;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * How many messages of a conversation were classified with an emotion.
+ * Incremented with every chat turn (see ChatTurnWriter), so Conversation.dominantEmotion is
+ * kept up to date from two primary key reads instead of a GROUP BY over the whole conversation.
+ */
+@Entity
+public class ConversationEmotionCount {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "message_count", nullable = false)
+    private long count;
+
+    public ConversationEmotionCount() {}
+
+    // Getters and Setters...
+    public Key getId() { return id; }
+    public void setId(Key id) { this.id = id; }
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "conversation_id", nullable = false)
+        private Long conversationId;
+
+        @Column(length = 32, nullable = false)
+        private String emotion;
+
+        public Key() {}
+
+        public Key(Long conversationId, String emotion) {
+            this.conversationId = conversationId;
+            this.emotion = emotion;
+        }
+
+        public Long getConversationId() { return conversationId; }
+        public String getEmotion() { return emotion; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(conversationId, key.conversationId) && Objects.equals(emotion, key.emotion);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(conversationId, emotion);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.resilia.ai.model.demo.entites;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Precomputed mood trend: how many of a user's messages were classified with an emotion on a given day.
+ * Incremented with every chat turn (see EmotionTrendService), so the trends page reads
+ * one row per day and emotion instead of every message.
+ * The primary key (user_id, stat_date, emotion) also serves the date range queries.
+ */
+@Entity
+public class EmotionDailyCount {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "message_count", nullable = false)
+    private long count;
+
+    public EmotionDailyCount() {}
+
+    // Getters and Setters...
+    public Key getId() { return id; }
+    public void setId(Key id) { this.id = id; }
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "user_id", nullable = false)
+        private Long userId;
+
+        @Column(name = "stat_date", nullable = false)
+        private LocalDate day;
+
+        @Column(length = 32, nullable = false)
+        private String emotion;
+
+        public Key() {}
+
+        public Key(Long userId, LocalDate day, String emotion) {
+            this.userId = userId;
+            this.day = day;
+            this.emotion = emotion;
+        }
+
+        public Long getUserId() { return userId; }
+        public LocalDate getDay() { return day; }
+        public String getEmotion() { return emotion; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(userId, key.userId) && Objects.equals(day, key.day) && Objects.equals(emotion, key.emotion);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, day, emotion);
+        }
+    }
+}
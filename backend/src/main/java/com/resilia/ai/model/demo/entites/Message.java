@@ -9,9 +9,14 @@ import java.time.LocalDateTime;
  * Stores content, sender type (user/bot), and the detected emotion.
  */
 @Entity
+// Keyset pagination index: "newest N messages of a conversation" stays O(page size).
+@Table(indexes = @Index(name = "idx_message_conversation_ts", columnList = "conversation_id, timestamp, id"))
 public class Message {
+    // Pooled sequence (IDs reserved 50 at a time) instead of IDENTITY,
+    // so Hibernate can send the inserts of a chat turn as one JDBC batch.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_seq")
+    @SequenceGenerator(name = "message_seq", sequenceName = "message_seq", allocationSize = 50)
     private Long id;
 
     private String sender; // "user" or "bot"
@@ -34,9 +34,9 @@ public class User {
     private String goals;
     private String emergencyContact;
 
-    @Lob // Large Object - needed for storing Base64 image strings
-    @Column(columnDefinition = "LONGTEXT")
-    private String profilePhoto;
+    // Photo file in the ProfilePhotoStore ("<sha-256>.<ext>"): the image itself is never loaded with the user.
+    @Column(length = 80)
+    private String profilePhotoKey;
 
     // A User has many Conversations. If User is deleted, delete their conversations.
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -69,6 +69,6 @@ public class User {
     public void setGoals(String goals) { this.goals = goals; }
     public String getEmergencyContact() { return emergencyContact; }
     public void setEmergencyContact(String emergencyContact) { this.emergencyContact = emergencyContact; }
-    public String getProfilePhoto() { return profilePhoto; }
-    public void setProfilePhoto(String profilePhoto) { this.profilePhoto = profilePhoto; }
+    public String getProfilePhotoKey() { return profilePhotoKey; }
+    public void setProfilePhotoKey(String profilePhotoKey) { this.profilePhotoKey = profilePhotoKey; }
 }
\ No newline at end of file
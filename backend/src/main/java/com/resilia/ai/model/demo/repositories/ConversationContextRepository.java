@@ -0,0 +1,7 @@
+package com.resilia.ai.model.demo.repositories;
+
+import com.resilia.ai.model.demo.entites.ConversationContext;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ConversationContextRepository extends JpaRepository<ConversationContext, Long> {
+}
@@ -0,0 +1,30 @@
+package com.resilia.ai.model.demo.repositories;
+
+import com.resilia.ai.model.demo.entites.ConversationEmotionCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ConversationEmotionCountRepository extends JpaRepository<ConversationEmotionCount, ConversationEmotionCount.Key> {
+
+    // Adds to the counter of (conversation, emotion), creating the row on first use: one statement, no SELECT.
+    @Modifying
+    @Query(value = "INSERT INTO conversation_emotion_count (conversation_id, emotion, message_count) " +
+            "VALUES (:conversationId, :emotion, :added) " +
+            "ON DUPLICATE KEY UPDATE message_count = message_count + :added", nativeQuery = true)
+    int increment(@Param("conversationId") Long conversationId,
+                  @Param("emotion") String emotion,
+                  @Param("added") long added);
+
+    // One-off fill from the existing messages: does nothing once the table has rows.
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO conversation_emotion_count (conversation_id, emotion, message_count) " +
+            "SELECT m.conversation_id, m.emotion, COUNT(*) FROM message m " +
+            "WHERE m.emotion IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM conversation_emotion_count) " +
+            "GROUP BY m.conversation_id, m.emotion", nativeQuery = true)
+    int backfill();
+}
@@ -1,11 +1,81 @@
 package com.resilia.ai.model.demo.repositories;
 
+import com.resilia.ai.model.demo.DTO.ChatDtos.ConversationSummaryDto;
 import com.resilia.ai.model.demo.entites.Conversation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
 
     // Finds all conversations for a specific user, sorted by newest first.
     List<Conversation> findByUserIdOrderByStartTimeDesc(Long userId);
-}
\ No newline at end of file
+
+    // Ownership check: does this conversation belong to this user?
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    // The conversation, only if it belongs to this user.
+    Optional<Conversation> findByIdAndUserId(Long id, Long userId);
+
+    // First page of the sidebar: newest conversations, read from the denormalized columns only.
+    @Query("SELECT new com.resilia.ai.model.demo.DTO.ChatDtos$ConversationSummaryDto(" +
+            "c.id, c.startTime, c.messageCount, c.preview, c.dominantEmotion) " +
+            "FROM Conversation c WHERE c.user.id = :userId " +
+            "ORDER BY c.startTime DESC, c.id DESC")
+    List<ConversationSummaryDto> findSummaries(@Param("userId") Long userId, Pageable pageable);
+
+    // Next pages (keyset): conversations strictly older than the (startTime, id) cursor.
+    @Query("SELECT new com.resilia.ai.model.demo.DTO.ChatDtos$ConversationSummaryDto(" +
+            "c.id, c.startTime, c.messageCount, c.preview, c.dominantEmotion) " +
+            "FROM Conversation c WHERE c.user.id = :userId " +
+            "AND (c.startTime < :startTime OR (c.startTime = :startTime AND c.id < :id)) " +
+            "ORDER BY c.startTime DESC, c.id DESC")
+    List<ConversationSummaryDto> findSummariesBefore(@Param("userId") Long userId,
+                                                     @Param("startTime") LocalDateTime startTime,
+                                                     @Param("id") Long id,
+                                                     Pageable pageable);
+
+    // Keeps the denormalized columns up to date after messages are inserted (single UPDATE, no SELECT).
+    // The preview is only set once, from the first user message.
+    // (Parameters are CAST: Hibernate 6 cannot infer their type inside COALESCE in an UPDATE.)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Conversation c SET c.messageCount = c.messageCount + :added, " +
+            "c.preview = COALESCE(c.preview, CAST(:preview AS String)) " +
+            "WHERE c.id = :id")
+    int updateSummary(@Param("id") Long id,
+                      @Param("added") int added,
+                      @Param("preview") String preview);
+
+    // After the counter of `emotion` grew (ConversationEmotionCount), it becomes the dominant emotion
+    // if it now beats the current one. Only that counter changed, so no other emotion can win:
+    // two primary key reads, whatever the length of the conversation. Ties keep the current one.
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE conversation c SET c.dominant_emotion = :emotion " +
+            "WHERE c.id = :id AND (c.dominant_emotion IS NULL OR c.dominant_emotion <> :emotion) " +
+            "AND (SELECT e.message_count FROM conversation_emotion_count e " +
+            "     WHERE e.conversation_id = :id AND e.emotion = :emotion) > " +
+            "    COALESCE((SELECT d.message_count FROM conversation_emotion_count d " +
+            "     WHERE d.conversation_id = :id AND d.emotion = c.dominant_emotion), 0)", nativeQuery = true)
+    int promoteDominantEmotion(@Param("id") Long id, @Param("emotion") String emotion);
+
+    // One-off fill of the denormalized columns for conversations created before they existed.
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE conversation c SET " +
+            "c.message_count = (SELECT COUNT(*) FROM message m WHERE m.conversation_id = c.id), " +
+            "c.preview = (SELECT LEFT(m.content, 100) FROM message m WHERE m.conversation_id = c.id " +
+            "  AND m.sender = 'user' ORDER BY m.timestamp, m.id LIMIT 1), " +
+            "c.dominant_emotion = (SELECT m.emotion FROM message m WHERE m.conversation_id = c.id " +
+            "  AND m.emotion IS NOT NULL GROUP BY m.emotion ORDER BY COUNT(*) DESC LIMIT 1) " +
+            "WHERE c.message_count = 0", nativeQuery = true)
+    int backfillSummaries();
+}
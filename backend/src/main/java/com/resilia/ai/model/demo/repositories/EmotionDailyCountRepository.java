@@ -0,0 +1,44 @@
+package com.resilia.ai.model.demo.repositories;
+
+import com.resilia.ai.model.demo.DTO.TrendDtos.DailyEmotionCount;
+import com.resilia.ai.model.demo.entites.EmotionDailyCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface EmotionDailyCountRepository extends JpaRepository<EmotionDailyCount, EmotionDailyCount.Key> {
+
+    // Adds to the counter of (user, day, emotion), creating the row on first use: one statement, no SELECT.
+    @Modifying
+    @Query(value = "INSERT INTO emotion_daily_count (user_id, stat_date, emotion, message_count) " +
+            "VALUES (:userId, :day, :emotion, :added) " +
+            "ON DUPLICATE KEY UPDATE message_count = message_count + :added", nativeQuery = true)
+    int increment(@Param("userId") Long userId,
+                  @Param("day") LocalDate day,
+                  @Param("emotion") String emotion,
+                  @Param("added") long added);
+
+    // Daily counters of a user between two dates (inclusive), oldest first. Reads the primary key range only.
+    @Query("SELECT new com.resilia.ai.model.demo.DTO.TrendDtos$DailyEmotionCount(c.id.day, c.id.emotion, c.count) " +
+            "FROM EmotionDailyCount c WHERE c.id.userId = :userId AND c.id.day BETWEEN :from AND :to " +
+            "ORDER BY c.id.day")
+    List<DailyEmotionCount> findRange(@Param("userId") Long userId,
+                                      @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to);
+
+    // One-off fill from the existing messages, when the table is still empty.
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO emotion_daily_count (user_id, stat_date, emotion, message_count) " +
+            "SELECT c.user_id, DATE(m.timestamp), m.emotion, COUNT(*) FROM message m " +
+            "JOIN conversation c ON c.id = m.conversation_id " +
+            "WHERE m.emotion IS NOT NULL AND m.sender = 'user' " +
+            "AND NOT EXISTS (SELECT 1 FROM emotion_daily_count) " +
+            "GROUP BY c.user_id, DATE(m.timestamp), m.emotion", nativeQuery = true)
+    int backfill();
+}
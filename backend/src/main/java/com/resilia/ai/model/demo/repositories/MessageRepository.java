@@ -1,10 +1,14 @@
 package com.resilia.ai.model.demo.repositories;
 
+import com.resilia.ai.model.demo.DTO.ChatDtos.MessageDto;
+import com.resilia.ai.model.demo.DTO.ChatDtos.SearchableMessage;
+import com.resilia.ai.model.demo.DTO.TrendDtos.TimelineEntry;
 import com.resilia.ai.model.demo.entites.Message;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
@@ -15,4 +19,31 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
 
     // Standard method to get all messages for a chat, sorted chronologically.
     List<Message> findByConversationIdOrderByTimestampAsc(Long conversationId);
+
+    // Newest messages of a conversation (tail-first), as lightweight DTOs.
+    @Query("SELECT new com.resilia.ai.model.demo.DTO.ChatDtos$MessageDto(m.id, m.content, m.sender, m.emotion, m.timestamp) " +
+            "FROM Message m WHERE m.conversation.id = :conversationId " +
+            "ORDER BY m.timestamp DESC, m.id DESC")
+    List<MessageDto> findLatestMessages(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    // "Load older": messages strictly before the (timestamp, id) cursor, newest first.
+    @Query("SELECT new com.resilia.ai.model.demo.DTO.ChatDtos$MessageDto(m.id, m.content, m.sender, m.emotion, m.timestamp) " +
+            "FROM Message m WHERE m.conversation.id = :conversationId " +
+            "AND (m.timestamp < :timestamp OR (m.timestamp = :timestamp AND m.id < :id)) " +
+            "ORDER BY m.timestamp DESC, m.id DESC")
+    List<MessageDto> findMessagesBefore(@Param("conversationId") Long conversationId,
+                                        @Param("timestamp") LocalDateTime timestamp,
+                                        @Param("id") Long id,
+                                        Pageable pageable);
+
+    // Search index rebuild: all messages after an ID, in ID order (keyset batches, no entity loaded).
+    @Query("SELECT new com.resilia.ai.model.demo.DTO.ChatDtos$SearchableMessage(m.id, c.id, c.user.id, m.sender, m.emotion, m.content, m.timestamp) " +
+            "FROM Message m JOIN m.conversation c WHERE m.id > :afterId ORDER BY m.id")
+    List<SearchableMessage> findSearchableAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // Emotion timeline warm-up: classified user messages after an ID, in ID order (keyset batches).
+    @Query("SELECT new com.resilia.ai.model.demo.DTO.TrendDtos$TimelineEntry(m.id, c.user.id, m.emotion, m.timestamp) " +
+            "FROM Message m JOIN m.conversation c " +
+            "WHERE m.id > :afterId AND m.emotion IS NOT NULL AND m.sender = 'user' ORDER BY m.id")
+    List<TimelineEntry> findTimelineAfter(@Param("afterId") long afterId, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.resilia.ai.model.demo.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * The logged-in user as seen by Spring Security.
+ * Same as Spring's User, plus the database ID, so controllers can use
+ * the ID directly instead of looking the user up by email again.
+ */
+public class AuthenticatedUser extends org.springframework.security.core.userdetails.User {
+
+    private final Long id;
+
+    public AuthenticatedUser(Long id, String email, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(email, password, authorities);
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -1,5 +1,8 @@
 package com.resilia.ai.model.demo.security;
 
+import com.resilia.ai.model.demo.repositories.UserRepository;
+import com.resilia.ai.model.demo.services.ChatMetrics;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,12 +10,12 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collections;
 
 /**
  * A Filter that intercepts every HTTP request to check for a JWT Token.
@@ -24,35 +27,34 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private UserRepository userRepository;
+
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
-
         // 1. Look for "Authorization: Bearer <token>" header
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            try {
-                username = jwtUtil.extractUsername(jwt);
-            } catch (Exception e) {
-                logger.warn("JWT is invalid or expired: " + e.getMessage());
-            }
-        }
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwt = authorizationHeader.substring(7);
+            AuthenticatedUser user = chatMetrics.observe("auth", () -> resolveUser(jwt));
 
-        // 2. If token is present and valid, set the User Authentication in Spring Context
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            // 2. If token is valid, set the User Authentication in Spring Context
+            if (user != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
+                        user, null, user.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 // This line effectively logs the user in for this request
@@ -63,4 +65,43 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         // 3. Continue the filter chain
         chain.doFilter(request, response);
     }
+
+    /**
+     * Returns the user behind a token, or null if the token is invalid or expired.
+     * A token is verified (signature, expiration, user still exists) the first time it is seen;
+     * after that it is served from the VerifiedTokenCache without parsing or touching the
+     * database, until the cache entry expires and the token is verified again.
+     */
+    private AuthenticatedUser resolveUser(String jwt) {
+        AuthenticatedUser cached = verifiedTokenCache.get(jwt);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            // Checks signature and expiration in a single parse.
+            Claims claims = jwtUtil.extractAllClaims(jwt);
+            String email = claims.getSubject();
+            Number userId = claims.get(JwtUtil.USER_ID_CLAIM, Number.class);
+
+            AuthenticatedUser user;
+            if (userId != null) {
+                // A primary key lookup, once per cache period: deleted users lose access.
+                if (!userRepository.existsById(userId.longValue())) {
+                    throw new IllegalStateException("user " + userId + " no longer exists");
+                }
+                user = new AuthenticatedUser(userId.longValue(), email, "", Collections.emptyList());
+            } else {
+                // Tokens issued before the "uid" claim existed: one DB lookup, then cached.
+                AuthenticatedUser loaded = (AuthenticatedUser) userDetailsService.loadUserByUsername(email);
+                user = new AuthenticatedUser(loaded.getId(), email, "", loaded.getAuthorities());
+            }
+
+            verifiedTokenCache.put(jwt, user, claims.getExpiration().getTime());
+            return user;
+        } catch (Exception e) {
+            logger.warn("JWT is invalid or expired: " + e.getMessage());
+            return null;
+        }
+    }
 }
\ No newline at end of file
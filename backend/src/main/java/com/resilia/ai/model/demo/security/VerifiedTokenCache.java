@@ -0,0 +1,88 @@
+package com.resilia.ai.model.demo.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers tokens that were already verified, so a token is parsed (and its user looked up)
+ * at most once every jwt.cache.ttl-seconds.
+ *
+ * Entries are keyed by the whole token, so only the exact token that was verified is served
+ * from memory. They expire after jwt.cache.ttl-seconds, or when the token itself expires if that
+ * comes first: a cached entry never outlives its token, and a deleted user is rejected at most
+ * jwt.cache.ttl-seconds after the deletion.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final Cache<String, VerifiedToken> cache;
+    private final long ttlMillis;
+
+    @Autowired
+    public VerifiedTokenCache(@Value("${jwt.cache.max-size:50000}") long maxSize,
+                              @Value("${jwt.cache.ttl-seconds:300}") long ttlSeconds,
+                              MeterRegistry meterRegistry) {
+        this(maxSize, TimeUnit.SECONDS.toMillis(ttlSeconds), TimeUnit.MILLISECONDS, meterRegistry);
+    }
+
+    VerifiedTokenCache(long maxSize, long ttl, TimeUnit unit, MeterRegistry meterRegistry) {
+        this.ttlMillis = unit.toMillis(ttl);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long remainingMs = value.expiresAtMillis - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        new CaffeineCacheMetrics<>(cache, "jwt", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Returns the user of an already verified token, or null if the token is unknown or expired.
+     */
+    public AuthenticatedUser get(String token) {
+        VerifiedToken verified = cache.getIfPresent(token);
+        if (verified == null || verified.expiresAtMillis <= System.currentTimeMillis()) {
+            return null;
+        }
+        return verified.user;
+    }
+
+    public void put(String token, AuthenticatedUser user, long expiresAtMillis) {
+        long recheckAtMillis = System.currentTimeMillis() + ttlMillis;
+        cache.put(token, new VerifiedToken(user, Math.min(expiresAtMillis, recheckAtMillis)));
+    }
+
+    private static class VerifiedToken {
+        private final AuthenticatedUser user;
+        private final long expiresAtMillis;
+
+        VerifiedToken(AuthenticatedUser user, long expiresAtMillis) {
+            this.user = user;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package com.resilia.ai.model.demo.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.resilia.ai.model.demo.config.VirtualThreads;
+import io.micrometer.observation.Observation;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -9,15 +15,41 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 public class AiService {
 
+    private static final Logger log = LoggerFactory.getLogger(AiService.class);
+
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private HttpClient httpClient;
+
+    @Autowired
+    private EmotionBatcher emotionBatcher;
+
+    @Autowired
+    private EmotionCache emotionCache;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private EmotionClassifier emotionClassifier;
+
+    @Autowired
+    private GenerationCache generationCache;
+
+    @Autowired
+    private SemanticReplyCache semanticReplyCache;
 
     @Value("${gemini.api.key}")
     private String geminiApiKey;
@@ -25,40 +57,184 @@ public class AiService {
     @Value("${gemini.api.url}")
     private String geminiApiUrl;
 
-    private final String PYTHON_SERVICE_URL = "http://localhost:5000/analyze";
+    // Streaming variant of the Gemini endpoint. Derived from gemini.api.url when not set.
+    @Value("${gemini.api.stream-url:}")
+    private String geminiStreamUrl;
+
+    // "parallel" starts Gemini while the classifier runs, "classify-first" waits for the emotion.
+    @Value("${chat.pipeline.mode:parallel}")
+    private String pipelineMode;
+
+    // Maximum time (ms) the chat pipeline waits for the emotion classifier.
+    @Value("${chat.emotion.deadline-ms:1500}")
+    private long emotionDeadlineMs;
+
+    // Emotion used when the classifier fails or misses its deadline.
+    @Value("${chat.emotion.fallback:NEUTRAL}")
+    private String fallbackEmotion;
+
+    // Total time budget (ms) of one chat turn. Gemini only gets what the classifier left.
+    @Value("${chat.deadline-ms:12000}")
+    private long turnDeadlineMs;
+
+    // Java 21+: the HttpClient callbacks (response parsing, SSE chunks) run on virtual threads.
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${ai.http.connect-timeout-ms:1000}")
+    private long connectTimeoutMs;
+
+    @Value("${ia.service.timeout-ms:2000}")
+    private long emotionTimeoutMs;
+
+    @Value("${gemini.timeout-ms:10000}")
+    private long geminiTimeoutMs;
+
+    @Value("${chat.stream.timeout-ms:60000}")
+    private long streamTimeoutMs;
+
+    // Circuit breakers and bulkheads, see AiBackendConfig
+    @Autowired
+    private BackendGuard emotionGuard;
+
+    @Autowired
+    private BackendGuard geminiGuard;
+
+    static final String UNAVAILABLE_REPLY = "I am having trouble processing that right now.";
+
+    @PostConstruct
+    public void init() {
+        HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs));
+        if (virtualThreads && VirtualThreads.isSupported()) {
+            clientBuilder.executor(VirtualThreads.newPerTaskExecutor("ai-http"));
+        }
+        httpClient = clientBuilder.build();
+    }
 
     /**
-     * Connects to the local Python Flask service to detect emotion.
-     * It sends the user message and waits for a JSON response like {"emotion": "happy"}.
+     * Runs one chat turn against both AI backends.
+     *
+     * In "parallel" mode, the emotion classifier and Gemini are called at the same time
+     * (Gemini gets a provisional prompt asking it to infer the tone itself), so the turn
+     * takes roughly max(classify, generate). In "classify-first" mode, Gemini waits for
+     * the detected emotion. In both modes a slow classifier is cut off after the deadline
+     * and replaced by the fallback emotion.
+     * Cached answers are keyed on the detected emotion, so an answer written for one tone is never
+     * served to a message of another tone. In parallel mode, a prompt the reply caches accept (no
+     * conversation context) only waits for the emotion when one of them may already answer it
+     * (cachedAnswerLikely); on a new prompt Gemini starts right away, and its answer is stored
+     * under the emotion once both are known.
+     * The whole turn shares one deadline (chat.deadline-ms): Gemini's timeout is whatever
+     * is left of it when the call starts.
      */
-    public String analyzeEmotion(String userMessage) {
-        try {
-            // Prepare JSON Payload
-            Map<String, String> requestBody = Map.of("message", userMessage);
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
+    public CompletableFuture<AiReply> respond(String contextHistory, String currentUserMessage) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(turnDeadlineMs);
+        CompletableFuture<String> emotionFuture = analyzeEmotionWithDeadline(currentUserMessage);
 
-            // Build HTTP POST Request
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(PYTHON_SERVICE_URL))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                    .build();
-
-            // Send Request and read Response
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                Map<String, String> responseMap = objectMapper.readValue(response.body(), Map.class);
-                String emotion = responseMap.get("emotion");
-                return emotion != null ? emotion.toUpperCase() : "NEUTRAL";
-            } else {
-                return "NEUTRAL";
-            }
+        CompletableFuture<String> replyFuture;
+        if ("classify-first".equalsIgnoreCase(pipelineMode)) {
+            replyFuture = emotionFuture.thenCompose(emotion ->
+                    generateAiResponseAsync(emotion, contextHistory, currentUserMessage, remaining(deadline)));
+        } else if (!cachesAccept(contextHistory, currentUserMessage)) {
+            replyFuture = generateAiResponseAsync(null, contextHistory, currentUserMessage, remaining(deadline));
+        } else {
+            replyFuture = cachedAnswerLikely(contextHistory, currentUserMessage).thenCompose(likely -> likely
+                    ? emotionFuture.thenCompose(emotion ->
+                            generateAiResponseAsync(emotion, contextHistory, currentUserMessage, remaining(deadline)))
+                    : generateAndRemember(emotionFuture, contextHistory, currentUserMessage, remaining(deadline)));
+        }
 
-        } catch (Exception e) {
-            System.err.println("PYTHON CONNECTION FAILED: Check if the Flask script is running on port 5000.");
-            return "NEUTRAL";
+        return emotionFuture.thenCombine(replyFuture, AiReply::new);
+    }
+
+    boolean cachesAccept(String contextHistory, String currentUserMessage) {
+        return generationCache.accepts(contextHistory, currentUserMessage)
+                || semanticReplyCache.accepts(contextHistory, currentUserMessage);
+    }
+
+    /**
+     * True when a reply cache may answer this prompt (or a similar one) without Gemini for some
+     * emotion, so that waiting for the detected emotion may save the Gemini call.
+     */
+    CompletableFuture<Boolean> cachedAnswerLikely(String contextHistory, String currentUserMessage) {
+        if (generationCache.hasAnswers(contextHistory, currentUserMessage)) {
+            return CompletableFuture.completedFuture(true);
         }
+        return semanticReplyCache.hasNeighbour(contextHistory, currentUserMessage);
+    }
+
+    /**
+     * Stores an answer generated before the emotion was known in both reply caches, under that emotion.
+     */
+    void rememberAnswer(String emotion, String contextHistory, String currentUserMessage, String answer, long nanos) {
+        generationCache.put(emotion, contextHistory, currentUserMessage, answer, nanos);
+        semanticReplyCache.remember(emotion, contextHistory, currentUserMessage, answer);
+    }
+
+    /**
+     * Gemini without waiting for the emotion (cache miss in parallel mode); the answer is
+     * remembered by the reply caches once the emotion is known.
+     */
+    private CompletableFuture<String> generateAndRemember(CompletableFuture<String> emotionFuture, String contextHistory,
+                                                          String currentUserMessage, Duration budget) {
+        long start = System.nanoTime();
+        CompletableFuture<String> generated = requestGeneration(buildPrompt(null, contextHistory, currentUserMessage), budget);
+        CompletableFuture<Long> elapsed = generated.thenApply(answer -> System.nanoTime() - start);
+        emotionFuture.thenAcceptBoth(elapsed, (emotion, nanos) ->
+                rememberAnswer(emotion, contextHistory, currentUserMessage, generated.join(), nanos));
+        return withFallbackReply(generated);
+    }
+
+    /**
+     * Runs the emotion classifier, but gives up after the configured deadline
+     * and returns the fallback emotion instead.
+     */
+    public CompletableFuture<String> analyzeEmotionWithDeadline(String userMessage) {
+        return analyzeEmotionAsync(userMessage)
+                .orTimeout(emotionDeadlineMs, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    chatMetrics.fallback("emotion", "deadline");
+                    return fallbackEmotion;
+                });
+    }
+
+    /**
+     * Detects the emotion of the user message with the configured EmotionClassifier
+     * (the Python Flask service, or the ONNX model inside the JVM).
+     */
+    public String analyzeEmotion(String userMessage) {
+        return analyzeEmotionAsync(userMessage).join();
+    }
+
+    /**
+     * Non-blocking version of analyzeEmotion().
+     * Repeated messages are answered by the EmotionCache. On a miss, the message goes
+     * through the EmotionBatcher when batching is enabled, otherwise on its own to the classifier.
+     * Misses go through the emotion BackendGuard (per batch when batching): when the classifier is
+     * down or saturated they fail immediately instead of waiting for a TCP timeout.
+     * The returned future never fails: any error is turned into chat.emotion.fallback.
+     */
+    public CompletableFuture<String> analyzeEmotionAsync(String userMessage) {
+        return chatMetrics.observeAsync("emotion", () -> {
+                    // The classifier call may start on a cache thread: its span is parented explicitly.
+                    Observation stage = chatMetrics.currentObservation();
+                    // The batcher guards each batch call itself: one failed batch is one breaker failure.
+                    return emotionCache.get(userMessage, message -> emotionBatcher.isEnabled()
+                            ? emotionBatcher.submit(message, stage).orTimeout(emotionTimeoutMs, TimeUnit.MILLISECONDS)
+                            : emotionGuard.call(() -> emotionClassifier.classify(message, stage),
+                                    Duration.ofMillis(emotionTimeoutMs)));
+                })
+                .thenApply(emotion -> {
+                    String label = emotion != null ? emotion.toUpperCase() : "NEUTRAL";
+                    chatMetrics.emotion(label);
+                    return label;
+                })
+                .exceptionally(e -> {
+                    log.warn("EMOTION CLASSIFIER FAILED: {}", e.getMessage());
+                    chatMetrics.fallback("emotion", "unavailable");
+                    return fallbackEmotion;
+                });
     }
 
     /**
@@ -66,52 +242,250 @@ public class AiService {
      * It instructs Gemini to act as a mental health companion.
      */
     public String generateAiResponse(String emotion, String contextHistory, String currentUserMessage) {
+        return generateAiResponseAsync(emotion, contextHistory, currentUserMessage).join();
+    }
 
-        // Construct the system prompt to guide the AI's behavior
-        String systemPrompt = "You are Resilia Ai, a compassionate mental health companion. " +
-                "The user is feeling: " + emotion + ". " +
-                "Adjust your tone to match this emotion. " +
-                "Keep your answer short (max 3 sentences). Always answer in English.";
+    /**
+     * Non-blocking version of generateAiResponse().
+     * When emotion is null (emotion not known yet), Gemini is asked to infer the tone itself.
+     * The returned future never fails: errors are turned into a short fallback sentence.
+     */
+    public CompletableFuture<String> generateAiResponseAsync(String emotion, String contextHistory, String currentUserMessage) {
+        return generateAiResponseAsync(emotion, contextHistory, currentUserMessage, Duration.ofMillis(geminiTimeoutMs));
+    }
 
-        String finalPrompt = "System: " + systemPrompt + "\n\nUser: " + currentUserMessage;
+    /**
+     * Same as above, with at most `budget` to answer (never more than gemini.timeout-ms).
+     * When Gemini is down, saturated or too slow, the fallback reply is returned right away.
+     * Prompts without conversation context may be answered by the GenerationCache (same prompt)
+     * or the SemanticReplyCache (similar prompt, same emotion).
+     */
+    public CompletableFuture<String> generateAiResponseAsync(String emotion, String contextHistory,
+                                                             String currentUserMessage, Duration budget) {
+        return withFallbackReply(generationCache.get(emotion, contextHistory, currentUserMessage,
+                () -> semanticReplyCache.get(emotion, contextHistory, currentUserMessage,
+                        () -> requestGeneration(buildPrompt(emotion, contextHistory, currentUserMessage), budget))));
+    }
 
-        // Structure data for Gemini JSON API
-        Map<String, Object> contents = Map.of(
-                "contents", Collections.singletonList(Map.of(
-                        "parts", Collections.singletonList(Map.of("text", finalPrompt))
-                ))
-        );
+    /**
+     * Turns a failed generation into the fallback sentence to show.
+     */
+    private CompletableFuture<String> withFallbackReply(CompletableFuture<String> generation) {
+        return generation.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof GenerationFailure failure) {
+                chatMetrics.fallback("gemini", failure.reason);
+                return failure.reply;
+            }
+            log.warn("GEMINI UNAVAILABLE: {}", e.getMessage());
+            chatMetrics.fallback("gemini", "unavailable");
+            return UNAVAILABLE_REPLY;
+        });
+    }
 
+    /**
+     * One Gemini generation. Fails (with the fallback reply to show) instead of completing
+     * with it, so that the GenerationCache never keeps an error sentence.
+     */
+    private CompletableFuture<String> requestGeneration(String finalPrompt, Duration budget) {
         try {
-            String jsonBody = objectMapper.writeValueAsString(contents);
-            String finalUrl = geminiApiUrl + "?key=" + geminiApiKey.trim();
+            return chatMetrics.observeAsync("gemini", () -> sendToGemini(finalPrompt, min(budget, Duration.ofMillis(geminiTimeoutMs))))
+                    .thenApply(response -> {
+                        if (response.statusCode() != 200) {
+                            log.warn("GEMINI ERROR: {} - {}", response.statusCode(), response.body());
+                            throw new GenerationFailure("status", UNAVAILABLE_REPLY);
+                        }
+                        try {
+                            return extractTextFromGeminiResponse(response.body());
+                        } catch (Exception e) {
+                            log.warn("GEMINI: unreadable answer ({})", e.getMessage());
+                            throw new GenerationFailure("parse", "Connection error.");
+                        }
+                    });
+
+        } catch (Exception e) {
+            log.error("GEMINI REQUEST FAILED", e);
+            return CompletableFuture.failedFuture(new GenerationFailure("error", "Connection error."));
+        }
+    }
 
-            HttpRequest request = HttpRequest.newBuilder()
+    /**
+     * Asks Gemini to fold older exchanges into the running summary of a conversation.
+     * Completes with the new summary, or exceptionally if Gemini could not produce one
+     * (the caller then keeps the previous summary).
+     */
+    public CompletableFuture<String> summarizeAsync(String previousSummary, String olderExchanges, int maxWords) {
+        String prompt = "System: You keep a short memory of a conversation between a user and Resilia Ai, " +
+                "a mental health companion. Update the summary with the new exchanges. " +
+                "Keep the user's feelings, important facts and open topics. " +
+                "Answer with the summary only, at most " + maxWords + " words, in English." +
+                "\n\nCurrent summary: " + (previousSummary == null || previousSummary.isBlank() ? "(none)" : previousSummary) +
+                "\n\nNew exchanges:\n" + olderExchanges;
+
+        try {
+            return sendToGemini(prompt, Duration.ofMillis(geminiTimeoutMs)).thenApply(response -> {
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("GEMINI ERROR: " + response.statusCode());
+                }
+                try {
+                    return extractTextFromGeminiResponse(response.body());
+                } catch (Exception e) {
+                    throw new IllegalStateException("Unreadable Gemini summary", e);
+                }
+            });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Sends a prompt through the Gemini BackendGuard.
+     * 5xx and 429 answers fail the future, so the circuit breaker counts them.
+     */
+    private CompletableFuture<HttpResponse<String>> sendToGemini(String prompt, Duration timeout) {
+        String jsonBody;
+        try {
+            jsonBody = buildGeminiBody(prompt);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String finalUrl = geminiApiUrl + "?key=" + geminiApiKey.trim();
+
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(finalUrl))
+                .timeout(timeout.isNegative() || timeout.isZero() ? Duration.ofMillis(1) : timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8));
+
+        return geminiGuard.call(() -> chatMetrics.observeExternalHttp("gemini", request,
+                        built -> httpClient.sendAsync(built, HttpResponse.BodyHandlers.ofString()))
+                .thenApply(response -> {
+                    chatMetrics.geminiStatus(response.statusCode());
+                    if (response.statusCode() >= 500 || response.statusCode() == 429) {
+                        throw new IllegalStateException("GEMINI ERROR: " + response.statusCode() + " - " + response.body());
+                    }
+                    return response;
+                }), timeout);
+    }
+
+    private static Duration remaining(long deadlineNanos) {
+        return Duration.ofNanos(deadlineNanos - System.nanoTime());
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * Streams Gemini's answer chunk by chunk (streamGenerateContent with Server-Sent Events).
+     * Each text fragment is handed to onChunk as soon as it arrives, and the returned
+     * future completes with the full assembled answer once the stream ends.
+     * The returned future never fails: errors are turned into a short fallback sentence,
+     * which is also passed to onChunk so the client always receives some text.
+     */
+    public CompletableFuture<String> streamAiResponse(String emotion, String contextHistory,
+                                                      String currentUserMessage, Consumer<String> onChunk) {
+
+        String finalPrompt = buildPrompt(emotion, contextHistory, currentUserMessage);
+
+        try {
+            String jsonBody = buildGeminiBody(finalPrompt);
+            String finalUrl = getGeminiStreamUrl() + "?alt=sse&key=" + geminiApiKey.trim();
+
+            HttpRequest.Builder request = HttpRequest.newBuilder()
                     .uri(URI.create(finalUrl))
+                    .timeout(Duration.ofMillis(geminiTimeoutMs)) // Until the response headers arrive
                     .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
-                    .build();
+                    .header("Accept", "text/event-stream")
+                    .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8));
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            GeminiStreamSubscriber subscriber = new GeminiStreamSubscriber(onChunk);
 
-            if (response.statusCode() != 200) {
-                System.err.println("GEMINI ERROR: " + response.statusCode() + " - " + response.body());
-                return "I am having trouble processing that right now.";
-            }
-
-            return extractTextFromGeminiResponse(response.body());
+            // The bulkhead slot is held for the whole stream.
+            return geminiGuard.call(() -> chatMetrics.observeExternalHttp("gemini", request, built -> httpClient.sendAsync(built,
+                                    HttpResponse.BodyHandlers.fromLineSubscriber(subscriber, GeminiStreamSubscriber::getText, null)))
+                            .thenApply(response -> {
+                                chatMetrics.geminiStatus(response.statusCode());
+                                if (response.statusCode() >= 500 || response.statusCode() == 429) {
+                                    throw new IllegalStateException("GEMINI STREAM ERROR: " + response.statusCode());
+                                }
+                                return response;
+                            }), Duration.ofMillis(streamTimeoutMs))
+                    .thenApply(response -> {
+                        if (response.statusCode() != 200) {
+                            log.warn("GEMINI STREAM ERROR: {}", response.statusCode());
+                            onChunk.accept(UNAVAILABLE_REPLY);
+                            return UNAVAILABLE_REPLY;
+                        }
+                        return response.body();
+                    })
+                    .exceptionally(e -> {
+                        log.warn("GEMINI STREAM UNAVAILABLE: {}", e.getMessage());
+                        chatMetrics.fallback("gemini_stream", "unavailable");
+                        onChunk.accept(UNAVAILABLE_REPLY);
+                        return UNAVAILABLE_REPLY;
+                    });
 
         } catch (Exception e) {
-            e.printStackTrace();
-            return "Connection error.";
+            log.error("GEMINI STREAM REQUEST FAILED", e);
+            onChunk.accept("Connection error.");
+            return CompletableFuture.completedFuture("Connection error.");
         }
     }
 
+    /**
+     * Constructs the prompt that guides the AI's behavior.
+     * A null emotion produces the provisional prompt used while the classifier is still running.
+     * contextHistory (summary + recent turns, see ConversationContextService) is added when present.
+     */
+    String buildPrompt(String emotion, String contextHistory, String currentUserMessage) {
+        String toneInstruction = emotion != null
+                ? "The user is feeling: " + emotion + ". Adjust your tone to match this emotion. "
+                : "Infer how the user is feeling from their message and adjust your tone to match. ";
+
+        String systemPrompt = "You are Resilia Ai, a compassionate mental health companion. " +
+                toneInstruction +
+                "Keep your answer short (max 3 sentences). Always answer in English.";
+
+        String context = contextHistory == null || contextHistory.isBlank()
+                ? ""
+                : "\n\nConversation so far:\n" + contextHistory;
+
+        return "System: " + systemPrompt + context + "\n\nUser: " + currentUserMessage;
+    }
+
+    /**
+     * Structure data for Gemini JSON API.
+     */
+    String buildGeminiBody(String finalPrompt) throws Exception {
+        Map<String, Object> contents = Map.of(
+                "contents", Collections.singletonList(Map.of(
+                        "parts", Collections.singletonList(Map.of("text", finalPrompt))
+                ))
+        );
+        return objectMapper.writeValueAsString(contents);
+    }
+
+    String getGeminiStreamUrl() {
+        if (geminiStreamUrl != null && !geminiStreamUrl.isBlank()) {
+            return geminiStreamUrl;
+        }
+        return geminiApiUrl.replace(":generateContent", ":streamGenerateContent");
+    }
+
     /**
      * Helper method to parse the complex JSON structure returned by Google Gemini
      * and extract just the text of the answer.
      */
-    private String extractTextFromGeminiResponse(String jsonResponse) throws Exception {
+    public String extractTextFromGeminiResponse(String jsonResponse) throws Exception {
+        return extractRawText(jsonResponse).trim();
+    }
+
+    /**
+     * Same as extractTextFromGeminiResponse(), without trimming.
+     * Streamed chunks must keep their leading/trailing spaces to be glued back together.
+     */
+    String extractRawText(String jsonResponse) throws Exception {
         Map<String, Object> result = objectMapper.readValue(jsonResponse, Map.class);
         List<Map<String, Object>> candidates = (List<Map<String, Object>>) result.get("candidates");
         if (candidates != null && !candidates.isEmpty()) {
@@ -120,10 +494,87 @@ public class AiService {
                 List<Map<String, Object>> parts = (List<Map<String, Object>>) content.get("parts");
                 if (parts != null && !parts.isEmpty()) {
                     String text = (String) parts.get(0).get("text");
-                    return text != null ? text.trim() : "";
+                    return text != null ? text : "";
                 }
             }
         }
         return "";
     }
+
+    /**
+     * Reads the Server-Sent Events stream from Gemini line by line.
+     * Every "data: {...}" line is one JSON chunk holding the next piece of the answer.
+     */
+    private class GeminiStreamSubscriber implements Flow.Subscriber<String> {
+        private final Consumer<String> onChunk;
+        private final StringBuilder fullText = new StringBuilder();
+
+        GeminiStreamSubscriber(Consumer<String> onChunk) {
+            this.onChunk = onChunk;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (!line.startsWith("data:")) {
+                return; // Blank separators and SSE comments
+            }
+            try {
+                String chunk = extractRawText(line.substring(5).trim());
+                if (!chunk.isEmpty()) {
+                    fullText.append(chunk);
+                    onChunk.accept(chunk);
+                }
+            } catch (Exception e) {
+                log.debug("GEMINI STREAM: skipping malformed chunk.");
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // Reported through the response future.
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        String getText() {
+            return fullText.toString().trim();
+        }
+    }
+
+    /**
+     * Gemini did not give a usable answer: reason is the chat.fallbacks tag, reply what the user sees.
+     */
+    private static class GenerationFailure extends RuntimeException {
+        private final String reason;
+        private final String reply;
+
+        GenerationFailure(String reason, String reply) {
+            super("Gemini fallback: " + reason, null, false, false);
+            this.reason = reason;
+            this.reply = reply;
+        }
+    }
+
+    /**
+     * Result of one chat turn: the detected emotion and Gemini's answer.
+     */
+    public static class AiReply {
+        private final String emotion;
+        private final String text;
+
+        public AiReply(String emotion, String text) {
+            this.emotion = emotion;
+            this.text = text;
+        }
+
+        public String getEmotion() { return emotion; }
+        public String getText() { return text; }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,275 @@
+package com.resilia.ai.model.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Protects the API from one slow or dead AI backend (Python classifier, Gemini).
+ *
+ * Every call goes through three checks:
+ * - Circuit breaker: after too many failures in the last calls, the backend is considered
+ *   down and calls fail immediately for openMs. Then one trial call is let through:
+ *   success closes the circuit, failure opens it again.
+ * - Bulkhead: at most maxConcurrent calls in flight; extra calls are rejected right away
+ *   instead of queuing behind a stalled backend.
+ * - Deadline: the call fails with a TimeoutException when it takes longer than its budget.
+ *
+ * Rejected calls fail with BackendUnavailableException; callers turn it into their fallback.
+ * Metrics (tag backend=name): ai.backend.circuit.state (0 closed, 1 open, 2 half-open),
+ * ai.backend.rejected (tag reason=circuit_open|bulkhead_full), ai.backend.timeouts,
+ * ai.backend.in_flight.
+ */
+public class BackendGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(BackendGuard.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final Semaphore bulkhead;
+    private final int maxConcurrent;
+    private final int failureRatePercent;
+    private final int minCalls;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    // Outcomes of the last calls (true = failure), used while the circuit is closed.
+    private final boolean[] window;
+    private int windowPosition;
+    private int windowCalls;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final Counter circuitRejections;
+    private final Counter bulkheadRejections;
+    private final Counter timeouts;
+
+    public BackendGuard(String name, int maxConcurrent, int windowSize, int minCalls,
+                        int failureRatePercent, long openMs, MeterRegistry meterRegistry) {
+        this(name, maxConcurrent, windowSize, minCalls, failureRatePercent, openMs, meterRegistry, System::nanoTime);
+    }
+
+    BackendGuard(String name, int maxConcurrent, int windowSize, int minCalls,
+                 int failureRatePercent, long openMs, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.window = new boolean[windowSize];
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRatePercent = failureRatePercent;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.clock = clock;
+
+        Gauge.builder("ai.backend.circuit.state", this, guard -> guard.getState().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .tag("backend", name)
+                .register(meterRegistry);
+        Gauge.builder("ai.backend.in_flight", bulkhead, permits -> this.maxConcurrent - permits.availablePermits())
+                .tag("backend", name)
+                .register(meterRegistry);
+        circuitRejections = meterRegistry.counter("ai.backend.rejected", "backend", name, "reason", "circuit_open");
+        bulkheadRejections = meterRegistry.counter("ai.backend.rejected", "backend", name, "reason", "bulkhead_full");
+        timeouts = meterRegistry.counter("ai.backend.timeouts", "backend", name);
+    }
+
+    /**
+     * Runs the call if the backend is allowed to receive it.
+     * The bulkhead slot is held until the call really completes (even after a timeout),
+     * so it always reflects the load actually sent to the backend.
+     */
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> call, Duration timeout) {
+        if (timeout.isZero() || timeout.isNegative()) {
+            timeouts.increment();
+            return CompletableFuture.failedFuture(new TimeoutException(name + ": no time left"));
+        }
+        try {
+            admit();
+        } catch (BackendUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, error) -> bulkhead.release());
+
+        return result
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((value, error) -> {
+                    if (unwrap(error) instanceof TimeoutException) {
+                        timeouts.increment();
+                    }
+                    onResult(error == null);
+                });
+    }
+
+    /**
+     * For calls that are not a CompletableFuture (Reactor Mono/Flux): takes a bulkhead slot
+     * now and returns a permit that must be released exactly once when the call ends.
+     * @throws BackendUnavailableException if the circuit is open or the bulkhead is full.
+     */
+    public Permit acquire() {
+        admit();
+        return new Permit();
+    }
+
+    private void admit() {
+        if (!tryAcquirePermission()) {
+            circuitRejections.increment();
+            throw new BackendUnavailableException(name + ": circuit open");
+        }
+        if (!bulkhead.tryAcquire()) {
+            releaseTrial();
+            bulkheadRejections.increment();
+            throw new BackendUnavailableException(name + ": too many concurrent calls");
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default: // HALF_OPEN: only one trial call at a time
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    private synchronized void releaseTrial() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    private synchronized void onResult(boolean success) {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            if (success) {
+                state = State.CLOSED;
+                resetWindow();
+            } else {
+                open();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return; // Late answer of a call started before the circuit opened.
+        }
+
+        if (windowCalls == window.length) {
+            if (window[windowPosition]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowPosition] = !success;
+        if (!success) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+
+        if (windowCalls >= minCalls && windowFailures * 100 >= failureRatePercent * windowCalls) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        resetWindow();
+        log.warn("CIRCUIT OPEN: {} is failing, calls are rejected for {} ms.", name, TimeUnit.NANOSECONDS.toMillis(openNanos));
+    }
+
+    private void resetWindow() {
+        windowPosition = 0;
+        windowCalls = 0;
+        windowFailures = 0;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * A bulkhead slot held by a call in progress (see acquire()).
+     */
+    public class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Ends the call: error is null on success. Calls after the first one are ignored.
+         */
+        public void release(Throwable error) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            bulkhead.release();
+            if (unwrap(error) instanceof TimeoutException) {
+                timeouts.increment();
+            }
+            onResult(error == null);
+        }
+
+        /**
+         * Ends a call its caller gave up on (client gone): frees the slot, but the call
+         * counts neither as a success nor as a failure.
+         */
+        public void abandon() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            bulkhead.release();
+            releaseTrial();
+        }
+    }
+
+    /**
+     * The call was not sent: the circuit is open or the bulkhead is full.
+     */
+    public static class BackendUnavailableException extends RuntimeException {
+        public BackendUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
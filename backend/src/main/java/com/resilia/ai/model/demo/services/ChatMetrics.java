@@ -0,0 +1,158 @@
+package com.resilia.ai.model.demo.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.RequestReplySenderContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Metrics of the chat pipeline, exposed on /actuator/prometheus.
+ *
+ * - chat.stage (timer + histogram, tag stage): time spent in each stage of a chat turn:
+ *   auth, user_lookup, conversation_load, context_build, emotion, gemini, persist, serialize.
+ *   Stages are Micrometer Observations, so the same calls also produce trace spans.
+ * - chat.fallbacks (tags stage, reason): answers replaced by a fallback.
+ * - chat.emotions (tag emotion): distribution of the detected emotion labels.
+ * - gemini.responses (tag status): HTTP status codes returned by Gemini.
+ * - ai.client.requests (tags backend, status): outbound calls to the AI backends.
+ *   Each call is a client span. Its trace context is sent in the request headers (W3C traceparent)
+ *   to the Python service only, so it can join the trace of the chat turn; Gemini never gets it.
+ */
+@Component
+public class ChatMetrics {
+
+    public static final String STAGE_OBSERVATION = "chat.stage";
+    public static final String CLIENT_OBSERVATION = "ai.client.requests";
+
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public ChatMetrics(ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs a blocking stage and records its duration (and error, if it throws).
+     */
+    public <T> T observe(String stage, Supplier<T> work) {
+        return stage(stage).observe(work);
+    }
+
+    public void observe(String stage, Runnable work) {
+        stage(stage).observe(work);
+    }
+
+    /**
+     * Records an asynchronous stage: from the call until the returned future completes.
+     */
+    public <T> CompletableFuture<T> observeAsync(String stage, Supplier<CompletableFuture<T>> work) {
+        Observation observation = stage(stage).start();
+        CompletableFuture<T> future;
+        try (Observation.Scope scope = observation.openScope()) {
+            future = work.get();
+        } catch (RuntimeException e) {
+            observation.error(e);
+            observation.stop();
+            throw e;
+        }
+        return future.whenComplete((value, error) -> {
+            if (error != null) {
+                observation.error(error);
+            }
+            observation.stop();
+        });
+    }
+
+    /**
+     * The stage (or request) being observed on this thread, or null.
+     * Used to parent work that continues on another thread.
+     */
+    public Observation currentObservation() {
+        return observationRegistry.getCurrentObservation();
+    }
+
+    /**
+     * Sends an HTTP request to an AI backend as a child span of parent (or of the current
+     * observation when parent is null). The trace headers are added to the request before it is built.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> observeHttp(String backend, Observation parent, HttpRequest.Builder request,
+                                                               Function<HttpRequest, CompletableFuture<HttpResponse<T>>> send) {
+        return observeHttp(backend, parent, request, true, send);
+    }
+
+    /**
+     * Same span as observeHttp(), but no trace headers: for third-party APIs (Gemini),
+     * which have no use for our trace IDs.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> observeExternalHttp(String backend, HttpRequest.Builder request,
+                                                                       Function<HttpRequest, CompletableFuture<HttpResponse<T>>> send) {
+        return observeHttp(backend, null, request, false, send);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> observeHttp(String backend, Observation parent, HttpRequest.Builder request,
+                                                                boolean propagate,
+                                                                Function<HttpRequest, CompletableFuture<HttpResponse<T>>> send) {
+        RequestReplySenderContext<HttpRequest.Builder, HttpResponse<T>> context = new RequestReplySenderContext<>(
+                (carrier, key, value) -> {
+                    if (propagate) {
+                        carrier.header(key, value);
+                    }
+                });
+        context.setCarrier(request);
+        context.setRemoteServiceName(backend);
+
+        Observation observation = Observation.createNotStarted(CLIENT_OBSERVATION, () -> context, observationRegistry)
+                .contextualName(backend + " request")
+                .lowCardinalityKeyValue("backend", backend)
+                .parentObservation(parent != null ? parent : currentObservation())
+                .start();
+
+        CompletableFuture<HttpResponse<T>> future;
+        try (Observation.Scope scope = observation.openScope()) {
+            future = send.apply(request.build());
+        } catch (RuntimeException e) {
+            observation.error(e);
+            observation.stop();
+            throw e;
+        }
+        return future.whenComplete((response, error) -> {
+            if (error != null) {
+                observation.error(error);
+            }
+            observation.lowCardinalityKeyValue("status", response != null ? String.valueOf(response.statusCode()) : "IO_ERROR");
+            context.setResponse(response);
+            observation.stop();
+        });
+    }
+
+    public void fallback(String stage, String reason) {
+        meterRegistry.counter("chat.fallbacks", "stage", stage, "reason", reason).increment();
+    }
+
+    public void emotion(String label) {
+        // Labels come from the model (a handful of values); anything odd is grouped.
+        String tag = label != null && label.matches("[A-Za-z_]{1,20}") ? label.toUpperCase(Locale.ROOT) : "OTHER";
+        meterRegistry.counter("chat.emotions", "emotion", tag).increment();
+    }
+
+    public void geminiStatus(int statusCode) {
+        meterRegistry.counter("gemini.responses", "status", String.valueOf(statusCode)).increment();
+    }
+
+    private Observation stage(String stage) {
+        return Observation.createNotStarted(STAGE_OBSERVATION, observationRegistry)
+                .contextualName("chat " + stage)
+                .lowCardinalityKeyValue("stage", stage);
+    }
+}
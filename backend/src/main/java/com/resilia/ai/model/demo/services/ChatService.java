@@ -1,25 +1,43 @@
 package com.resilia.ai.model.demo.services;
 
 import com.resilia.ai.model.demo.DTO.ChatResponse;
-import com.resilia.ai.model.demo.DTO.ChatDtos.ConversationHistoryDto;
+import com.resilia.ai.model.demo.DTO.ChatDtos.ConversationPage;
+import com.resilia.ai.model.demo.DTO.ChatDtos.ConversationSummaryDto;
+import com.resilia.ai.model.demo.DTO.ChatDtos.MessageDto;
+import com.resilia.ai.model.demo.DTO.ChatDtos.MessagePage;
 import com.resilia.ai.model.demo.DTO.ChatDtos.UserMessageRequest;
+import com.resilia.ai.model.demo.DTO.PageCursor;
 import com.resilia.ai.model.demo.entites.Conversation;
 import com.resilia.ai.model.demo.entites.Message;
 import com.resilia.ai.model.demo.entites.User;
 import com.resilia.ai.model.demo.repositories.ConversationRepository;
 import com.resilia.ai.model.demo.repositories.MessageRepository;
 import com.resilia.ai.model.demo.repositories.UserRepository;
+import com.resilia.ai.model.demo.security.AuthenticatedUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class ChatService {
 
+    private static final Logger log = LoggerFactory.getLogger(ChatService.class);
+
     @Autowired
     private ConversationRepository conversationRepository;
 
@@ -32,71 +50,218 @@ public class ChatService {
     @Autowired
     private AiService aiService;
 
+    @Autowired
+    private ChatTurnWriter chatTurnWriter;
+
+    @Autowired
+    private ConversationContextService conversationContextService;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    // Max lifetime (ms) of a streaming response before the connection is closed.
+    @Value("${chat.stream.timeout-ms:60000}")
+    private long streamTimeoutMs;
+
     // --- Process Incoming Message ---
+    /**
+     * Main Chat Logic (used by POST /api/chat/message):
+     * 1. Identifies the logged-in user.
+     * 2. Finds the existing conversation OR creates a new one.
+     * 3. Calls the AI Service: emotion analysis and Gemini run concurrently.
+     *    Gemini also receives the conversation context (summary + recent turns).
+     * 4. Hands the whole turn (user message + emotion + AI reply) to the ChatTurnWriter,
+     *    which saves it in one transaction (or queues it in write-behind mode).
+     */
     public ChatResponse processUserMessage(UserMessageRequest request) {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = getCurrentUser();
+        Conversation conversation = resolveConversation(request, user);
+
+        // AI failures are turned into a fallback reply, so the user's message is always saved.
+        Message userMsg = newUserMessage(conversation, request.getUserMessage());
+
+        // Call AI Service (classifier and Gemini in one pipeline)
+        String emotion = "NEUTRAL";
+        String aiResponseText;
+        try {
+            String context = buildContext(request, conversation);
+            AiService.AiReply reply = aiService.respond(context, request.getUserMessage()).join();
+            emotion = reply.getEmotion();
+            aiResponseText = reply.getText();
+        } catch (Exception e) {
+            log.error("CHAT PIPELINE FAILED (conversation {})", conversation.getId(), e);
+            chatMetrics.fallback("chat", "error");
+            aiResponseText = "I'm having trouble connecting right now, but I saved your message.";
+        }
+
+        completeTurn(conversation, userMsg, emotion, aiResponseText);
+
+        return new ChatResponse(aiResponseText, emotion, conversation.getId());
+    }
+
+    // --- Process Incoming Message (streaming) ---
+    /**
+     * Same flow as processUserMessage(), but Gemini's answer is pushed to the client
+     * as Server-Sent Events while it is being generated:
+     * - "token":   a piece of the answer text, sent as soon as Gemini produces it.
+     * - "emotion": the detected emotion, sent when the classifier answers.
+     * - "done":    the final ChatResponse, sent after both messages are saved.
+     * The turn is persisted once, when the stream is complete.
+     */
+    public SseEmitter streamUserMessage(UserMessageRequest request) {
+        User user = getCurrentUser();
+        Conversation conversation = resolveConversation(request, user);
+        Message userMsg = newUserMessage(conversation, request.getUserMessage());
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+
+        // The classifier runs alongside the stream, so it never delays the first token.
+        CompletableFuture<String> emotionFuture = aiService.analyzeEmotionWithDeadline(request.getUserMessage());
+        CompletableFuture<String> textFuture = aiService.streamAiResponse(
+                null, buildContext(request, conversation), request.getUserMessage(), chunk -> sendEvent(emitter, "token", chunk));
+
+        emotionFuture.thenAccept(emotion -> sendEvent(emitter, "emotion", emotion));
+
+        emotionFuture.thenCombine(textFuture, AiService.AiReply::new)
+                .whenComplete((reply, error) -> {
+                    String emotion = reply != null ? reply.getEmotion() : "NEUTRAL";
+                    String aiResponseText = reply != null ? reply.getText()
+                            : "I'm having trouble connecting right now, but I saved your message.";
+                    try {
+                        completeTurn(conversation, userMsg, emotion, aiResponseText);
+                        sendEvent(emitter, "done", new ChatResponse(aiResponseText, emotion, conversation.getId()));
+                        emitter.complete();
+                    } catch (Exception e) {
+                        emitter.completeWithError(e);
+                    }
+                });
+
+        return emitter;
+    }
+
+    // --- Retrieve History ---
+    /**
+     * One page of the current user's conversations for the sidebar, newest first.
+     * Built by a single indexed query over the denormalized columns of Conversation:
+     * no message is loaded. Pass the returned nextCursor to get the following page.
+     */
+    public ConversationPage getConversationPage(String cursor, int size) {
+        Long userId = getCurrentUserId();
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size);
+
+        List<ConversationSummaryDto> conversations = after == null
+                ? conversationRepository.findSummaries(userId, limit)
+                : conversationRepository.findSummariesBefore(userId, after.getTimestamp(), after.getId(), limit);
+
+        String nextCursor = null;
+        if (conversations.size() == size) {
+            ConversationSummaryDto last = conversations.get(conversations.size() - 1);
+            nextCursor = new PageCursor(last.getStartTime(), last.getId()).encode();
+        }
+        return new ConversationPage(conversations, nextCursor);
+    }
 
-        // Get or Create Conversation
-        Conversation conversation;
+    // --- Retrieve Messages ---
+    /**
+     * One page of a conversation, tail-first: the newest `size` messages before the
+     * `before` cursor (or the very last ones when no cursor is given), returned in
+     * chronological order. Each page is one indexed query, whatever the conversation length.
+     */
+    public MessagePage getMessagePage(Long conversationId, String before, int size) {
+        if (!conversationRepository.existsByIdAndUserId(conversationId, getCurrentUserId())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Conversation not found");
+        }
+
+        PageCursor cursor = PageCursor.decode(before);
+        Pageable limit = PageRequest.of(0, size);
+        List<MessageDto> newestFirst = cursor == null
+                ? messageRepository.findLatestMessages(conversationId, limit)
+                : messageRepository.findMessagesBefore(conversationId, cursor.getTimestamp(), cursor.getId(), limit);
+
+        String olderCursor = null;
+        if (newestFirst.size() == size) {
+            MessageDto oldest = newestFirst.get(newestFirst.size() - 1);
+            olderCursor = new PageCursor(oldest.getSentAt(), oldest.getId()).encode();
+        }
+
+        List<MessageDto> chronological = new ArrayList<>(newestFirst);
+        Collections.reverse(chronological);
+        return new MessagePage(chronological, olderCursor);
+    }
+
+    // --- Helpers ---
+
+    /**
+     * The logged-in user, as a lazy reference built from the ID carried by the JWT.
+     * No SELECT is issued: the reference is only used to link new rows to the user.
+     */
+    private User getCurrentUser() {
+        return chatMetrics.observe("user_lookup", () -> userRepository.getReferenceById(getCurrentUserId()));
+    }
+
+    Long getCurrentUserId() {
+        AuthenticatedUser principal = (AuthenticatedUser) SecurityContextHolder.getContext()
+                .getAuthentication().getPrincipal();
+        return principal.getId();
+    }
+
+    Conversation resolveConversation(UserMessageRequest request, User user) {
+        return chatMetrics.observe("conversation_load", () -> loadOrCreateConversation(request, user));
+    }
+
+    // Someone else's conversation is reported as missing, like getMessagePage() does.
+    private Conversation loadOrCreateConversation(UserMessageRequest request, User user) {
         if (request.getConversationId() != null) {
-            conversation = conversationRepository.findById(request.getConversationId())
-                    .orElseThrow(() -> new RuntimeException("Conversation not found"));
-        } else {
-            conversation = new Conversation();
-            conversation.setUser(user);
-            conversation.setStartTime(LocalDateTime.now());
-            conversation = conversationRepository.save(conversation);
+            return conversationRepository.findByIdAndUserId(request.getConversationId(), user.getId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Conversation not found"));
         }
+        Conversation conversation = new Conversation();
+        conversation.setUser(user);
+        conversation.setStartTime(LocalDateTime.now());
+        return conversationRepository.save(conversation);
+    }
+
+    // A new conversation has no history yet: skip the lookup.
+    String buildContext(UserMessageRequest request, Conversation conversation) {
+        return request.getConversationId() == null ? conversationContextService.startContext(conversation.getId())
+                : chatMetrics.observe("context_build", () -> conversationContextService.buildContext(conversation.getId()));
+    }
 
-        // Save User Message
+    Message newUserMessage(Conversation conversation, String content) {
         Message userMsg = new Message();
-        userMsg.setConversation(conversation);
-        userMsg.setContent(request.getUserMessage());
         userMsg.setSender("user");
+        userMsg.setContent(content);
         userMsg.setTimestamp(LocalDateTime.now());
-        messageRepository.save(userMsg);
+        userMsg.setConversation(conversation);
+        return userMsg;
+    }
 
-        // Call AI Service
-        String aiResponseText;
-        String emotion = "NEUTRAL";
-        try {
-            emotion = aiService.analyzeEmotion(request.getUserMessage());
-            aiResponseText = aiService.generateAiResponse(emotion, "", request.getUserMessage());
-        } catch (Exception e) {
-            e.printStackTrace();
-            aiResponseText = "I'm having trouble connecting right now, but I heard you.";
-        }
+    /**
+     * Sets the detected emotion on the user's message, builds the AI's reply
+     * and hands both to the persistence stage. ChatTurnWriter publishes the turn as an event
+     * (see ConversationContextService) once it is committed.
+     */
+    void completeTurn(Conversation conversation, Message userMsg, String emotion, String aiResponseText) {
+        userMsg.setEmotion(emotion);
 
-        // Save AI Message
         Message aiMsg = new Message();
-        aiMsg.setConversation(conversation);
-        aiMsg.setContent(aiResponseText);
         aiMsg.setSender("bot");
-        aiMsg.setTimestamp(LocalDateTime.now());
-        aiMsg.setEmotion(emotion);
-        messageRepository.save(aiMsg);
+        aiMsg.setContent(aiResponseText);
+        // Add a small delay (1 second) to ensure it appears *after* the user message in the list
+        aiMsg.setTimestamp(LocalDateTime.now().plusSeconds(1));
+        aiMsg.setConversation(conversation);
+        aiMsg.setEmotion(null); // The bot itself has no emotion
 
-        return new ChatResponse(aiResponseText, emotion, conversation.getId());
+        ChatTurn turn = new ChatTurn(conversation, userMsg, aiMsg);
+        chatTurnWriter.write(turn);
     }
 
-    // --- Retrieve History ---
-    public List<ConversationHistoryDto> getHistory() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(email).orElseThrow();
-
-        List<Conversation> conversations = conversationRepository.findByUserIdOrderByStartTimeDesc(user.getId());
-
-        List<ConversationHistoryDto> history = new ArrayList<>();
-        for (Conversation c : conversations) {
-            String title = "New Conversation";
-            if (!c.getMessages().isEmpty()) {
-                String firstMsg = c.getMessages().get(0).getContent();
-                title = firstMsg.length() > 20 ? firstMsg.substring(0, 20) + "..." : firstMsg;
-            }
-            history.add(new ConversationHistoryDto(c.getId(), title, c.getStartTime().toString(), "Unknown"));
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away: keep going so the turn is still saved.
         }
-        return history;
     }
 }
\ No newline at end of file
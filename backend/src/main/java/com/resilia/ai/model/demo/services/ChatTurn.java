@@ -0,0 +1,28 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.entites.Conversation;
+import com.resilia.ai.model.demo.entites.Message;
+
+/**
+ * One exchange of a conversation: the user's message (with its detected emotion)
+ * and the AI's reply. It is the unit written to the database by ChatTurnWriter.
+ */
+public class ChatTurn {
+
+    private final Conversation conversation;
+    private final Message userMessage;
+    private final Message botMessage;
+
+    public ChatTurn(Conversation conversation, Message userMessage, Message botMessage) {
+        this.conversation = conversation;
+        this.userMessage = userMessage;
+        this.botMessage = botMessage;
+    }
+
+    public Conversation getConversation() { return conversation; }
+    public Message getUserMessage() { return userMessage; }
+    public Message getBotMessage() { return botMessage; }
+
+    // The user is a lazy reference: reading its ID does not hit the database.
+    public Long getUserId() { return conversation.getUser().getId(); }
+}
@@ -0,0 +1,248 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.repositories.ConversationEmotionCountRepository;
+import com.resilia.ai.model.demo.repositories.ConversationRepository;
+import com.resilia.ai.model.demo.repositories.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistence stage of the chat pipeline.
+ *
+ * A turn (user message + bot reply + conversation summary + mood trend counters) is always written in
+ * ONE transaction. Message IDs come from a pooled sequence, so Hibernate sends the
+ * inserts as a single JDBC batch. Once committed, the messages are queued for the search index,
+ * the user's emotion is added to the in-memory EmotionTimeline, and the turn is published as an
+ * application event (ConversationContextService, DistressDetector): listeners only ever see
+ * turns that are in the database.
+ *
+ * Two durability modes (chat.persistence.mode):
+ * - "sync": the turn is committed before the HTTP response is returned.
+ * - "write-behind": the turn is queued and a background thread commits queued turns
+ *   together, grouping inserts across concurrent requests. At most
+ *   chat.persistence.queue-capacity turns can be lost on a crash; when the queue is full
+ *   the turn is written synchronously instead. The queue is flushed on shutdown.
+ */
+@Service
+public class ChatTurnWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatTurnWriter.class);
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private ConversationEmotionCountRepository conversationEmotionCountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private EmotionTrendService emotionTrendService;
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
+
+    @Autowired
+    private EmotionTimeline emotionTimeline;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${chat.persistence.mode:sync}")
+    private String mode;
+
+    @Value("${chat.persistence.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${chat.persistence.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${chat.persistence.max-batch:100}")
+    private int maxBatch;
+
+    // Characters of the first user message kept as the conversation preview.
+    private static final int PREVIEW_LENGTH = 100;
+
+    private TransactionTemplate transactionTemplate;
+    private BlockingQueue<ChatTurn> queue;
+    private Counter overflowCounter;
+    private volatile boolean running;
+    private Thread flusher;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        overflowCounter = meterRegistry.counter("chat.persistence.overflow");
+        meterRegistry.gaugeCollectionSize("chat.persistence.queued", List.of(), queue);
+
+        if (isWriteBehind()) {
+            running = true;
+            flusher = new Thread(this::flushLoop, "chat-turn-writer");
+            flusher.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // Whatever is still queued is written before the database goes away.
+        List<ChatTurn> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            persist(remaining);
+        }
+    }
+
+    /**
+     * Writes a turn, now ("sync") or soon ("write-behind").
+     */
+    public void write(ChatTurn turn) {
+        if (isWriteBehind() && running) {
+            if (queue.offer(turn)) {
+                return;
+            }
+            // Queue full: back-pressure by writing on the caller's thread.
+            overflowCounter.increment();
+        }
+        persist(List.of(turn));
+    }
+
+    private boolean isWriteBehind() {
+        return "write-behind".equalsIgnoreCase(mode);
+    }
+
+    private void flushLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                ChatTurn first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<ChatTurn> batch = new ArrayList<>();
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                persistWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * If a grouped batch fails, turns are retried one by one so a single bad row
+     * does not drop the others.
+     */
+    private void persistWithRetry(List<ChatTurn> batch) {
+        try {
+            persist(batch);
+        } catch (Exception batchError) {
+            for (ChatTurn turn : batch) {
+                try {
+                    persist(List.of(turn));
+                } catch (Exception e) {
+                    log.error("CHAT TURN LOST (conversation {})", turn.getConversation().getId(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts all messages of the given turns in one transaction (one JDBC batch),
+     * then refreshes the sidebar columns of each conversation involved
+     * and the user's mood trend counters. After the commit, the messages go to the search index
+     * and the emotion timeline, and each turn is published.
+     */
+    private void persist(List<ChatTurn> turns) {
+        chatMetrics.observe("persist", () -> transactionTemplate.executeWithoutResult(status -> {
+            List<Message> messages = new ArrayList<>(turns.size() * 2);
+            Map<Long, List<ChatTurn>> turnsByConversation = new LinkedHashMap<>();
+            for (ChatTurn turn : turns) {
+                messages.add(turn.getUserMessage());
+                messages.add(turn.getBotMessage());
+                turnsByConversation.computeIfAbsent(turn.getConversation().getId(), id -> new ArrayList<>()).add(turn);
+            }
+            messageRepository.saveAll(messages);
+            messageRepository.flush();
+
+            turnsByConversation.forEach((conversationId, conversationTurns) ->
+                    refreshConversationSummary(conversationId, conversationTurns));
+            emotionTrendService.record(turns);
+        }));
+        messageSearchIndex.indexLater(turns);
+        emotionTimeline.append(turns);
+        publish(turns);
+    }
+
+    /**
+     * A failing listener must not look like a failed write (the turns would be retried and
+     * inserted twice): its error is logged and the other turns are still published.
+     */
+    private void publish(List<ChatTurn> turns) {
+        for (ChatTurn turn : turns) {
+            try {
+                eventPublisher.publishEvent(turn);
+            } catch (Exception e) {
+                log.error("CHAT TURN LISTENER FAILED (conversation {})", turn.getConversation().getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Keeps the sidebar columns of Conversation (preview, count, dominant emotion) in sync
+     * with the messages just inserted. The dominant emotion comes from the per-conversation
+     * emotion counters, incremented by these turns only: the cost does not grow with the conversation.
+     */
+    private void refreshConversationSummary(Long conversationId, List<ChatTurn> turns) {
+        String userContent = turns.get(0).getUserMessage().getContent();
+        String preview = userContent != null && userContent.length() > PREVIEW_LENGTH
+                ? userContent.substring(0, PREVIEW_LENGTH)
+                : userContent;
+        conversationRepository.updateSummary(conversationId, turns.size() * 2, preview);
+
+        Map<String, Long> emotions = new TreeMap<>(); // Same order for every transaction (row locks)
+        for (ChatTurn turn : turns) {
+            if (turn.getUserMessage().getEmotion() != null) {
+                emotions.merge(turn.getUserMessage().getEmotion(), 1L, Long::sum);
+            }
+        }
+        emotions.forEach((emotion, added) -> {
+            conversationEmotionCountRepository.increment(conversationId, emotion, added);
+            conversationRepository.promoteDominantEmotion(conversationId, emotion);
+        });
+    }
+}
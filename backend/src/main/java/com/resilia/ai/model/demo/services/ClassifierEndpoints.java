@@ -0,0 +1,264 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.config.VirtualThreads;
+import com.resilia.ai.model.demo.services.BackendGuard.BackendUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbound client of the Python classifier, spread over one or more replicas (ia.service.urls).
+ *
+ * - One HttpClient for all classifier calls (single and batch), with its own executor,
+ *   a connect timeout and HTTP/1.1 keep-alive: connections to each replica are reused.
+ * - Least outstanding requests: each call goes to the healthy replica with the fewest calls
+ *   in flight (ties rotate), so a slow replica gets less traffic.
+ * - Pooling limit: at most maxOutstanding calls per replica, i.e. at most that many open
+ *   connections. When every replica is full, the call fails with BackendUnavailableException.
+ * - Health checks: GET healthPath on every replica every healthIntervalMs. A replica that
+ *   fails a check, refuses a connection or answers 5xx is skipped until a check succeeds.
+ *   If no replica is healthy, all of them are tried anyway (the BackendGuard circuit decides).
+ *
+ * Metrics (tag endpoint): ai.classifier.outstanding, ai.classifier.healthy (1/0),
+ * ai.classifier.ejections (replica marked down).
+ */
+public class ClassifierEndpoints {
+
+    private static final Logger log = LoggerFactory.getLogger(ClassifierEndpoints.class);
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final AtomicInteger rotation = new AtomicInteger();
+    private final int maxOutstanding;
+    private final String healthPath;
+    private final long healthIntervalMs;
+    private final Duration healthTimeout;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final ChatMetrics chatMetrics;
+
+    private ScheduledExecutorService healthChecker;
+
+    public ClassifierEndpoints(List<String> baseUrls, int maxOutstanding, int executorThreads, boolean virtualThreads,
+                               long connectTimeoutMs, String healthPath, long healthIntervalMs, long healthTimeoutMs,
+                               MeterRegistry meterRegistry, ChatMetrics chatMetrics) {
+        if (baseUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one classifier URL is required (ia.service.urls)");
+        }
+        this.maxOutstanding = maxOutstanding;
+        this.healthPath = healthPath;
+        this.healthIntervalMs = healthIntervalMs;
+        this.healthTimeout = Duration.ofMillis(healthTimeoutMs);
+        this.chatMetrics = chatMetrics;
+
+        if (virtualThreads && VirtualThreads.isSupported()) {
+            executor = VirtualThreads.newPerTaskExecutor("classifier-http");
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(executorThreads, runnable -> {
+                Thread thread = new Thread(runnable, "classifier-http-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        // HTTP/1.1: the Flask server does not speak h2c, and asking for it would add an upgrade
+        // attempt to every new connection.
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(executor)
+                .build();
+
+        for (String baseUrl : baseUrls) {
+            Endpoint endpoint = new Endpoint(baseUrl.trim().replaceAll("/+$", ""));
+            endpoints.add(endpoint);
+            Gauge.builder("ai.classifier.outstanding", endpoint.outstanding, AtomicInteger::get)
+                    .tag("endpoint", endpoint.baseUrl)
+                    .register(meterRegistry);
+            Gauge.builder("ai.classifier.healthy", endpoint, e -> e.healthy ? 1 : 0)
+                    .tag("endpoint", endpoint.baseUrl)
+                    .register(meterRegistry);
+            endpoint.ejections = meterRegistry.counter("ai.classifier.ejections", "endpoint", endpoint.baseUrl);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (healthIntervalMs <= 0) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "classifier-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, healthIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * POSTs a JSON body to path on the least busy replica, as a client span (backend tag)
+     * of parent. The replica's slot is held until the response is received.
+     */
+    public CompletableFuture<HttpResponse<String>> postJson(String backend, Observation parent, String path,
+                                                            String jsonBody, Duration timeout) {
+        Lease lease;
+        try {
+            lease = acquire();
+        } catch (BackendUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(lease.uri(path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8));
+        try {
+            return chatMetrics.observeHttp(backend, parent, request,
+                            built -> httpClient.sendAsync(built, HttpResponse.BodyHandlers.ofString()))
+                    .whenComplete((response, error) -> lease.release(response != null ? response.statusCode() : -1));
+        } catch (RuntimeException e) {
+            lease.release(-1);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Picks a replica for a call made with another HTTP client (the reactive pipeline).
+     * The lease must be released exactly once, when the call ends.
+     * @throws BackendUnavailableException if every replica already has maxOutstanding calls.
+     */
+    public Lease acquire() {
+        List<Endpoint> candidates = endpoints.stream().filter(endpoint -> endpoint.healthy).toList();
+        if (candidates.isEmpty()) {
+            candidates = endpoints;
+        }
+        int size = candidates.size();
+        int start = Math.floorMod(rotation.getAndIncrement(), size);
+        // A few attempts: another caller may take the last slot between the scan and the increment.
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Endpoint best = null;
+            int bestOutstanding = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                Endpoint endpoint = candidates.get((start + i) % size);
+                int outstanding = endpoint.outstanding.get();
+                if (outstanding < bestOutstanding && outstanding < maxOutstanding) {
+                    best = endpoint;
+                    bestOutstanding = outstanding;
+                }
+            }
+            if (best == null) {
+                break;
+            }
+            if (best.outstanding.compareAndSet(bestOutstanding, bestOutstanding + 1)) {
+                return new Lease(best);
+            }
+        }
+        throw new BackendUnavailableException("emotion: every classifier replica is busy");
+    }
+
+    public List<String> getBaseUrls() {
+        return endpoints.stream().map(endpoint -> endpoint.baseUrl).toList();
+    }
+
+    private void checkHealth() {
+        for (Endpoint endpoint : endpoints) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint.baseUrl + healthPath))
+                    .timeout(healthTimeout)
+                    .GET()
+                    .build();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (response != null && response.statusCode() == 200) {
+                            endpoint.markUp();
+                        } else {
+                            endpoint.markDown(error != null ? error.getMessage() : "health " + response.statusCode());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * One call in flight on one replica.
+     */
+    public final class Lease {
+        private final Endpoint endpoint;
+        private boolean released;
+
+        private Lease(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public URI uri(String path) {
+            return URI.create(endpoint.baseUrl + path);
+        }
+
+        /**
+         * @param statusCode HTTP status of the answer, -1 when the call failed without one,
+         *                   0 when the caller cancelled it. A failure or a 5xx takes the
+         *                   replica out of rotation until its next successful health check.
+         */
+        public synchronized void release(int statusCode) {
+            if (released) {
+                return;
+            }
+            released = true;
+            endpoint.outstanding.decrementAndGet();
+            if (statusCode < 0 || statusCode >= 500) {
+                endpoint.markDown(statusCode < 0 ? "no response" : "HTTP " + statusCode);
+            }
+        }
+    }
+
+    private static class Endpoint {
+        private final String baseUrl;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile boolean healthy = true;
+        private Counter ejections;
+
+        Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        void markUp() {
+            if (!healthy) {
+                healthy = true;
+                log.info("Classifier replica up: {}", baseUrl);
+            }
+        }
+
+        void markDown(String reason) {
+            if (healthy) {
+                healthy = false;
+                ejections.increment();
+                log.warn("CLASSIFIER REPLICA DOWN: {} ({})", baseUrl, reason);
+            }
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.resilia.ai.model.demo.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.resilia.ai.model.demo.DTO.ChatDtos.MessageDto;
+import com.resilia.ai.model.demo.entites.ConversationContext;
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.repositories.ConversationContextRepository;
+import com.resilia.ai.model.demo.repositories.MessageRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds the "Conversation so far" part of the Gemini prompt.
+ *
+ * For each conversation we keep:
+ * - a rolling window of the last chat.context.window-turns turns, word for word;
+ * - a summary of everything older, updated incrementally: when turns leave the window,
+ *   Gemini folds them into the previous summary (in the background, after the reply was sent).
+ *
+ * The state lives in memory (bounded cache, idle conversations are evicted) and the summary
+ * is persisted in ConversationContext. Rebuilding the state after eviction costs one row
+ * plus one page of the latest messages, never the whole conversation.
+ * Each message is cut to chat.context.max-message-chars, so the prompt size stays bounded.
+ * When summaries keep failing (Gemini down), the turns waiting to be folded are capped to one
+ * window: the oldest are dropped, so the prompt holds at most two windows plus the summary.
+ */
+@Service
+public class ConversationContextService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationContextService.class);
+
+    @Autowired
+    private ConversationContextRepository contextRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private AiService aiService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.context.window-turns:6}")
+    private int windowTurns;
+
+    @Value("${chat.context.max-message-chars:500}")
+    private int maxMessageChars;
+
+    @Value("${chat.context.summary-max-words:120}")
+    private int summaryMaxWords;
+
+    @Value("${chat.context.cache-size:10000}")
+    private long cacheSize;
+
+    @Value("${chat.context.cache-idle-minutes:30}")
+    private long cacheIdleMinutes;
+
+    private Cache<Long, ContextState> states;
+    private DistributionSummary contextTokens;
+    private ExecutorService summaryWriter;
+
+    @PostConstruct
+    public void init() {
+        states = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterAccess(Duration.ofMinutes(cacheIdleMinutes))
+                .build();
+        contextTokens = DistributionSummary.builder("chat.context.tokens")
+                .description("Estimated tokens of conversation context added to the prompt")
+                .register(meterRegistry);
+        summaryWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "context-summary-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        summaryWriter.shutdown();
+    }
+
+    /**
+     * Returns the context to add to the next prompt of this conversation ("" if none).
+     */
+    public String buildContext(Long conversationId) {
+        if (conversationId == null) {
+            return "";
+        }
+        ContextState state = states.getIfPresent(conversationId);
+        if (state == null) {
+            // Loaded outside of the cache's compute lock: a virtual thread blocked on JDBC
+            // inside it would pin its carrier thread.
+            ContextState loaded = loadState(conversationId);
+            ContextState raced = states.asMap().putIfAbsent(conversationId, loaded);
+            state = raced != null ? raced : loaded;
+        }
+        String context;
+        synchronized (state) {
+            context = state.render();
+        }
+        contextTokens.record(context.length() / 4.0); // ~4 characters per token
+        return context;
+    }
+
+    /**
+     * Starts the (empty) context of a conversation that was just created.
+     */
+    public String startContext(Long conversationId) {
+        states.asMap().putIfAbsent(conversationId, new ContextState(null, null));
+        return "";
+    }
+
+    /**
+     * Called after every chat turn: adds the turn to the window and, when turns
+     * leave the window, starts folding them into the summary.
+     * Only the cached state decides: a conversation that is not in memory is rebuilt from
+     * the DB when next needed, and a turn the rebuild already read from the DB is skipped.
+     */
+    @EventListener
+    public void onChatTurn(ChatTurn turn) {
+        Long conversationId = turn.getConversation().getId();
+        ContextState state = states.getIfPresent(conversationId);
+        if (state == null) {
+            return;
+        }
+
+        List<ContextLine> toSummarize;
+        String previousSummary;
+        synchronized (state) {
+            if (state.loadedUntil != null && !turn.getBotMessage().getTimestamp().isAfter(state.loadedUntil)) {
+                return;
+            }
+            state.append(toLine(turn.getUserMessage()));
+            state.append(toLine(turn.getBotMessage()));
+            while (state.recent.size() > windowTurns * 2) {
+                state.pendingFold.add(state.recent.pollFirst());
+            }
+            if (state.pendingFold.isEmpty() || state.summarizing) {
+                return;
+            }
+            state.summarizing = true;
+            toSummarize = new ArrayList<>(state.pendingFold);
+            state.folding = toSummarize;
+            state.pendingFold.clear();
+            previousSummary = state.summary;
+        }
+
+        ContextState target = state;
+        aiService.summarizeAsync(previousSummary, render(toSummarize), summaryMaxWords)
+                .whenComplete((summary, error) ->
+                        summaryWriter.execute(() -> applySummary(conversationId, target, toSummarize, summary, error)));
+    }
+
+    private void applySummary(Long conversationId, ContextState state, List<ContextLine> folded,
+                              String summary, Throwable error) {
+        ConversationContext row;
+        synchronized (state) {
+            state.summarizing = false;
+            state.folding = List.of();
+            if (error != null || summary == null || summary.isBlank()) {
+                // Keep the turns and try again after the next turn, but never more than one window.
+                state.pendingFold.addAll(0, folded);
+                int excess = state.pendingFold.size() - windowTurns * 2;
+                if (excess > 0) {
+                    state.pendingFold.subList(0, excess).clear();
+                    log.warn("CONTEXT SUMMARY FAILED (conversation {}): {} old messages left out of the context",
+                            conversationId, excess);
+                }
+                return;
+            }
+            state.summary = summary;
+            state.summarizedUntil = folded.get(folded.size() - 1).timestamp;
+            row = new ConversationContext(conversationId, state.summary, state.summarizedUntil);
+        }
+        try {
+            contextRepository.save(row);
+        } catch (Exception e) {
+            log.warn("CONTEXT SUMMARY NOT SAVED (conversation {}): {}", conversationId, e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the state of a conversation: the persisted summary + the latest messages
+     * that are not in the summary yet (one page of windowTurns * 4 messages: the most a live
+     * state keeps unsummarized, one window waiting to be folded + one window).
+     * Older messages that never made it into the summary (summaries failing when the state
+     * was evicted) are left out, as the live state would have dropped them.
+     */
+    private ContextState loadState(Long conversationId) {
+        ConversationContext saved = contextRepository.findById(conversationId).orElse(null);
+        ContextState state = saved == null
+                ? new ContextState(null, null)
+                : new ContextState(saved.getSummary(), saved.getSummarizedUntil());
+
+        List<MessageDto> newestFirst = messageRepository.findLatestMessages(
+                conversationId, PageRequest.of(0, windowTurns * 4));
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            MessageDto message = newestFirst.get(i);
+            if (state.summarizedUntil == null || message.getSentAt().isAfter(state.summarizedUntil)) {
+                state.append(new ContextLine(message.getSender(), truncate(message.getContent()), message.getSentAt()));
+            }
+        }
+        if (!newestFirst.isEmpty()) {
+            state.loadedUntil = newestFirst.get(0).getSentAt();
+        }
+        while (state.recent.size() > windowTurns * 2) {
+            state.pendingFold.add(state.recent.pollFirst());
+        }
+        return state;
+    }
+
+    private ContextLine toLine(Message message) {
+        return new ContextLine(message.getSender(), truncate(message.getContent()), message.getTimestamp());
+    }
+
+    private String truncate(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.length() > maxMessageChars ? text.substring(0, maxMessageChars) + "..." : text;
+    }
+
+    private static String render(List<ContextLine> lines) {
+        StringBuilder text = new StringBuilder();
+        for (ContextLine line : lines) {
+            text.append("user".equals(line.sender) ? "User: " : "Resilia: ").append(line.text).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * In-memory context of one conversation. Guarded by its own monitor.
+     */
+    private static class ContextState {
+        private String summary;
+        private LocalDateTime summarizedUntil;
+        private final Deque<ContextLine> recent = new ArrayDeque<>();
+        private final List<ContextLine> pendingFold = new ArrayList<>();
+        private boolean summarizing;
+        // Turns being summarized right now (taken from pendingFold)
+        private List<ContextLine> folding = List.of();
+        // Newest message read from the DB when the state was rebuilt
+        private LocalDateTime loadedUntil;
+
+        ContextState(String summary, LocalDateTime summarizedUntil) {
+            this.summary = summary;
+            this.summarizedUntil = summarizedUntil;
+        }
+
+        void append(ContextLine line) {
+            recent.addLast(line);
+        }
+
+        String render() {
+            StringBuilder text = new StringBuilder();
+            if (summary != null && !summary.isBlank()) {
+                text.append("Summary of earlier messages: ").append(summary).append('\n');
+            }
+            // Turns waiting to be summarized are still sent as-is, so nothing is forgotten meanwhile.
+            List<ContextLine> lines = new ArrayList<>(folding);
+            lines.addAll(pendingFold);
+            lines.addAll(recent);
+            text.append(ConversationContextService.render(lines));
+            return text.toString().trim();
+        }
+    }
+
+    private static class ContextLine {
+        private final String sender;
+        private final String text;
+        private final LocalDateTime timestamp;
+
+        ContextLine(String sender, String text, LocalDateTime timestamp) {
+            this.sender = sender;
+            this.text = text;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.repositories.ConversationEmotionCountRepository;
+import com.resilia.ai.model.demo.repositories.ConversationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills Conversation.preview / messageCount / dominantEmotion at startup for conversations
+ * created before these columns existed, and the per-conversation emotion counters
+ * (ConversationEmotionCount) on the first start after they were added (nothing once the table
+ * has rows). New conversations are kept up to date by ChatTurnWriter, so after the first run
+ * this only touches conversations that have no messages yet.
+ *
+ * Runs once all beans are created, before the web server starts: no chat turn can upsert a
+ * counter while the counters are being filled.
+ */
+@Component
+public class ConversationSummaryBackfill implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationSummaryBackfill.class);
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private ConversationEmotionCountRepository conversationEmotionCountRepository;
+
+    @Value("${chat.conversations.backfill-on-startup:true}")
+    private boolean enabled;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        int updated = conversationRepository.backfillSummaries();
+        if (updated > 0) {
+            log.info("Conversation summaries backfilled: {}", updated);
+        }
+        int counters = conversationEmotionCountRepository.backfill();
+        if (counters > 0) {
+            log.info("Conversation emotion counters backfilled: {}", counters);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.resilia.ai.model.demo.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.entites.User;
+import com.resilia.ai.model.demo.repositories.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the emotion of every user message for a run of high-risk emotions (distress.high-risk-emotions)
+ * and raises a DistressEscalation to the DistressSink beans.
+ *
+ * Per user, in memory:
+ * - a score per emotion, +1 per message and halved every distress.half-life-minutes;
+ * - the times of the latest high-risk messages (a small ring), for the sliding window.
+ *
+ * An escalation is raised when the user sent at least distress.min-turns high-risk messages in the
+ * last distress.window-minutes AND high-risk emotions hold at least distress.min-share of the decayed
+ * scores (a user alternating with happier messages is not flagged). Then nothing more for this user
+ * during distress.cooldown-minutes. Times are those of the messages, not of the clock.
+ *
+ * Runs on the ChatTurn event, published by ChatTurnWriter once the turn is committed, for every
+ * chat endpoint. On the publishing thread this is one map lookup and a few arithmetic operations
+ * under the user's own monitor: the emergency contact lookup and the sinks run on the
+ * "distress-dispatcher" thread, behind a bounded queue (escalations beyond
+ * distress.queue-capacity are dropped and counted).
+ *
+ * States live in a bounded cache (distress.max-users, about 300 bytes each); users idle for
+ * distress.idle-minutes are evicted and start again from zero.
+ *
+ * Metrics: distress.escalations, distress.dropped, distress.users.
+ */
+@Service
+public class DistressDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(DistressDetector.class);
+
+    private static final String OTHER = "OTHER";
+
+    private final List<DistressSink> sinks;
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final String[] labels;
+    private final boolean[] highRisk;
+    private final Map<String, Integer> labelIndex = new HashMap<>();
+    private final long windowSeconds;
+    private final int minTurns;
+    private final double minShare;
+    private final double decayPerSecond;
+    private final long cooldownSeconds;
+    private final int ringSize;
+
+    private final Cache<Long, DistressState> states;
+    private final ThreadPoolExecutor dispatcher;
+    private final Counter escalations;
+    private final Counter dropped;
+
+    @Autowired
+    public DistressDetector(List<DistressSink> sinks, UserRepository userRepository,
+                            @Value("${distress.enabled:true}") boolean enabled,
+                            @Value("${trends.timeline.labels:SADNESS,JOY,LOVE,ANGER,FEAR,SURPRISE,NEUTRAL}") String[] knownLabels,
+                            @Value("${distress.high-risk-emotions:SADNESS,FEAR,ANGER}") String[] highRiskLabels,
+                            @Value("${distress.window-minutes:30}") int windowMinutes,
+                            @Value("${distress.min-turns:3}") int minTurns,
+                            @Value("${distress.min-share:0.7}") double minShare,
+                            @Value("${distress.half-life-minutes:20}") int halfLifeMinutes,
+                            @Value("${distress.cooldown-minutes:120}") int cooldownMinutes,
+                            @Value("${distress.max-users:50000}") long maxUsers,
+                            @Value("${distress.idle-minutes:120}") int idleMinutes,
+                            @Value("${distress.queue-capacity:1000}") int queueCapacity,
+                            MeterRegistry meterRegistry) {
+        this.sinks = sinks;
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.windowSeconds = windowMinutes * 60L;
+        this.minTurns = Math.max(1, minTurns);
+        this.minShare = minShare;
+        this.decayPerSecond = Math.log(2) / (halfLifeMinutes * 60.0);
+        this.cooldownSeconds = cooldownMinutes * 60L;
+        this.ringSize = Math.max(2 * this.minTurns, 8);
+
+        List<String> names = new ArrayList<>();
+        for (String label : knownLabels) {
+            addLabel(names, label);
+        }
+        for (String label : highRiskLabels) {
+            addLabel(names, label);
+        }
+        addLabel(names, OTHER); // any label the classifier adds later
+        this.labels = names.toArray(new String[0]);
+        this.highRisk = new boolean[labels.length];
+        for (String label : highRiskLabels) {
+            highRisk[labelIndex.get(normalize(label))] = true;
+        }
+
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "distress-dispatcher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.escalations = meterRegistry.counter("distress.escalations");
+        this.dropped = meterRegistry.counter("distress.dropped");
+        meterRegistry.gauge("distress.users", states, Cache::estimatedSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Called after every chat turn with the emotion detected in the user's message.
+     */
+    @EventListener
+    public void onChatTurn(ChatTurn turn) {
+        Message message = turn.getUserMessage();
+        if (!enabled || message.getEmotion() == null || message.getTimestamp() == null) {
+            return;
+        }
+        int emotion = labelIndex.getOrDefault(normalize(message.getEmotion()), labels.length - 1);
+        long second = message.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+
+        DistressState state = states.get(turn.getUserId(), id -> new DistressState(labels.length, ringSize));
+        DistressEscalation escalation;
+        synchronized (state) {
+            escalation = update(state, emotion, second, turn);
+        }
+        if (escalation != null) {
+            dispatch(escalation);
+        }
+    }
+
+    /**
+     * Adds one message to the user's state; returns the escalation to raise, or null.
+     */
+    private DistressEscalation update(DistressState state, int emotion, long second, ChatTurn turn) {
+        if (second >= state.lastSecond) {
+            double factor = Math.exp(-decayPerSecond * (second - state.lastSecond));
+            for (int i = 0; i < state.scores.length; i++) {
+                state.scores[i] *= factor;
+            }
+            state.lastSecond = second;
+            state.scores[emotion] += 1;
+        } else {
+            // Two requests of the same user at once: the older message counts already decayed.
+            state.scores[emotion] += Math.exp(-decayPerSecond * (state.lastSecond - second));
+        }
+        if (!highRisk[emotion]) {
+            return null;
+        }
+        state.highRiskSeconds[state.next] = second;
+        state.next = (state.next + 1) % ringSize;
+
+        int recent = 0;
+        for (long highRiskSecond : state.highRiskSeconds) {
+            if (highRiskSecond > state.lastSecond - windowSeconds) {
+                recent++;
+            }
+        }
+        if (recent < minTurns || second - state.lastEscalation < cooldownSeconds) {
+            return null;
+        }
+
+        double total = 0;
+        double risk = 0;
+        int dominant = emotion;
+        for (int i = 0; i < state.scores.length; i++) {
+            total += state.scores[i];
+            if (highRisk[i]) {
+                risk += state.scores[i];
+                if (state.scores[i] > state.scores[dominant]) {
+                    dominant = i;
+                }
+            }
+        }
+        double share = risk / total;
+        if (share < minShare) {
+            return null;
+        }
+        state.lastEscalation = second;
+        return new DistressEscalation(turn.getUserId(), turn.getConversation().getId(), labels[dominant],
+                recent, share, turn.getUserMessage().getTimestamp(), null);
+    }
+
+    private void dispatch(DistressEscalation escalation) {
+        escalations.increment();
+        try {
+            dispatcher.execute(() -> deliver(escalation));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            log.error("DISTRESS ESCALATION DROPPED (user {}): dispatcher queue full", escalation.getUserId());
+        }
+    }
+
+    private void deliver(DistressEscalation escalation) {
+        String contact = null;
+        try {
+            contact = userRepository.findById(escalation.getUserId()).map(User::getEmergencyContact).orElse(null);
+        } catch (Exception e) {
+            log.warn("DISTRESS CONTACT LOOKUP FAILED (user {}): {}", escalation.getUserId(), e.getMessage());
+        }
+        DistressEscalation withContact = escalation.withEmergencyContact(contact);
+        for (DistressSink sink : sinks) {
+            try {
+                sink.publish(withContact);
+            } catch (Exception e) {
+                log.error("DISTRESS SINK FAILED ({})", sink.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private void addLabel(List<String> names, String label) {
+        String name = normalize(label);
+        if (!name.isEmpty() && !labelIndex.containsKey(name)) {
+            labelIndex.put(name, names.size());
+            names.add(name);
+        }
+    }
+
+    private static String normalize(String label) {
+        return label.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Sliding state of one user. Guarded by its own monitor.
+     */
+    private static class DistressState {
+        private final double[] scores;
+        private final long[] highRiskSeconds;
+        private int next;
+        private long lastSecond = Long.MIN_VALUE / 2;
+        private long lastEscalation = Long.MIN_VALUE / 2;
+
+        DistressState(int labelCount, int ringSize) {
+            this.scores = new double[labelCount];
+            this.highRiskSeconds = new long[ringSize];
+            Arrays.fill(highRiskSeconds, Long.MIN_VALUE / 2);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.resilia.ai.model.demo.services;
+
+import java.time.LocalDateTime;
+
+/**
+ * A run of high-risk emotions detected for one user by DistressDetector.
+ *
+ * - highRiskTurns: messages with a high-risk emotion in the last distress.window-minutes.
+ * - highRiskShare: share of the high-risk emotions in the user's decayed emotion scores (0..1).
+ * - emergencyContact: User.emergencyContact, null when the user did not fill it in.
+ */
+public class DistressEscalation {
+
+    private final Long userId;
+    private final Long conversationId;
+    private final String dominantEmotion;
+    private final int highRiskTurns;
+    private final double highRiskShare;
+    private final LocalDateTime detectedAt;
+    private final String emergencyContact;
+
+    public DistressEscalation(Long userId, Long conversationId, String dominantEmotion, int highRiskTurns,
+                              double highRiskShare, LocalDateTime detectedAt, String emergencyContact) {
+        this.userId = userId;
+        this.conversationId = conversationId;
+        this.dominantEmotion = dominantEmotion;
+        this.highRiskTurns = highRiskTurns;
+        this.highRiskShare = highRiskShare;
+        this.detectedAt = detectedAt;
+        this.emergencyContact = emergencyContact;
+    }
+
+    DistressEscalation withEmergencyContact(String contact) {
+        return new DistressEscalation(userId, conversationId, dominantEmotion, highRiskTurns, highRiskShare, detectedAt, contact);
+    }
+
+    public Long getUserId() { return userId; }
+    public Long getConversationId() { return conversationId; }
+    public String getDominantEmotion() { return dominantEmotion; }
+    public int getHighRiskTurns() { return highRiskTurns; }
+    public double getHighRiskShare() { return highRiskShare; }
+    public LocalDateTime getDetectedAt() { return detectedAt; }
+    public String getEmergencyContact() { return emergencyContact; }
+}
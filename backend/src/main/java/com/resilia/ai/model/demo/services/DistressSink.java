@@ -0,0 +1,13 @@
+package com.resilia.ai.model.demo.services;
+
+/**
+ * Receives the escalations raised by DistressDetector. Every DistressSink bean is called,
+ * in turn, on the "distress-dispatcher" thread (never on a chat request thread), so an
+ * implementation may block (send a mail or an SMS to the emergency contact, call a webhook...).
+ *
+ * LoggingDistressSink is the default one.
+ */
+public interface DistressSink {
+
+    void publish(DistressEscalation escalation);
+}
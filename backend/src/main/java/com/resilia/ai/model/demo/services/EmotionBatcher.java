@@ -0,0 +1,214 @@
+package com.resilia.ai.model.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups concurrent emotion requests into a single call to the EmotionClassifier
+ * (Python /analyze_batch, or one batched ONNX inference).
+ *
+ * Callers get a future right away. A background thread waits for the first message, then keeps
+ * collecting for at most maxWaitMs or until maxBatchSize messages are queued, sends them in one
+ * classifier call, and completes each caller's future with its own label. When the call fails,
+ * every future of the batch fails with its error (AiService then answers with chat.emotion.fallback).
+ *
+ * The batch call goes through the emotion BackendGuard, once per batch: a failed batch of N messages
+ * is one failure for the circuit breaker, not N, and takes one bulkhead slot. When the circuit is
+ * open the batch fails right away without reaching the classifier. Callers only add their deadline.
+ *
+ * Knobs (application.properties):
+ * - ia.batch.max-size: bigger batches = better model throughput.
+ * - ia.batch.max-wait-ms: how long the first message of a batch may wait (added latency).
+ * - ia.batch.max-in-flight: how many batches may be classified at the same time.
+ *
+ * A batch carries the trace context of its first message only (one call, one traceparent).
+ */
+@Component
+public class EmotionBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmotionBatcher.class);
+
+    private final BlockingQueue<PendingEmotion> queue = new LinkedBlockingQueue<>();
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitMs;
+    private final Semaphore inFlightBatches;
+    private final Duration batchTimeout;
+
+    private final DistributionSummary batchSizes;
+    private final Timer batchLatency;
+    private final Counter batchFailures;
+    private final ChatMetrics chatMetrics;
+    private final EmotionClassifier emotionClassifier;
+    private final BackendGuard emotionGuard;
+
+    private Thread dispatcher;
+
+    @Autowired
+    public EmotionBatcher(@Value("${ia.batch.enabled:false}") boolean enabled,
+                          @Value("${ia.batch.max-size:16}") int maxBatchSize,
+                          @Value("${ia.batch.max-wait-ms:5}") long maxWaitMs,
+                          @Value("${ia.batch.max-in-flight:4}") int maxInFlight,
+                          @Value("${ia.service.timeout-ms:2000}") long timeoutMs,
+                          MeterRegistry meterRegistry,
+                          ChatMetrics chatMetrics,
+                          EmotionClassifier emotionClassifier,
+                          @Qualifier("emotionGuard") BackendGuard emotionGuard) {
+        this.enabled = enabled;
+        this.chatMetrics = chatMetrics;
+        this.emotionClassifier = emotionClassifier;
+        this.emotionGuard = emotionGuard;
+        this.batchTimeout = Duration.ofMillis(timeoutMs);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitMs = maxWaitMs;
+        this.inFlightBatches = new Semaphore(maxInFlight);
+
+        this.batchSizes = DistributionSummary.builder("emotion.batch.size")
+                .description("Number of messages sent in one classifier batch call")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchLatency = Timer.builder("emotion.batch.latency")
+                .description("Round trip time of one classifier batch call")
+                .register(meterRegistry);
+        this.batchFailures = Counter.builder("emotion.batch.failures")
+                .description("Batches that failed (callers get the fallback emotion)")
+                .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("emotion.batch.queued", List.of(), queue);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        dispatcher = new Thread(this::dispatchLoop, "emotion-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        // Release anyone still waiting: the chat pipeline answers with the fallback emotion.
+        List<PendingEmotion> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        IllegalStateException stopped = new IllegalStateException("Emotion batcher stopped");
+        leftovers.forEach(pending -> pending.result.completeExceptionally(stopped));
+    }
+
+    /**
+     * Queues one message for classification.
+     * The future completes with the raw label returned by the model (null if unknown),
+     * or fails with the error of the batch call.
+     */
+    public CompletableFuture<String> submit(String message) {
+        return submit(message, chatMetrics.currentObservation());
+    }
+
+    /**
+     * Same as submit(message), with the observation (trace) the classifier call belongs to.
+     */
+    public CompletableFuture<String> submit(String message, Observation parent) {
+        PendingEmotion pending = new PendingEmotion(message, parent);
+        queue.add(pending);
+        return pending.result;
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                // 1. Wait for the first message of the next batch.
+                List<PendingEmotion> batch = new ArrayList<>(maxBatchSize);
+                batch.add(queue.take());
+
+                // 2. Keep collecting until the batch is full or the wait window is over.
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingEmotion next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                // 3. Send it, without waiting for the answer.
+                inFlightBatches.acquire();
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void sendBatch(List<PendingEmotion> batch) {
+        batchSizes.record(batch.size());
+        Timer.Sample sample = Timer.start();
+        List<String> messages = batch.stream().map(pending -> pending.message).toList();
+        CompletableFuture<List<String>> emotions = emotionGuard.call(
+                () -> emotionClassifier.classifyBatch(messages, batch.get(0).parent), batchTimeout);
+        emotions.whenComplete((labels, error) -> {
+            inFlightBatches.release();
+            sample.stop(batchLatency);
+            if (error != null) {
+                failBatch(batch, error);
+            } else {
+                completeBatch(batch, labels);
+            }
+        });
+    }
+
+    /**
+     * Gives each caller its own label, in the order the messages were sent.
+     */
+    private void completeBatch(List<PendingEmotion> batch, List<String> emotions) {
+        for (int i = 0; i < batch.size(); i++) {
+            String emotion = emotions != null && i < emotions.size() ? emotions.get(i) : null;
+            batch.get(i).result.complete(emotion);
+        }
+    }
+
+    private void failBatch(List<PendingEmotion> batch, Throwable error) {
+        log.warn("EMOTION BATCH FAILED: {}", error.getMessage());
+        batchFailures.increment();
+        batch.forEach(pending -> pending.result.completeExceptionally(error));
+    }
+
+    private static class PendingEmotion {
+        private final String message;
+        private final Observation parent;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        PendingEmotion(String message, Observation parent) {
+            this.message = message;
+            this.parent = parent;
+        }
+    }
+}
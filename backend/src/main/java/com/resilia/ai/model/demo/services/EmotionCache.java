@@ -0,0 +1,118 @@
+package com.resilia.ai.model.demo.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * In-process cache in front of the emotion classifier.
+ *
+ * Messages are normalized (trimmed, lower-cased, whitespace collapsed) and hashed, so
+ * "I'm sad", "i'm  SAD " and "I'M SAD" share one entry and long messages cost a fixed-size key.
+ * Eviction is size and TTL based (Caffeine's W-TinyLFU policy).
+ *
+ * Concurrent requests for the same message share a single classifier call.
+ * Only real labels are cached: failures and unknown labels (null) are never stored.
+ * Hit/miss/eviction counters are published as "cache.*" metrics with cache=emotion.
+ */
+@Component
+public class EmotionCache {
+
+    private final AsyncCache<String, String> cache;
+    private final List<EmotionCacheStore> secondLevelStores;
+
+    @Autowired
+    public EmotionCache(@Value("${ia.cache.max-size:10000}") long maxSize,
+                        @Value("${ia.cache.ttl-minutes:60}") long ttlMinutes,
+                        List<EmotionCacheStore> secondLevelStores,
+                        MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .buildAsync();
+        this.secondLevelStores = secondLevelStores;
+        new CaffeineCacheMetrics<>(cache.synchronous(), "emotion", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Returns the cached label for this message, or calls the loader (the classifier) on a miss.
+     * The loader receives the original message and returns the raw label (null if unknown).
+     */
+    public CompletableFuture<String> get(String message, Function<String, CompletableFuture<String>> loader) {
+        String key = keyOf(message);
+        return cache.get(key, (k, executor) -> loadThroughStores(k, message, loader, executor));
+    }
+
+    /**
+     * Hit ratio since startup, between 0 and 1.
+     */
+    public double hitRate() {
+        return cache.synchronous().stats().hitRate();
+    }
+
+    private CompletableFuture<String> loadThroughStores(String key, String message,
+                                                        Function<String, CompletableFuture<String>> loader,
+                                                        Executor executor) {
+        if (secondLevelStores.isEmpty()) {
+            return fetch(key, message, loader);
+        }
+        // Store lookups may block on I/O: run them off the cache's compute lock
+        // (holding it while blocked would also pin a virtual thread).
+        return CompletableFuture.supplyAsync(() -> findInStores(key), executor)
+                .thenCompose(stored -> stored != null
+                        ? CompletableFuture.completedFuture(stored)
+                        : fetch(key, message, loader));
+    }
+
+    private String findInStores(String key) {
+        for (EmotionCacheStore store : secondLevelStores) {
+            Optional<String> stored = store.get(key);
+            if (stored.isPresent()) {
+                return stored.get();
+            }
+        }
+        return null;
+    }
+
+    private CompletableFuture<String> fetch(String key, String message,
+                                            Function<String, CompletableFuture<String>> loader) {
+        return loader.apply(message).thenApply(emotion -> {
+            if (emotion != null) {
+                secondLevelStores.forEach(store -> store.put(key, emotion));
+            }
+            return emotion;
+        });
+    }
+
+    /**
+     * Content address of a message: SHA-256 of its normalized form.
+     */
+    static String keyOf(String message) {
+        String normalized = message == null ? ""
+                : message.strip().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.resilia.ai.model.demo.services;
+
+import java.util.Optional;
+
+/**
+ * Second-level store for emotion labels, consulted by EmotionCache after an in-memory miss.
+ *
+ * Declare a Spring bean implementing this interface (e.g. backed by Redis or a DB table)
+ * and EmotionCache will pick it up automatically. Keys are already normalized and hashed.
+ */
+public interface EmotionCacheStore {
+
+    Optional<String> get(String key);
+
+    void put(String key, String emotion);
+}
@@ -0,0 +1,27 @@
+package com.resilia.ai.model.demo.services;
+
+import io.micrometer.observation.Observation;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The emotion model behind AiService.analyzeEmotion(), selected with ia.classifier:
+ * - http (default): the Python service (HttpEmotionClassifier).
+ * - onnx: the exported model run inside the JVM (OnnxEmotionClassifier).
+ *
+ * Labels are returned as the model names them ("joy"); null means no label.
+ * Caching, deadlines and fallbacks stay in AiService, grouping in EmotionBatcher.
+ */
+public interface EmotionClassifier {
+
+    /**
+     * Classifies one message. parent is the observation (trace) the call belongs to, or null.
+     */
+    CompletableFuture<String> classify(String message, Observation parent);
+
+    /**
+     * Classifies several messages in one model call. The labels are in the order of the messages.
+     */
+    CompletableFuture<List<String>> classifyBatch(List<String> messages, Observation parent);
+}
@@ -0,0 +1,381 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.DTO.TrendDtos.EmotionDistribution;
+import com.resilia.ai.model.demo.DTO.TrendDtos.NegativeStreaks;
+import com.resilia.ai.model.demo.DTO.TrendDtos.Streak;
+import com.resilia.ai.model.demo.DTO.TrendDtos.TimelineEntry;
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.repositories.MessageRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Emotions of every user's messages, kept in memory as primitive arrays, for queries that would
+ * otherwise re-read and re-parse Message.emotion from MySQL (distribution over the last days,
+ * negative streaks).
+ *
+ * - Labels are interned into one-byte codes (trends.timeline.labels first, then any new label
+ *   the classifier returns, up to 256).
+ * - Per user: an int[] of seconds (since 2020-01-01, same wall-clock time as Message.timestamp)
+ *   and a byte[] of codes, sorted by time: 5 bytes per message. Range bounds are found by binary
+ *   search, so a query only touches the messages of its range (microseconds).
+ * - Warmed at startup from the messages table (keyset batches of classified user messages), then
+ *   appended by ChatTurnWriter once each turn is committed. Turns committed during the warm-up
+ *   are held back and merged after it, skipping those the warm-up already read.
+ *
+ * Metrics: emotion.timeline.messages, emotion.timeline.users, emotion.timeline.bytes.
+ */
+@Component
+public class EmotionTimeline implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EmotionTimeline.class);
+
+    private static final long BASE_EPOCH_SECOND = LocalDateTime.of(2020, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    private static final int MAX_LABELS = 256;
+    private static final int BYTES_PER_MESSAGE = Integer.BYTES + Byte.BYTES;
+
+    private final MessageRepository messageRepository;
+    private final boolean warmUpOnStartup;
+    private final int warmUpBatch;
+    private final int defaultRangeDays;
+    private final int maxRangeDays;
+
+    private final Map<Long, Timeline> timelines = new ConcurrentHashMap<>();
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final String[] labels = new String[MAX_LABELS];
+    private final boolean[] negative = new boolean[MAX_LABELS];
+    private final List<String> negativeEmotions;
+    private final AtomicLong messageCount = new AtomicLong();
+    private final AtomicLong byteCount = new AtomicLong();
+
+    // Turns committed before the end of the warm-up (null when no warm-up is pending or running).
+    private final Object warmUpLock = new Object();
+    private List<TimelineEntry> heldBack;
+
+    @Autowired
+    public EmotionTimeline(MessageRepository messageRepository,
+                           @Value("${trends.timeline.labels:SADNESS,JOY,LOVE,ANGER,FEAR,SURPRISE,NEUTRAL}") String[] knownLabels,
+                           @Value("${trends.timeline.negative-emotions:SADNESS,ANGER,FEAR}") String[] negativeLabels,
+                           @Value("${trends.timeline.warm-up-on-startup:true}") boolean warmUpOnStartup,
+                           @Value("${trends.timeline.warm-up-batch:5000}") int warmUpBatch,
+                           @Value("${trends.default-range-days:30}") int defaultRangeDays,
+                           @Value("${trends.max-range-days:366}") int maxRangeDays,
+                           MeterRegistry meterRegistry) {
+        this.messageRepository = messageRepository;
+        this.warmUpOnStartup = warmUpOnStartup;
+        this.warmUpBatch = warmUpBatch;
+        this.defaultRangeDays = defaultRangeDays;
+        this.maxRangeDays = maxRangeDays;
+        this.negativeEmotions = new ArrayList<>();
+        for (String label : negativeLabels) {
+            negativeEmotions.add(label.strip().toUpperCase(Locale.ROOT));
+        }
+        for (String label : knownLabels) {
+            codeOf(label.strip());
+        }
+        // The web server takes turns before the application runners: hold them back until the warm-up.
+        heldBack = warmUpOnStartup ? new ArrayList<>() : null;
+
+        Gauge.builder("emotion.timeline.messages", messageCount, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("emotion.timeline.users", timelines, Map::size).register(meterRegistry);
+        Gauge.builder("emotion.timeline.bytes", byteCount, AtomicLong::get)
+                .description("Memory of the timeline arrays")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (warmUpOnStartup) {
+            warmUp();
+        }
+    }
+
+    /**
+     * Loads every classified user message of the database, then merges the turns committed meanwhile.
+     */
+    public void warmUp() {
+        long start = System.nanoTime();
+        synchronized (warmUpLock) {
+            if (heldBack == null) {
+                heldBack = new ArrayList<>();
+            }
+        }
+        try {
+            long afterId = 0;
+            List<TimelineEntry> batch;
+            while (!(batch = messageRepository.findTimelineAfter(afterId, PageRequest.of(0, warmUpBatch))).isEmpty()) {
+                for (TimelineEntry entry : batch) {
+                    int code = codeOf(entry.getEmotion());
+                    if (code >= 0 && entry.getTimestamp() != null) {
+                        timeline(entry.getUserId()).appendUnsorted(secondOf(entry.getTimestamp()), (byte) code);
+                    }
+                }
+                afterId = batch.get(batch.size() - 1).getMessageId();
+            }
+            timelines.values().forEach(Timeline::sort);
+        } finally {
+            synchronized (warmUpLock) {
+                for (TimelineEntry entry : heldBack) {
+                    timeline(entry.getUserId()).appendIfAbsent(secondOf(entry.getTimestamp()), (byte) codeOf(entry.getEmotion()));
+                }
+                heldBack = null;
+            }
+        }
+        log.info("Emotion timeline: {} messages of {} users loaded in {} ms ({} KB)",
+                messageCount.get(), timelines.size(), (System.nanoTime() - start) / 1_000_000, byteCount.get() / 1024);
+    }
+
+    /**
+     * Adds the user messages of committed turns (called by ChatTurnWriter after the commit).
+     */
+    void append(List<ChatTurn> turns) {
+        for (ChatTurn turn : turns) {
+            Message message = turn.getUserMessage();
+            if (message.getEmotion() == null || message.getTimestamp() == null || codeOf(message.getEmotion()) < 0) {
+                continue;
+            }
+            synchronized (warmUpLock) {
+                if (heldBack != null) {
+                    heldBack.add(new TimelineEntry(message.getId(), turn.getUserId(), message.getEmotion(), message.getTimestamp()));
+                } else {
+                    timeline(turn.getUserId()).append(secondOf(message.getTimestamp()), (byte) codeOf(message.getEmotion()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Messages per emotion of a user over the last `days` days (default trends.default-range-days).
+     */
+    public EmotionDistribution distribution(Long userId, Integer days) {
+        LocalDateTime to = LocalDateTime.now();
+        LocalDateTime from = to.minusDays(rangeDays(days));
+        long[] counts = new long[MAX_LABELS];
+        Timeline timeline = timelines.get(userId);
+        if (timeline != null) {
+            timeline.count(secondOf(from), secondOf(to), counts);
+        }
+
+        Map<String, Long> emotions = new TreeMap<>();
+        long total = 0;
+        for (int code = 0; code < MAX_LABELS; code++) {
+            if (counts[code] > 0) {
+                emotions.put(labels[code], counts[code]);
+                total += counts[code];
+            }
+        }
+        return new EmotionDistribution(from, to, total, emotions);
+    }
+
+    /**
+     * Current and longest runs of consecutive negative messages of a user over the last `days` days.
+     */
+    public NegativeStreaks negativeStreaks(Long userId, Integer days) {
+        LocalDateTime to = LocalDateTime.now();
+        LocalDateTime from = to.minusDays(rangeDays(days));
+        Timeline timeline = timelines.get(userId);
+        int[] streaks = timeline == null ? new int[6]
+                : timeline.negativeStreaks(secondOf(from), secondOf(to), negative);
+        return new NegativeStreaks(negativeEmotions,
+                toStreak(streaks[0], streaks[1], streaks[2]),
+                toStreak(streaks[3], streaks[4], streaks[5]));
+    }
+
+    private int rangeDays(Integer days) {
+        int range = days == null ? defaultRangeDays : days;
+        if (range < 1 || range > maxRangeDays) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "days must be between 1 and " + maxRangeDays);
+        }
+        return range;
+    }
+
+    private static Streak toStreak(int length, int startSecond, int endSecond) {
+        return length == 0 ? new Streak(0, null, null)
+                : new Streak(length, dateTimeOf(startSecond), dateTimeOf(endSecond));
+    }
+
+    /**
+     * One-byte code of a label, interned on first use. -1 once 256 labels are known.
+     */
+    private int codeOf(String emotion) {
+        String label = emotion.toUpperCase(Locale.ROOT);
+        Integer code = codes.get(label);
+        if (code != null) {
+            return code;
+        }
+        synchronized (codes) {
+            code = codes.get(label);
+            if (code != null) {
+                return code;
+            }
+            if (codes.size() == MAX_LABELS) {
+                return -1;
+            }
+            int next = codes.size();
+            labels[next] = label;
+            negative[next] = negativeEmotions.contains(label);
+            codes.put(label, next);
+            return next;
+        }
+    }
+
+    private Timeline timeline(Long userId) {
+        return timelines.computeIfAbsent(userId, id -> new Timeline());
+    }
+
+    static int secondOf(LocalDateTime timestamp) {
+        return (int) (timestamp.toEpochSecond(ZoneOffset.UTC) - BASE_EPOCH_SECOND);
+    }
+
+    static LocalDateTime dateTimeOf(int second) {
+        return LocalDateTime.ofEpochSecond(BASE_EPOCH_SECOND + second, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Emotions of one user, oldest first: seconds[i] and codes[i] for i < size.
+     */
+    private final class Timeline {
+        private int[] seconds = new int[8];
+        private byte[] codes = new byte[8];
+        private int size;
+
+        Timeline() {
+            byteCount.addAndGet((long) seconds.length * BYTES_PER_MESSAGE);
+        }
+
+        /**
+         * Appends in time order; a late message (e.g. write-behind) is inserted at its place.
+         */
+        synchronized void append(int second, byte code) {
+            grow();
+            int at = size > 0 && seconds[size - 1] > second ? lowerBound(second + 1) : size;
+            System.arraycopy(seconds, at, seconds, at + 1, size - at);
+            System.arraycopy(codes, at, codes, at + 1, size - at);
+            seconds[at] = second;
+            codes[at] = code;
+            size++;
+            messageCount.incrementAndGet();
+        }
+
+        synchronized void appendUnsorted(int second, byte code) {
+            grow();
+            seconds[size] = second;
+            codes[size] = code;
+            size++;
+            messageCount.incrementAndGet();
+        }
+
+        /**
+         * Appends unless the same emotion is already recorded at the same second
+         * (one second either way: MySQL DATETIME rounds the fraction of a second).
+         */
+        synchronized void appendIfAbsent(int second, byte code) {
+            for (int i = lowerBound(second - 1); i < size && seconds[i] <= second + 1; i++) {
+                if (codes[i] == code) {
+                    return;
+                }
+            }
+            append(second, code);
+        }
+
+        /**
+         * Sorts by time after appendUnsorted (both arrays packed into one long per message).
+         */
+        synchronized void sort() {
+            long[] packed = new long[size];
+            for (int i = 0; i < size; i++) {
+                packed[i] = ((long) seconds[i] << 8) | (codes[i] & 0xFF);
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < size; i++) {
+                seconds[i] = (int) (packed[i] >> 8);
+                codes[i] = (byte) packed[i];
+            }
+        }
+
+        synchronized void count(int from, int to, long[] counts) {
+            for (int i = lowerBound(from), end = lowerBound(to + 1); i < end; i++) {
+                counts[codes[i] & 0xFF]++;
+            }
+        }
+
+        /**
+         * {current length, start, end, longest length, start, end} over [from, to].
+         */
+        synchronized int[] negativeStreaks(int from, int to, boolean[] negative) {
+            int start = lowerBound(from);
+            int end = lowerBound(to + 1);
+            int run = 0;
+            int runStart = 0;
+            int longest = 0;
+            int longestStart = 0;
+            int longestEnd = 0;
+            for (int i = start; i < end; i++) {
+                if (!negative[codes[i] & 0xFF]) {
+                    run = 0;
+                    continue;
+                }
+                if (run++ == 0) {
+                    runStart = i;
+                }
+                if (run > longest) {
+                    longest = run;
+                    longestStart = runStart;
+                    longestEnd = i;
+                }
+            }
+            return new int[]{
+                    run, run == 0 ? 0 : seconds[runStart], run == 0 ? 0 : seconds[end - 1],
+                    longest, longest == 0 ? 0 : seconds[longestStart], longest == 0 ? 0 : seconds[longestEnd]};
+        }
+
+        /**
+         * First index whose second is >= the given second.
+         */
+        private int lowerBound(int second) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (seconds[middle] < second) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private void grow() {
+            if (size < seconds.length) {
+                return;
+            }
+            int capacity = seconds.length + (seconds.length >> 1);
+            byteCount.addAndGet((long) (capacity - seconds.length) * BYTES_PER_MESSAGE);
+            seconds = Arrays.copyOf(seconds, capacity);
+            codes = Arrays.copyOf(codes, capacity);
+        }
+    }
+}
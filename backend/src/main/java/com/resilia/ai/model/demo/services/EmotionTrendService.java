@@ -0,0 +1,131 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.DTO.TrendDtos.DailyEmotionCount;
+import com.resilia.ai.model.demo.DTO.TrendDtos.TrendPoint;
+import com.resilia.ai.model.demo.DTO.TrendDtos.TrendResponse;
+import com.resilia.ai.model.demo.entites.EmotionDailyCount;
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.repositories.EmotionDailyCountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mood trends of a user, served from precomputed daily counters (EmotionDailyCount).
+ *
+ * Counters are incremented by ChatTurnWriter in the same transaction as the messages, so they
+ * always match what was saved. A trend query reads at most one row per day and emotion:
+ * its cost depends on the length of the range, not on the number of messages.
+ * Weeks (starting on Monday) are summed from the daily rows.
+ */
+@Service
+public class EmotionTrendService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EmotionTrendService.class);
+
+    public static final String DAY = "day";
+    public static final String WEEK = "week";
+
+    // Same order for every transaction, so two concurrent turns never lock counters crosswise.
+    private static final Comparator<EmotionDailyCount.Key> KEY_ORDER = Comparator
+            .comparing(EmotionDailyCount.Key::getUserId)
+            .thenComparing(EmotionDailyCount.Key::getDay)
+            .thenComparing(EmotionDailyCount.Key::getEmotion);
+
+    @Autowired
+    private EmotionDailyCountRepository emotionDailyCountRepository;
+
+    @Value("${trends.default-range-days:30}")
+    private int defaultRangeDays;
+
+    @Value("${trends.max-range-days:366}")
+    private int maxRangeDays;
+
+    @Value("${trends.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    /**
+     * Adds the emotions of these turns to the daily counters.
+     * Must run inside the transaction that saves the messages.
+     */
+    void record(List<ChatTurn> turns) {
+        Map<EmotionDailyCount.Key, Long> increments = new TreeMap<>(KEY_ORDER);
+        for (ChatTurn turn : turns) {
+            Message userMessage = turn.getUserMessage();
+            if (userMessage.getEmotion() == null || userMessage.getTimestamp() == null) {
+                continue;
+            }
+            EmotionDailyCount.Key key = new EmotionDailyCount.Key(
+                    turn.getUserId(), userMessage.getTimestamp().toLocalDate(), userMessage.getEmotion());
+            increments.merge(key, 1L, Long::sum);
+        }
+        increments.forEach((key, added) ->
+                emotionDailyCountRepository.increment(key.getUserId(), key.getDay(), key.getEmotion(), added));
+    }
+
+    /**
+     * Trend of a user between from and to (inclusive), per day or per week.
+     * Missing dates default to the last trends.default-range-days days.
+     */
+    public TrendResponse getTrends(Long userId, LocalDate from, LocalDate to, String granularity) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(defaultRangeDays - 1L);
+        String unit = granularity == null ? DAY : granularity.toLowerCase();
+
+        if (!DAY.equals(unit) && !WEEK.equals(unit)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "granularity must be 'day' or 'week'");
+        }
+        if (start.isAfter(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must not be after 'to'");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= maxRangeDays) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Range is limited to " + maxRangeDays + " days");
+        }
+
+        Map<LocalDate, Map<String, Long>> periods = new TreeMap<>();
+        Map<String, Long> totals = new TreeMap<>();
+        for (DailyEmotionCount daily : emotionDailyCountRepository.findRange(userId, start, end)) {
+            LocalDate period = WEEK.equals(unit)
+                    ? daily.getDay().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                    : daily.getDay();
+            periods.computeIfAbsent(period, p -> new TreeMap<>()).merge(daily.getEmotion(), daily.getCount(), Long::sum);
+            totals.merge(daily.getEmotion(), daily.getCount(), Long::sum);
+        }
+
+        List<TrendPoint> points = new ArrayList<>(periods.size());
+        periods.forEach((period, emotions) -> points.add(new TrendPoint(period, emotions,
+                emotions.values().stream().mapToLong(Long::longValue).sum())));
+        return new TrendResponse(unit, start, end, points, totals);
+    }
+
+    /**
+     * First start after the upgrade: builds the counters from the messages already saved.
+     * Does nothing once the table has rows.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!backfillOnStartup) {
+            return;
+        }
+        int inserted = emotionDailyCountRepository.backfill();
+        if (inserted > 0) {
+            log.info("Emotion trend counters backfilled: {}", inserted);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.resilia.ai.model.demo.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Cache of Gemini answers for prompts that repeat: conversation openers ("hi", "I can't sleep")
+ * with the same detected emotion.
+ *
+ * Key: SHA-256 of (emotion, normalized context, normalized message). Messages are trimmed,
+ * lower-cased, whitespace collapsed and trailing punctuation removed ("Hi!" = "hi").
+ * The emotion is the one detected by the classifier. In parallel mode, AiService.respond() only waits
+ * for it when hasAnswers() says the pool of this prompt is full (for any emotion); otherwise Gemini
+ * starts right away and its answer is stored with put() once the emotion is known.
+ * A null emotion (Gemini infers the tone itself) is a key of its own, never mixed with a detected one.
+ * Only prompts without real context are cached: when the conversation context is longer than
+ * gemini.cache.max-context-chars (0 = no context at all), or the message longer than
+ * gemini.cache.max-message-chars, Gemini is always called (bypass).
+ *
+ * Variant pool: the first gemini.cache.variants calls for a key go to Gemini and each answer is
+ * kept; after that, a random kept answer is returned, so a user saying "hi" twice does not get
+ * the exact same sentence every time. Concurrent misses on an empty key share one Gemini call.
+ * Failed calls are never cached. Entries expire gemini.cache.ttl-minutes after their first answer.
+ *
+ * Metrics: gemini.cache.requests (tag result=hit|coalesced|miss|bypass), gemini.cache.saved.calls,
+ * gemini.cache.saved.latency (seconds of Gemini time not spent, estimated from the answers
+ * of that key), gemini.cache.hit.ratio, gemini.cache.size.
+ */
+@Component
+public class GenerationCache {
+
+    private final boolean enabled;
+    private final int variants;
+    private final int maxContextChars;
+    private final int maxMessageChars;
+    private final Cache<String, Entry> cache;
+    // Prompts with a full variant pool, whatever their emotion (key: keyOf(null, context, message))
+    private final Cache<String, Boolean> prompts;
+
+    private final Counter hits;
+    private final Counter coalesced;
+    private final Counter misses;
+    private final Counter bypasses;
+    private final Counter savedCalls;
+    private final Counter savedLatency;
+
+    @Autowired
+    public GenerationCache(@Value("${gemini.cache.enabled:true}") boolean enabled,
+                           @Value("${gemini.cache.max-size:2000}") long maxSize,
+                           @Value("${gemini.cache.ttl-minutes:30}") long ttlMinutes,
+                           @Value("${gemini.cache.variants:3}") int variants,
+                           @Value("${gemini.cache.max-context-chars:0}") int maxContextChars,
+                           @Value("${gemini.cache.max-message-chars:200}") int maxMessageChars,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.variants = Math.max(variants, 1);
+        this.maxContextChars = maxContextChars;
+        this.maxMessageChars = maxMessageChars;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+        this.prompts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+
+        hits = meterRegistry.counter("gemini.cache.requests", "result", "hit");
+        coalesced = meterRegistry.counter("gemini.cache.requests", "result", "coalesced");
+        misses = meterRegistry.counter("gemini.cache.requests", "result", "miss");
+        bypasses = meterRegistry.counter("gemini.cache.requests", "result", "bypass");
+        savedCalls = Counter.builder("gemini.cache.saved.calls")
+                .description("Gemini calls answered by the generation cache")
+                .register(meterRegistry);
+        savedLatency = Counter.builder("gemini.cache.saved.latency")
+                .description("Gemini time not spent thanks to the generation cache")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("gemini.cache.hit.ratio", this, GenerationCache::hitRate)
+                .description("Share of cacheable requests answered without a new Gemini call")
+                .register(meterRegistry);
+        Gauge.builder("gemini.cache.size", cache, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns a kept answer for this prompt, or calls the generator (Gemini) and keeps its answer.
+     * The generator must fail (not return a fallback sentence) when Gemini could not answer.
+     */
+    public CompletableFuture<String> get(String emotion, String contextHistory, String message,
+                                         Supplier<CompletableFuture<String>> generator) {
+        if (!accepts(contextHistory, message)) {
+            bypasses.increment();
+            return generator.get();
+        }
+
+        Entry entry = cache.get(keyOf(emotion, contextHistory, message), key -> new Entry());
+        CompletableFuture<String> load;
+        synchronized (entry) {
+            // Pool full, or being filled: answer with what is already there.
+            if (entry.fills >= variants || (!entry.answers.isEmpty() && entry.loading != null)) {
+                hits.increment();
+                savedCalls.increment();
+                savedLatency.increment(entry.averageNanos() / 1e9);
+                return CompletableFuture.completedFuture(entry.pick());
+            }
+            if (entry.loading != null) {
+                coalesced.increment();
+                savedCalls.increment();
+                return entry.loading.thenApply(answer -> answer);
+            }
+            load = new CompletableFuture<>();
+            entry.loading = load;
+        }
+
+        misses.increment();
+        long start = System.nanoTime();
+        CompletableFuture<String> generated;
+        try {
+            generated = generator.get();
+        } catch (RuntimeException e) {
+            generated = CompletableFuture.failedFuture(e);
+        }
+        generated.whenComplete((answer, error) -> {
+            synchronized (entry) {
+                entry.loading = null;
+                if (error == null && answer != null && !answer.isBlank()) {
+                    entry.add(answer, System.nanoTime() - start);
+                    if (entry.fills >= variants) {
+                        prompts.put(keyOf(null, contextHistory, message), Boolean.TRUE);
+                    }
+                }
+            }
+            if (error != null) {
+                load.completeExceptionally(error);
+            } else {
+                load.complete(answer);
+            }
+        });
+        return load;
+    }
+
+    /**
+     * Keeps an answer Gemini gave to this prompt outside of get() (generated before the emotion was
+     * known), as one miss. Ignored when the prompt is not cacheable or its pool is already full.
+     */
+    public void put(String emotion, String contextHistory, String message, String answer, long nanos) {
+        if (!accepts(contextHistory, message) || answer == null || answer.isBlank()) {
+            return;
+        }
+        misses.increment();
+        Entry entry = cache.get(keyOf(emotion, contextHistory, message), key -> new Entry());
+        synchronized (entry) {
+            if (entry.fills < variants) {
+                entry.add(answer, nanos);
+            }
+            if (entry.fills >= variants) {
+                prompts.put(keyOf(null, contextHistory, message), Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * True when the variant pool of this prompt is full for some emotion: a lookup keyed on the
+     * detected emotion may hit without calling Gemini. May say true for an entry evicted since.
+     */
+    public boolean hasAnswers(String contextHistory, String message) {
+        return accepts(contextHistory, message)
+                && prompts.getIfPresent(keyOf(null, contextHistory, message)) != null;
+    }
+
+    /**
+     * Share of cacheable requests answered without a new Gemini call, between 0 and 1.
+     */
+    public double hitRate() {
+        double saved = hits.count() + coalesced.count();
+        double total = saved + misses.count();
+        return total == 0 ? 0 : saved / total;
+    }
+
+    /**
+     * True when answers to this prompt may come from the cache (cache enabled, short prompt
+     * without conversation context).
+     */
+    public boolean accepts(String contextHistory, String message) {
+        if (!enabled) {
+            return false;
+        }
+        int contextLength = contextHistory == null ? 0 : contextHistory.strip().length();
+        return message != null && !message.isBlank()
+                && message.length() <= maxMessageChars
+                && contextLength <= maxContextChars;
+    }
+
+    static String normalize(String text) {
+        return text == null ? ""
+                : text.strip().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").replaceAll("[\\s.!?,;]+$", "");
+    }
+
+    static String keyOf(String emotion, String contextHistory, String message) {
+        String triple = (emotion == null ? "" : emotion.toUpperCase(Locale.ROOT)) + "\n"
+                + normalize(contextHistory) + "\n" + normalize(message);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(triple.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Answers kept for one prompt (guarded by the entry's monitor).
+     */
+    private static class Entry {
+        private final List<String> answers = new ArrayList<>();
+        // Gemini answers received (identical answers are kept once but still count)
+        private int fills;
+        private long totalNanos;
+        private CompletableFuture<String> loading;
+
+        void add(String answer, long nanos) {
+            if (!answers.contains(answer)) {
+                answers.add(answer);
+            }
+            fills++;
+            totalNanos += nanos;
+        }
+
+        String pick() {
+            return answers.get(ThreadLocalRandom.current().nextInt(answers.size()));
+        }
+
+        double averageNanos() {
+            return fills == 0 ? 0 : (double) totalNanos / fills;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.resilia.ai.model.demo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.Observation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Emotion classifier served by the Python Flask service (ia_service.py):
+ * POST /analyze for one message, POST /analyze_batch for a batch,
+ * on the least busy replica (ClassifierEndpoints).
+ */
+@Component
+@ConditionalOnProperty(name = "ia.classifier", havingValue = "http", matchIfMissing = true)
+public class HttpEmotionClassifier implements EmotionClassifier {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ClassifierEndpoints classifierEndpoints;
+    private final Duration timeout;
+    private final Duration batchTimeout;
+
+    @Autowired
+    public HttpEmotionClassifier(ClassifierEndpoints classifierEndpoints,
+                                 @Value("${ia.service.timeout-ms:2000}") long timeoutMs,
+                                 @Value("${ia.batch.timeout-ms:5000}") long batchTimeoutMs) {
+        this.classifierEndpoints = classifierEndpoints;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.batchTimeout = Duration.ofMillis(batchTimeoutMs);
+    }
+
+    /**
+     * Sends a single message to /analyze and returns the raw label (null if none).
+     */
+    @Override
+    public CompletableFuture<String> classify(String message, Observation parent) {
+        try {
+            String jsonBody = objectMapper.writeValueAsString(Map.of("message", message));
+            return classifierEndpoints.postJson("emotion", parent, "/analyze", jsonBody, timeout)
+                    .thenApply(response -> {
+                        if (response.statusCode() >= 500) {
+                            // Counted as a failure by the circuit breaker.
+                            throw new IllegalStateException("PYTHON ERROR: " + response.statusCode());
+                        }
+                        if (response.statusCode() != 200) {
+                            return null;
+                        }
+                        try {
+                            Map<String, String> responseMap = objectMapper.readValue(response.body(), Map.class);
+                            return responseMap.get("emotion");
+                        } catch (Exception e) {
+                            return null;
+                        }
+                    });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Sends {"messages": [...]} to /analyze_batch and returns its {"emotions": [...]}.
+     */
+    @Override
+    public CompletableFuture<List<String>> classifyBatch(List<String> messages, Observation parent) {
+        try {
+            String jsonBody = objectMapper.writeValueAsString(Map.of("messages", messages));
+            return classifierEndpoints.postJson("emotion_batch", parent, "/analyze_batch", jsonBody, batchTimeout)
+                    .thenApply(response -> {
+                        if (response.statusCode() != 200) {
+                            throw new IllegalStateException("PYTHON BATCH ERROR: " + response.statusCode());
+                        }
+                        try {
+                            Map<String, Object> responseMap = objectMapper.readValue(response.body(), Map.class);
+                            return (List<String>) responseMap.get("emotions");
+                        } catch (Exception e) {
+                            throw new IllegalStateException("PYTHON BATCH ERROR: unreadable answer", e);
+                        }
+                    });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
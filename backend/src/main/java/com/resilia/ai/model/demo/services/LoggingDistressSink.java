@@ -0,0 +1,23 @@
+package com.resilia.ai.model.demo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default DistressSink: writes one line per escalation. The emergency contact itself is not
+ * logged, only whether the user filled it in.
+ */
+@Component
+public class LoggingDistressSink implements DistressSink {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingDistressSink.class);
+
+    @Override
+    public void publish(DistressEscalation escalation) {
+        log.warn("DISTRESS ESCALATION: user {} (conversation {}), {} high-risk messages, {}% {}, emergency contact {}",
+                escalation.getUserId(), escalation.getConversationId(), escalation.getHighRiskTurns(),
+                Math.round(escalation.getHighRiskShare() * 100), escalation.getDominantEmotion(),
+                escalation.getEmergencyContact() == null || escalation.getEmergencyContact().isBlank() ? "missing" : "on file");
+    }
+}
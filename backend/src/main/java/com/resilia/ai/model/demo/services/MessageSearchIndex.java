@@ -0,0 +1,375 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.DTO.ChatDtos.SearchHitDto;
+import com.resilia.ai.model.demo.DTO.ChatDtos.SearchPage;
+import com.resilia.ai.model.demo.DTO.ChatDtos.SearchableMessage;
+import com.resilia.ai.model.demo.entites.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-text search over the users' chat history (Lucene, English stemming: "exams" finds "exam").
+ *
+ * - One index for all users; every document carries its userId and every query is filtered on
+ *   it, so a user only ever searches their own messages.
+ * - Fed by ChatTurnWriter once a turn is committed (messages have their IDs then): the messages
+ *   are queued and indexed by the "message-indexer" thread, never on the chat request thread.
+ *   They become searchable within chat.search.refresh-ms. When the queue is full, messages are
+ *   dropped (counted) and come back with the next rebuild (MessageSearchRebuild).
+ * - Stored in chat.search.dir (memory-mapped), committed every chat.search.commit-interval-s
+ *   and on shutdown. Empty dir: in-memory index, rebuilt from the database at each start.
+ * - Results are ranked by relevance (BM25), newest first on ties, or newest first when only
+ *   filtering by emotion. Paginated with page/size, up to MAX_HITS results.
+ *
+ * Metrics: chat.search.indexed, chat.search.dropped, chat.search.queued, chat.search.documents,
+ * chat.search.query (timer).
+ */
+@Component
+public class MessageSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchIndex.class);
+
+    // How deep a user can page into the results of one query.
+    public static final int MAX_HITS = 1000;
+
+    private static final String ID = "id";
+    private static final String USER_ID = "userId";
+    private static final String CONVERSATION_ID = "conversationId";
+    private static final String SENDER = "sender";
+    private static final String EMOTION = "emotion";
+    private static final String CONTENT = "content";
+    private static final String TIMESTAMP = "timestamp";
+    private static final int MAX_BATCH = 500;
+
+    private final boolean enabled;
+    private final String dir;
+    private final long refreshMs;
+    private final long commitIntervalMs;
+    private final BlockingQueue<SearchableMessage> queue;
+
+    private final Counter indexed;
+    private final Counter dropped;
+    private final Timer queryTimer;
+
+    private Directory directory;
+    private Analyzer analyzer;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile boolean running;
+    private Thread indexer;
+
+    @Autowired
+    public MessageSearchIndex(@Value("${chat.search.enabled:true}") boolean enabled,
+                              @Value("${chat.search.dir:}") String dir,
+                              @Value("${chat.search.queue-capacity:10000}") int queueCapacity,
+                              @Value("${chat.search.refresh-ms:1000}") long refreshMs,
+                              @Value("${chat.search.commit-interval-s:60}") long commitIntervalS,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.dir = dir;
+        this.refreshMs = refreshMs;
+        this.commitIntervalMs = TimeUnit.SECONDS.toMillis(commitIntervalS);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        indexed = meterRegistry.counter("chat.search.indexed");
+        dropped = meterRegistry.counter("chat.search.dropped");
+        queryTimer = Timer.builder("chat.search.query")
+                .description("Time of one history search (highlighting included)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("chat.search.queued", List.of(), queue);
+        Gauge.builder("chat.search.documents", this, MessageSearchIndex::size)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        directory = dir.isBlank() ? new ByteBuffersDirectory() : new MMapDirectory(Path.of(dir));
+        analyzer = new EnglishAnalyzer();
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+
+        running = true;
+        indexer = new Thread(this::indexLoop, "message-indexer");
+        indexer.start();
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        if (!enabled || writer == null) {
+            return;
+        }
+        running = false;
+        indexer.join(TimeUnit.SECONDS.toMillis(10));
+        searcherManager.close();
+        writer.close(); // commits what was indexed
+        directory.close();
+        analyzer.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the messages of committed turns for indexing. Never blocks.
+     */
+    public void indexLater(List<ChatTurn> turns) {
+        if (!enabled) {
+            return;
+        }
+        for (ChatTurn turn : turns) {
+            enqueue(turn, turn.getUserMessage());
+            enqueue(turn, turn.getBotMessage());
+        }
+    }
+
+    private void enqueue(ChatTurn turn, Message message) {
+        SearchableMessage searchable = new SearchableMessage(message.getId(), turn.getConversation().getId(),
+                turn.getUserId(), message.getSender(), message.getEmotion(), message.getContent(), message.getTimestamp());
+        if (!queue.offer(searchable)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Adds or replaces (same message ID) documents. Visible to searches after the next refresh.
+     */
+    public void index(List<SearchableMessage> messages) throws IOException {
+        for (SearchableMessage message : messages) {
+            writer.updateDocument(new Term(ID, message.getId().toString()), toDocument(message));
+        }
+        indexed.increment(messages.size());
+    }
+
+    public void refresh() throws IOException {
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    public void commit() throws IOException {
+        writer.commit();
+    }
+
+    /**
+     * Number of indexed messages (as of the last refresh), 0 when disabled.
+     */
+    public long size() {
+        if (searcherManager == null) {
+            return 0;
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return searcher.getIndexReader().numDocs();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * One page of a user's messages matching the query text and/or the emotions.
+     * The text accepts "exact phrases", -excluded words and prefix* (Lucene simple query syntax),
+     * all words are required. An empty text with emotions lists those messages, newest first.
+     */
+    public SearchPage search(Long userId, String text, List<String> emotions, int page, int size) {
+        if (!enabled) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Search is disabled");
+        }
+        boolean hasText = text != null && !text.isBlank();
+        if (!hasText && (emotions == null || emotions.isEmpty())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nothing to search for");
+        }
+        int from = page * size;
+        if (from >= MAX_HITS) {
+            return new SearchPage(List.of(), 0, page, false);
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            Query query = buildQuery(userId, hasText ? text : null, emotions);
+            if (query == null) {
+                return new SearchPage(List.of(), 0, page, false); // only stop words ("the", "and")
+            }
+            Sort sort = hasText
+                    ? new Sort(SortField.FIELD_SCORE, new SortField(TIMESTAMP, SortField.Type.LONG, true))
+                    : new Sort(new SortField(TIMESTAMP, SortField.Type.LONG, true));
+
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs top = searcher.search(query, Math.min(from + size, MAX_HITS), sort, true);
+                ScoreDoc[] pageDocs = from >= top.scoreDocs.length ? new ScoreDoc[0]
+                        : Arrays.copyOfRange(top.scoreDocs, from, top.scoreDocs.length);
+                String[] snippets = UnifiedHighlighter.builder(searcher, analyzer)
+                        .withFormatter(new DefaultPassageFormatter("<mark>", "</mark>", "... ", true))
+                        .withMaxNoHighlightPassages(1)
+                        .build()
+                        .highlight(CONTENT, query, new TopDocs(top.totalHits, pageDocs), 1);
+
+                StoredFields storedFields = searcher.storedFields();
+                List<SearchHitDto> hits = new ArrayList<>(pageDocs.length);
+                for (int i = 0; i < pageDocs.length; i++) {
+                    Document document = storedFields.document(pageDocs[i].doc);
+                    hits.add(new SearchHitDto(
+                            document.getField(ID).numericValue().longValue(),
+                            document.getField(CONVERSATION_ID).numericValue().longValue(),
+                            document.get(SENDER),
+                            document.get(EMOTION),
+                            toDateTime(document.getField(TIMESTAMP).numericValue().longValue()),
+                            snippets[i],
+                            Float.isNaN(pageDocs[i].score) ? 0 : pageDocs[i].score));
+                }
+                long total = top.totalHits.value;
+                boolean hasMore = from + pageDocs.length < Math.min(total, MAX_HITS);
+                return new SearchPage(hits, total, page, hasMore);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            sample.stop(queryTimer);
+        }
+    }
+
+    private Query buildQuery(Long userId, String text, List<String> emotions) {
+        Query textQuery = new MatchAllDocsQuery();
+        if (text != null) {
+            SimpleQueryParser parser = new SimpleQueryParser(analyzer, CONTENT);
+            parser.setDefaultOperator(BooleanClause.Occur.MUST);
+            textQuery = parser.parse(text);
+            if (textQuery == null) {
+                return null;
+            }
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+                .add(textQuery, BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(USER_ID, userId.toString())), BooleanClause.Occur.FILTER);
+        if (emotions != null && !emotions.isEmpty()) {
+            BooleanQuery.Builder anyEmotion = new BooleanQuery.Builder();
+            for (String emotion : emotions) {
+                anyEmotion.add(new TermQuery(new Term(EMOTION, emotion.toUpperCase(Locale.ROOT))), BooleanClause.Occur.SHOULD);
+            }
+            query.add(anyEmotion.build(), BooleanClause.Occur.FILTER);
+        }
+        return query.build();
+    }
+
+    private static Document toDocument(SearchableMessage message) {
+        long timestamp = message.getTimestamp() == null ? 0 : message.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+        Document document = new Document();
+        document.add(new StringField(ID, message.getId().toString(), Field.Store.NO));
+        document.add(new StoredField(ID, message.getId()));
+        document.add(new StringField(USER_ID, message.getUserId().toString(), Field.Store.NO));
+        document.add(new StoredField(CONVERSATION_ID, message.getConversationId()));
+        document.add(new StringField(SENDER, String.valueOf(message.getSender()), Field.Store.YES));
+        if (message.getEmotion() != null) {
+            document.add(new StringField(EMOTION, message.getEmotion().toUpperCase(Locale.ROOT), Field.Store.YES));
+        }
+        document.add(new TextField(CONTENT, message.getContent() == null ? "" : message.getContent(), Field.Store.YES));
+        document.add(new NumericDocValuesField(TIMESTAMP, timestamp));
+        document.add(new StoredField(TIMESTAMP, timestamp));
+        return document;
+    }
+
+    private static LocalDateTime toDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC);
+    }
+
+    /**
+     * Indexes queued messages in batches, refreshes the searcher at most every refreshMs
+     * and commits every commitIntervalMs. Drains the queue before stopping.
+     */
+    private void indexLoop() {
+        long lastRefresh = System.currentTimeMillis();
+        long lastCommit = lastRefresh;
+        boolean pending = false;
+        while (running || !queue.isEmpty()) {
+            try {
+                SearchableMessage first = queue.poll(refreshMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    List<SearchableMessage> batch = new ArrayList<>();
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    index(batch);
+                    pending = true;
+                }
+                long now = System.currentTimeMillis();
+                if (pending && now - lastRefresh >= refreshMs) {
+                    refresh();
+                    pending = false;
+                    lastRefresh = now;
+                }
+                if (now - lastCommit >= commitIntervalMs) {
+                    commit();
+                    lastCommit = now;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.warn("SEARCH INDEXING FAILED: {}", e.getMessage());
+            }
+        }
+    }
+}
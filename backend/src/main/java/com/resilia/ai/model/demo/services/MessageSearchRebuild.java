@@ -0,0 +1,82 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.DTO.ChatDtos.SearchableMessage;
+import com.resilia.ai.model.demo.repositories.MessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * (Re)builds the search index from the messages table, in the background at startup.
+ *
+ * chat.search.rebuild-on-startup:
+ * - "auto": only when the index does not hold as many messages as the table (first start,
+ *   in-memory index, messages dropped by a full indexing queue, crash before a commit).
+ * - "always" / "never".
+ *
+ * The table is streamed in ID order, chat.search.rebuild-batch messages per query (keyset,
+ * DTO projection: no entity kept in memory). Documents are replaced by message ID, so new
+ * turns indexed meanwhile are not duplicated, and searches keep working during the rebuild.
+ */
+@Component
+public class MessageSearchRebuild implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchRebuild.class);
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
+
+    @Value("${chat.search.rebuild-on-startup:auto}")
+    private String mode;
+
+    @Value("${chat.search.rebuild-batch:500}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!messageSearchIndex.isEnabled() || "never".equalsIgnoreCase(mode)) {
+            return;
+        }
+        Thread rebuilder = new Thread(() -> {
+            try {
+                long messages = messageRepository.count();
+                if ("always".equalsIgnoreCase(mode) || messageSearchIndex.size() != messages) {
+                    rebuild();
+                }
+            } catch (Exception e) {
+                log.error("SEARCH INDEX REBUILD FAILED", e);
+            }
+        }, "message-search-rebuild");
+        rebuilder.setDaemon(true);
+        rebuilder.start();
+    }
+
+    /**
+     * Indexes every message of the table, then makes them searchable and commits.
+     */
+    public void rebuild() throws IOException {
+        long start = System.nanoTime();
+        long afterId = 0;
+        long count = 0;
+        List<SearchableMessage> batch;
+        while (!(batch = messageRepository.findSearchableAfter(afterId, PageRequest.of(0, batchSize))).isEmpty()) {
+            messageSearchIndex.index(batch);
+            afterId = batch.get(batch.size() - 1).getId();
+            count += batch.size();
+        }
+        messageSearchIndex.refresh();
+        messageSearchIndex.commit();
+        log.info("Search index rebuilt: {} messages in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+}
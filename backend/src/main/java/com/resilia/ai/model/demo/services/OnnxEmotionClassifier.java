@@ -0,0 +1,240 @@
+package com.resilia.ai.model.demo.services;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emotion classifier running the fine-tuned RoBERTa inside the JVM with ONNX Runtime (CPU),
+ * so a chat turn no longer pays for the HTTP round trip to Python. Enable with ia.classifier=onnx.
+ *
+ * - The model is exported once with resilia-ai-service/export_onnx.py (model.onnx next to
+ *   tokenizer.json and config.json, whose id2label gives the label names).
+ * - Inputs are prepared by RobertaTokenizer (pure Java).
+ * - Pool of ia.onnx.sessions sessions, each used by one inference thread at a time, with
+ *   ia.onnx.intra-op-threads threads for the matrix operations of one inference.
+ * - A batch is one inference: messages are padded to the longest one (attention mask 0 on
+ *   the padding). With ia.batch.enabled, the EmotionBatcher groups concurrent messages.
+ *
+ * Metrics: emotion.onnx.inference (timer), emotion.onnx.batch.size.
+ */
+@Component
+@ConditionalOnProperty(name = "ia.classifier", havingValue = "onnx")
+public class OnnxEmotionClassifier implements EmotionClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(OnnxEmotionClassifier.class);
+
+    private final Path modelDir;
+    private final String modelFile;
+    private final int sessionCount;
+    private final int intraOpThreads;
+    private final int maxLength;
+    private final int maxBatchSize;
+    private final Timer inferenceTimer;
+    private final DistributionSummary batchSizes;
+
+    private OrtEnvironment environment;
+    private BlockingQueue<OrtSession> sessions;
+    private ExecutorService inferenceExecutor;
+    private RobertaTokenizer tokenizer;
+    private String[] labels;
+    private boolean needsTokenTypeIds;
+
+    @Autowired
+    public OnnxEmotionClassifier(@Value("${ia.onnx.model-dir:../resilia-ai-service/final_roberta_emotion_model}") String modelDir,
+                                 @Value("${ia.onnx.model-file:model.onnx}") String modelFile,
+                                 @Value("${ia.onnx.sessions:1}") int sessionCount,
+                                 @Value("${ia.onnx.intra-op-threads:0}") int intraOpThreads,
+                                 @Value("${ia.onnx.max-length:128}") int maxLength,
+                                 @Value("${ia.onnx.max-batch:32}") int maxBatchSize,
+                                 MeterRegistry meterRegistry) {
+        this.modelDir = Path.of(modelDir);
+        this.modelFile = modelFile;
+        this.sessionCount = Math.max(sessionCount, 1);
+        // 0: share the cores between the sessions
+        this.intraOpThreads = intraOpThreads > 0 ? intraOpThreads
+                : Math.max(Runtime.getRuntime().availableProcessors() / this.sessionCount, 1);
+        this.maxLength = maxLength;
+        this.maxBatchSize = maxBatchSize;
+
+        this.inferenceTimer = Timer.builder("emotion.onnx.inference")
+                .description("Time of one ONNX inference (tokenization included)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("emotion.onnx.batch.size")
+                .description("Messages per ONNX inference")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() throws IOException, OrtException {
+        Path model = modelDir.resolve(modelFile);
+        if (!Files.isRegularFile(model)) {
+            throw new IllegalStateException("ONNX model not found: " + model.toAbsolutePath()
+                    + " (export it with resilia-ai-service/export_onnx.py)");
+        }
+        long start = System.nanoTime();
+        tokenizer = RobertaTokenizer.load(modelDir);
+        labels = readLabels(modelDir.resolve("config.json"));
+
+        environment = OrtEnvironment.getEnvironment();
+        sessions = new ArrayBlockingQueue<>(sessionCount);
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            options.setIntraOpNumThreads(intraOpThreads);
+            for (int i = 0; i < sessionCount; i++) {
+                sessions.add(environment.createSession(model.toString(), options));
+            }
+        }
+        needsTokenTypeIds = sessions.peek().getInputNames().contains("token_type_ids");
+
+        AtomicInteger counter = new AtomicInteger();
+        inferenceExecutor = Executors.newFixedThreadPool(sessionCount, runnable -> {
+            Thread thread = new Thread(runnable, "onnx-emotion-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("ONNX emotion model loaded in {} ms ({} session(s) x {} thread(s))",
+                (System.nanoTime() - start) / 1_000_000, sessionCount, intraOpThreads);
+    }
+
+    @PreDestroy
+    public void close() throws OrtException {
+        if (inferenceExecutor != null) {
+            inferenceExecutor.shutdownNow();
+        }
+        if (sessions != null) {
+            for (OrtSession session : sessions) {
+                session.close();
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> classify(String message, Observation parent) {
+        return classifyBatch(List.of(message), parent).thenApply(emotions -> emotions.get(0));
+    }
+
+    /**
+     * Runs on the inference threads; batches larger than ia.onnx.max-batch are split.
+     */
+    @Override
+    public CompletableFuture<List<String>> classifyBatch(List<String> messages, Observation parent) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<String> emotions = new ArrayList<>(messages.size());
+            for (int from = 0; from < messages.size(); from += maxBatchSize) {
+                emotions.addAll(infer(messages.subList(from, Math.min(from + maxBatchSize, messages.size()))));
+            }
+            return emotions;
+        }, inferenceExecutor);
+    }
+
+    private List<String> infer(List<String> messages) {
+        Timer.Sample sample = Timer.start();
+        batchSizes.record(messages.size());
+
+        // 1. Tokenize and pad to the longest message of the batch.
+        int[][] tokens = new int[messages.size()][];
+        int length = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = tokenizer.encode(messages.get(i), maxLength);
+            length = Math.max(length, tokens[i].length);
+        }
+        long[] inputIds = new long[tokens.length * length];
+        long[] attentionMask = new long[tokens.length * length];
+        Arrays.fill(inputIds, tokenizer.getPadId());
+        for (int i = 0; i < tokens.length; i++) {
+            for (int j = 0; j < tokens[i].length; j++) {
+                inputIds[i * length + j] = tokens[i][j];
+                attentionMask[i * length + j] = 1;
+            }
+        }
+        long[] shape = {tokens.length, length};
+
+        // 2. One inference for the whole batch, on a session of the pool.
+        OrtSession session = null;
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, LongBuffer.wrap(inputIds), shape));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, LongBuffer.wrap(attentionMask), shape));
+            if (needsTokenTypeIds) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, LongBuffer.allocate(inputIds.length), shape));
+            }
+            session = sessions.take();
+            try (OrtSession.Result result = session.run(inputs)) {
+                float[][] logits = (float[][]) result.get(0).getValue();
+                List<String> emotions = new ArrayList<>(logits.length);
+                for (float[] row : logits) {
+                    emotions.add(labels[argMax(row)]);
+                }
+                return emotions;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (OrtException e) {
+            throw new CompletionException(e);
+        } finally {
+            if (session != null) {
+                sessions.add(session);
+            }
+            inputs.values().forEach(OnnxTensor::close);
+            sample.stop(inferenceTimer);
+        }
+    }
+
+    private static int argMax(float[] values) {
+        int best = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Label names by class index, from the "id2label" of the model's config.json.
+     */
+    private static String[] readLabels(Path configJson) throws IOException {
+        JsonNode id2label = new ObjectMapper().readTree(configJson.toFile()).path("id2label");
+        String[] labels = new String[id2label.size()];
+        id2label.fields().forEachRemaining(entry -> labels[Integer.parseInt(entry.getKey())] = entry.getValue().asText());
+        if (labels.length == 0) {
+            throw new IOException("No id2label in " + configJson);
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,168 @@
+package com.resilia.ai.model.demo.services;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sentence embeddings from the hidden states of the fine-tuned RoBERTa, run with ONNX Runtime (CPU).
+ *
+ * encoder.onnx is exported by resilia-ai-service/export_onnx.py --encoder: the model without its
+ * classification head, with the last hidden states averaged over the real tokens and L2-normalized
+ * (output "sentence_embedding"). No second model to ship: same weights, same tokenizer.
+ *
+ * One session shared by gemini.semantic-cache.encoder-threads inference threads (an OrtSession
+ * can run concurrently), one message per inference.
+ */
+@Component
+@ConditionalOnProperty(name = "gemini.semantic-cache.enabled", havingValue = "true")
+public class OnnxSentenceEncoder implements SentenceEncoder {
+
+    private static final Logger log = LoggerFactory.getLogger(OnnxSentenceEncoder.class);
+
+    private static final String OUTPUT = "sentence_embedding";
+
+    private final Path modelDir;
+    private final String modelFile;
+    private final int threads;
+    private final int maxLength;
+
+    private OrtEnvironment environment;
+    private OrtSession session;
+    private ExecutorService inferenceExecutor;
+    private RobertaTokenizer tokenizer;
+    private boolean needsTokenTypeIds;
+    private int dimension;
+
+    @Autowired
+    public OnnxSentenceEncoder(@Value("${gemini.semantic-cache.model-dir:${ia.onnx.model-dir:../resilia-ai-service/final_roberta_emotion_model}}") String modelDir,
+                               @Value("${gemini.semantic-cache.model-file:encoder.onnx}") String modelFile,
+                               @Value("${gemini.semantic-cache.encoder-threads:2}") int threads,
+                               @Value("${ia.onnx.max-length:128}") int maxLength) {
+        this.modelDir = Path.of(modelDir);
+        this.modelFile = modelFile;
+        this.threads = Math.max(threads, 1);
+        this.maxLength = maxLength;
+    }
+
+    @PostConstruct
+    public void load() throws IOException, OrtException {
+        Path model = modelDir.resolve(modelFile);
+        if (!Files.isRegularFile(model)) {
+            throw new IllegalStateException("Sentence encoder not found: " + model.toAbsolutePath()
+                    + " (export it with resilia-ai-service/export_onnx.py --encoder)");
+        }
+        long start = System.nanoTime();
+        tokenizer = RobertaTokenizer.load(modelDir);
+
+        environment = OrtEnvironment.getEnvironment();
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            options.setIntraOpNumThreads(Math.max(Runtime.getRuntime().availableProcessors() / threads, 1));
+            session = environment.createSession(model.toString(), options);
+        }
+        needsTokenTypeIds = session.getInputNames().contains("token_type_ids");
+        if (!session.getOutputInfo().containsKey(OUTPUT)) {
+            throw new IllegalStateException(model + " has no '" + OUTPUT + "' output");
+        }
+        long[] shape = ((TensorInfo) session.getOutputInfo().get(OUTPUT).getInfo()).getShape();
+        dimension = (int) shape[shape.length - 1];
+        // First inference is slow (graph optimizations, allocations): not on a user's lookup
+        infer("warm up");
+
+        AtomicInteger counter = new AtomicInteger();
+        inferenceExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "onnx-encoder-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("ONNX sentence encoder loaded in {} ms (dimension {})",
+                (System.nanoTime() - start) / 1_000_000, dimension);
+    }
+
+    @PreDestroy
+    public void close() throws OrtException {
+        if (inferenceExecutor != null) {
+            inferenceExecutor.shutdownNow();
+        }
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    @Override
+    public CompletableFuture<float[]> embed(String message) {
+        return CompletableFuture.supplyAsync(() -> infer(message), inferenceExecutor);
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    private float[] infer(String message) {
+        int[] tokens = tokenizer.encode(message, maxLength);
+        long[] inputIds = Arrays.stream(tokens).asLongStream().toArray();
+        long[] attentionMask = new long[tokens.length];
+        Arrays.fill(attentionMask, 1);
+        long[] shape = {1, tokens.length};
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, LongBuffer.wrap(inputIds), shape));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, LongBuffer.wrap(attentionMask), shape));
+            if (needsTokenTypeIds) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, LongBuffer.allocate(tokens.length), shape));
+            }
+            try (OrtSession.Result result = session.run(inputs, Set.of(OUTPUT))) {
+                float[] embedding = ((float[][]) result.get(0).getValue())[0];
+                return normalize(embedding);
+            }
+        } catch (OrtException e) {
+            throw new CompletionException(e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    /**
+     * L2 normalization, in case the exported graph does not normalize itself.
+     */
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] /= (float) norm;
+            }
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,148 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.entites.User;
+import com.resilia.ai.model.demo.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Profile photos: links users to the files of the ProfilePhotoStore.
+ *
+ * Clients receive a URL (/api/photos/{userId}/{key}) instead of the image itself,
+ * so login, register and profile responses stay a few hundred bytes.
+ * At startup, photos still stored as base64 in the old users.profile_photo column
+ * are moved to the store (profile.photos.migrate-on-startup).
+ */
+@Service
+public class ProfilePhotoService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilePhotoService.class);
+
+    private static final String DATA_URL_PREFIX = "data:";
+    private static final String BASE64_MARKER = ";base64,";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProfilePhotoStore profilePhotoStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${profile.photos.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+
+    /**
+     * Saves a new photo for the user, then removes the previous file.
+     * @throws IllegalArgumentException if the image type or size is not accepted.
+     */
+    public void replace(User user, String contentType, InputStream content) throws IOException {
+        String previousKey = user.getProfilePhotoKey();
+        String key = profilePhotoStore.save(user.getId(), contentType, content);
+        user.setProfilePhotoKey(key);
+        userRepository.save(user);
+        if (previousKey != null && !previousKey.equals(key)) {
+            profilePhotoStore.delete(user.getId(), previousKey);
+        }
+    }
+
+    /**
+     * Same as replace(), for the "data:image/png;base64,..." value sent by the profile form.
+     */
+    public void replaceFromDataUrl(User user, String dataUrl) throws IOException {
+        int marker = dataUrl.indexOf(BASE64_MARKER);
+        if (!isDataUrl(dataUrl) || marker < 0) {
+            throw new IllegalArgumentException("Expected a base64 data URL");
+        }
+        String contentType = dataUrl.substring(DATA_URL_PREFIX.length(), marker);
+        byte[] image = Base64.getMimeDecoder().decode(dataUrl.substring(marker + BASE64_MARKER.length()));
+        replace(user, contentType, new ByteArrayInputStream(image));
+    }
+
+    public void remove(User user) {
+        String previousKey = user.getProfilePhotoKey();
+        if (previousKey == null) {
+            return;
+        }
+        user.setProfilePhotoKey(null);
+        userRepository.save(user);
+        profilePhotoStore.delete(user.getId(), previousKey);
+    }
+
+    public static boolean isDataUrl(String value) {
+        return value != null && value.startsWith(DATA_URL_PREFIX);
+    }
+
+    /**
+     * Absolute URL of the user's photo (the frontend runs on another origin), or null.
+     * Must be called while handling a request.
+     */
+    public String urlOf(User user) {
+        if (user.getProfilePhotoKey() == null) {
+            return null;
+        }
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/photos/{userId}/{key}")
+                .buildAndExpand(user.getId(), user.getProfilePhotoKey())
+                .toUriString();
+    }
+
+    /**
+     * Moves the base64 photos of the old LONGTEXT column to the store, one user at a time.
+     * A user's column is cleared only after its photo was saved; values that are not data
+     * URLs, or that fail to migrate, are kept and retried at the next startup.
+     * Does nothing when the column does not exist (new databases).
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!migrateOnStartup) {
+            return;
+        }
+        List<Long> userIds;
+        try {
+            userIds = jdbcTemplate.queryForList("SELECT id FROM users WHERE profile_photo IS NOT NULL", Long.class);
+        } catch (DataAccessException e) {
+            return; // No legacy column.
+        }
+
+        int migrated = 0;
+        int skipped = 0;
+        for (Long userId : userIds) {
+            try {
+                String dataUrl = jdbcTemplate.queryForObject("SELECT profile_photo FROM users WHERE id = ?", String.class, userId);
+                if (!isDataUrl(dataUrl)) {
+                    // Not a photo this migration can read: left in the column for a manual fix.
+                    log.warn("PROFILE PHOTO: user {} has a value that is not a data URL, kept in users.profile_photo", userId);
+                    skipped++;
+                    continue;
+                }
+                User user = userRepository.findById(userId).orElseThrow();
+                replaceFromDataUrl(user, dataUrl);
+                // Only cleared once the photo is safely in the store.
+                jdbcTemplate.update("UPDATE users SET profile_photo = NULL WHERE id = ?", userId);
+                migrated++;
+            } catch (Exception e) {
+                log.warn("PROFILE PHOTO: migration failed for user {} ({}), value kept", userId, e.getMessage());
+                skipped++;
+            }
+        }
+        if (migrated > 0 || skipped > 0) {
+            log.info("Profile photos moved to the photo store: {} ({} left in users.profile_photo)", migrated, skipped);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.resilia.ai.model.demo.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Local file store for profile photos (profile.photos.dir).
+ *
+ * Photos are kept out of the database: the users row only holds the photo key
+ * ("<sha-256>.<ext>"), so loading a user for authentication or for the profile
+ * never reads image bytes. A file is named after its content ("<userId>-<key>"):
+ * it never changes, which makes the key a natural ETag and lets clients cache it forever.
+ */
+@Component
+public class ProfilePhotoStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilePhotoStore.class);
+
+    // Accepted image types and the extension stored in the key.
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/png", "png",
+            "image/jpeg", "jpg",
+            "image/gif", "gif",
+            "image/webp", "webp");
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}\\.(png|jpg|gif|webp)");
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public ProfilePhotoStore(@Value("${profile.photos.dir:data/profile-photos}") String directory,
+                             @Value("${profile.photos.max-bytes:2097152}") long maxBytes) {
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.maxBytes = maxBytes;
+    }
+
+    public static boolean isSupportedType(String contentType) {
+        return contentType != null && EXTENSIONS.containsKey(contentType.toLowerCase());
+    }
+
+    /**
+     * Streams the image to disk (hashing it on the way) and returns its key.
+     * @throws IllegalArgumentException if the type is not supported or the image is too large.
+     */
+    public String save(Long userId, String contentType, InputStream content) throws IOException {
+        if (!isSupportedType(contentType)) {
+            throw new IllegalArgumentException("Unsupported image type: " + contentType);
+        }
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "upload-", ".tmp");
+        try {
+            MessageDigest sha256 = sha256();
+            long size = 0;
+            try (InputStream in = new DigestInputStream(content, sha256);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new IllegalArgumentException("Image is larger than " + maxBytes + " bytes");
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (size == 0) {
+                throw new IllegalArgumentException("Empty image");
+            }
+            String key = HexFormat.of().formatHex(sha256.digest()) + "." + EXTENSIONS.get(contentType.toLowerCase());
+            // Same content = same name: an existing file is already the right one.
+            Files.move(temp, fileOf(userId, key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return key;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The file of a photo, or null if the key is malformed or the file does not exist.
+     */
+    public Path find(Long userId, String key) {
+        if (userId == null || key == null || !KEY.matcher(key).matches()) {
+            return null;
+        }
+        Path file = fileOf(userId, key);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    public void delete(Long userId, String key) {
+        Path file = find(userId, key);
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("PROFILE PHOTO: could not delete {} ({})", file, e.getMessage());
+        }
+    }
+
+    public static String contentTypeOf(String key) {
+        String extension = key.substring(key.lastIndexOf('.') + 1);
+        return EXTENSIONS.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(extension))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse("application/octet-stream");
+    }
+
+    private Path fileOf(Long userId, String key) {
+        return directory.resolve(userId + "-" + key);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.config.AiBackendConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking version of AiService, built on WebClient (Reactor Netty).
+ *
+ * No thread waits for the backends: requests and answers are handled by the Netty event
+ * loops, so thousands of slow Gemini calls can be in flight at the same time.
+ * Prompts, parsing, the emotion cache and the BackendGuards are shared with AiService.
+ */
+@Service
+public class ReactiveAiService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveAiService.class);
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    @Autowired
+    private WebClient aiWebClient;
+
+    @Autowired
+    private AiService aiService;
+
+    @Autowired
+    private EmotionCache emotionCache;
+
+    @Autowired
+    private GenerationCache generationCache;
+
+    @Autowired
+    private SemanticReplyCache semanticReplyCache;
+
+    @Autowired
+    private EmotionBatcher emotionBatcher;
+
+    @Autowired
+    private BackendGuard emotionGuard;
+
+    @Autowired
+    private BackendGuard geminiGuard;
+
+    @Value("${gemini.api.key}")
+    private String geminiApiKey;
+
+    @Value("${gemini.api.url}")
+    private String geminiApiUrl;
+
+    @Autowired
+    private EmotionClassifier emotionClassifier;
+
+    // Only with ia.classifier=http
+    @Autowired(required = false)
+    private ClassifierEndpoints classifierEndpoints;
+
+    @Value("${chat.pipeline.mode:parallel}")
+    private String pipelineMode;
+
+    @Value("${chat.emotion.deadline-ms:1500}")
+    private long emotionDeadlineMs;
+
+    @Value("${chat.emotion.fallback:NEUTRAL}")
+    private String fallbackEmotion;
+
+    @Value("${ia.service.timeout-ms:2000}")
+    private long emotionTimeoutMs;
+
+    @Value("${gemini.timeout-ms:10000}")
+    private long geminiTimeoutMs;
+
+    @Value("${chat.stream.timeout-ms:60000}")
+    private long streamTimeoutMs;
+
+    /**
+     * Same pipeline as AiService.respond(): classifier and Gemini in parallel
+     * (or classifier first, depending on chat.pipeline.mode). In parallel mode, prompts the reply
+     * caches accept only wait for the emotion when a cached answer may exist for it.
+     */
+    public Mono<AiService.AiReply> respond(String contextHistory, String currentUserMessage) {
+        Mono<String> emotion = analyzeEmotion(currentUserMessage).cache();
+
+        Mono<String> reply;
+        if ("classify-first".equalsIgnoreCase(pipelineMode)) {
+            reply = emotion.flatMap(detected -> generateAiResponse(detected, contextHistory, currentUserMessage));
+        } else if (!aiService.cachesAccept(contextHistory, currentUserMessage)) {
+            reply = generateAiResponse(null, contextHistory, currentUserMessage);
+        } else {
+            reply = Mono.fromFuture(() -> aiService.cachedAnswerLikely(contextHistory, currentUserMessage))
+                    .flatMap(likely -> likely
+                            ? emotion.flatMap(detected -> generateAiResponse(detected, contextHistory, currentUserMessage))
+                            : generateAndRemember(emotion, contextHistory, currentUserMessage));
+        }
+
+        return Mono.zip(emotion, reply, AiService.AiReply::new);
+    }
+
+    /**
+     * Gemini without waiting for the emotion (cache miss in parallel mode); the answer is
+     * remembered by the reply caches once the emotion is known.
+     */
+    private Mono<String> generateAndRemember(Mono<String> emotion, String contextHistory, String currentUserMessage) {
+        Mono<Tuple2<Long, String>> timedCall = guarded(geminiGuard, geminiCall(null, contextHistory, currentUserMessage),
+                Duration.ofMillis(geminiTimeoutMs)).elapsed();
+        return Mono.zip(emotion, timedCall)
+                .doOnNext(both -> aiService.rememberAnswer(both.getT1(), contextHistory, currentUserMessage,
+                        both.getT2().getT2(), TimeUnit.MILLISECONDS.toNanos(both.getT2().getT1())))
+                .map(both -> both.getT2().getT2())
+                .onErrorResume(e -> {
+                    log.warn("GEMINI UNAVAILABLE: {}", e.getMessage());
+                    return Mono.just(AiService.UNAVAILABLE_REPLY);
+                });
+    }
+
+    /**
+     * Emotion label (upper case). Never fails: errors and a late classifier give the fallback.
+     */
+    public Mono<String> analyzeEmotion(String userMessage) {
+        return Mono.fromFuture(() -> emotionCache.get(userMessage, message -> emotionBatcher.isEnabled()
+                        ? emotionBatcher.submit(message).orTimeout(emotionTimeoutMs, TimeUnit.MILLISECONDS)
+                        : guarded(emotionGuard, requestEmotion(message), Duration.ofMillis(emotionTimeoutMs)).toFuture()))
+                .map(String::toUpperCase)
+                .defaultIfEmpty("NEUTRAL")
+                .onErrorReturn(fallbackEmotion)
+                .timeout(Duration.ofMillis(emotionDeadlineMs), Mono.just(fallbackEmotion));
+    }
+
+    /**
+     * Gemini's full answer. Never fails: errors are turned into the fallback sentence.
+     * Prompts without conversation context may be answered by the GenerationCache.
+     */
+    public Mono<String> generateAiResponse(String emotion, String contextHistory, String currentUserMessage) {
+        Mono<String> call = geminiCall(emotion, contextHistory, currentUserMessage);
+        return Mono.fromFuture(() -> generationCache.get(emotion, contextHistory, currentUserMessage,
+                        () -> semanticReplyCache.get(emotion, contextHistory, currentUserMessage,
+                                () -> guarded(geminiGuard, call, Duration.ofMillis(geminiTimeoutMs)).toFuture())))
+                .onErrorResume(e -> {
+                    log.warn("GEMINI UNAVAILABLE: {}", e.getMessage());
+                    return Mono.just(AiService.UNAVAILABLE_REPLY);
+                });
+    }
+
+    /**
+     * One Gemini generation, not cached nor guarded.
+     */
+    private Mono<String> geminiCall(String emotion, String contextHistory, String currentUserMessage) {
+        return Mono.fromCallable(() -> aiService.buildGeminiBody(
+                        aiService.buildPrompt(emotion, contextHistory, currentUserMessage)))
+                .flatMap(body -> aiWebClient.post()
+                        .uri(geminiApiUrl + "?key={key}", geminiApiKey.trim()) // Template: the key stays out of metrics and spans
+                        .attribute(AiBackendConfig.EXTERNAL_CALL, true)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(body)
+                        .retrieve()
+                        .bodyToMono(String.class))
+                .map(response -> {
+                    try {
+                        return aiService.extractTextFromGeminiResponse(response);
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Unreadable Gemini answer", e);
+                    }
+                });
+    }
+
+    /**
+     * Gemini's answer as it is generated (streamGenerateContent, Server-Sent Events).
+     * Chunks are only read from the socket when the subscriber asks for them (backpressure).
+     * Never fails: on error the fallback sentence is emitted as the last chunk.
+     */
+    public Flux<String> streamAiResponse(String emotion, String contextHistory, String currentUserMessage) {
+        Flux<String> chunks = Mono.fromCallable(() -> aiService.buildGeminiBody(
+                        aiService.buildPrompt(emotion, contextHistory, currentUserMessage)))
+                .flatMapMany(body -> aiWebClient.post()
+                        .uri(aiService.getGeminiStreamUrl() + "?alt=sse&key={key}", geminiApiKey.trim())
+                        .attribute(AiBackendConfig.EXTERNAL_CALL, true)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .bodyValue(body)
+                        .retrieve()
+                        .bodyToFlux(SSE_TYPE))
+                .mapNotNull(ServerSentEvent::data)
+                .handle((data, sink) -> {
+                    try {
+                        String chunk = aiService.extractRawText(data);
+                        if (!chunk.isEmpty()) {
+                            sink.next(chunk);
+                        }
+                    } catch (Exception e) {
+                        log.debug("GEMINI STREAM: skipping malformed chunk.");
+                    }
+                });
+
+        return guardedStream(geminiGuard, chunks, Duration.ofMillis(streamTimeoutMs))
+                .onErrorResume(e -> {
+                    log.warn("GEMINI STREAM UNAVAILABLE: {}", e.getMessage());
+                    return Flux.just(AiService.UNAVAILABLE_REPLY);
+                });
+    }
+
+    /**
+     * Same replica selection as the blocking pipeline; the replica's slot is held until
+     * the exchange ends (answer, error or cancellation by the timeout).
+     */
+    private Mono<String> requestEmotion(String userMessage) {
+        if (classifierEndpoints == null) {
+            // In-process model: there is no HTTP exchange to hand to Netty.
+            return Mono.fromFuture(() -> emotionClassifier.classify(userMessage, null));
+        }
+        return Mono.defer(() -> {
+            ClassifierEndpoints.Lease lease = classifierEndpoints.acquire();
+            return aiWebClient.post()
+                    .uri(lease.uri("/analyze"))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(Map.of("message", userMessage))
+                    .retrieve()
+                    .bodyToMono(Map.class)
+                    .mapNotNull(response -> (String) response.get("emotion"))
+                    .doOnSuccess(emotion -> lease.release(200))
+                    .doOnError(error -> lease.release(error instanceof WebClientResponseException e
+                            ? e.getStatusCode().value() : -1))
+                    .doOnCancel(() -> lease.release(0));
+        });
+    }
+
+    /**
+     * Runs a Mono through a BackendGuard. The timeout cancels the HTTP exchange,
+     * which frees the pooled connection right away. As in AiService, only 5xx, 429 and
+     * transport errors count as failures; a cancelled call counts as nothing.
+     */
+    static <T> Mono<T> guarded(BackendGuard guard, Mono<T> call, Duration timeout) {
+        return Mono.defer(() -> {
+            BackendGuard.Permit permit = guard.acquire();
+            return call.timeout(timeout)
+                    .doOnSuccess(value -> permit.release(null))
+                    .doOnError(error -> permit.release(isBackendFailure(error) ? error : null))
+                    .doOnCancel(permit::abandon);
+        });
+    }
+
+    static <T> Flux<T> guardedStream(BackendGuard guard, Flux<T> call, Duration timeout) {
+        return Flux.defer(() -> {
+            BackendGuard.Permit permit = guard.acquire();
+            return call.take(timeout)
+                    .doOnComplete(() -> permit.release(null))
+                    .doOnError(error -> permit.release(isBackendFailure(error) ? error : null))
+                    .doOnCancel(permit::abandon);
+        });
+    }
+
+    /**
+     * A 4xx answer (bad request, bad key) is the caller's fault: the backend is up.
+     */
+    private static boolean isBackendFailure(Throwable error) {
+        if (error instanceof WebClientResponseException e) {
+            int status = e.getStatusCode().value();
+            return status >= 500 || status == 429;
+        }
+        return true;
+    }
+}
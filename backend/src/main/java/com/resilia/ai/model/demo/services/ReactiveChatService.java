@@ -0,0 +1,103 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.DTO.ChatDtos.UserMessageRequest;
+import com.resilia.ai.model.demo.DTO.ChatResponse;
+import com.resilia.ai.model.demo.entites.Conversation;
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking chat pipeline (POST /api/chat/reactive/...).
+ *
+ * Same steps and same database writes as ChatService, but the AI calls go through
+ * ReactiveAiService and no request thread waits for them. JPA is blocking, so every
+ * database step (find/create the conversation, load the context, save the turn) is
+ * offloaded to Reactor's boundedElastic scheduler and never runs on an event loop.
+ */
+@Service
+public class ReactiveChatService {
+
+    private static final String FALLBACK_REPLY = "I'm having trouble connecting right now, but I saved your message.";
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ReactiveAiService reactiveAiService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public Mono<ChatResponse> processUserMessage(UserMessageRequest request) {
+        // Read while still on the request thread: the security context is thread-bound.
+        Long userId = chatService.getCurrentUserId();
+
+        return prepareTurn(request, userId).flatMap(turn ->
+                reactiveAiService.respond(turn.context, request.getUserMessage())
+                        .onErrorResume(e -> Mono.just(new AiService.AiReply("NEUTRAL", FALLBACK_REPLY)))
+                        .flatMap(reply -> saveTurn(turn, reply.getEmotion(), reply.getText())));
+    }
+
+    /**
+     * Streaming version: "token" events while Gemini writes, "emotion" when the classifier
+     * answers, then "done" with the saved ChatResponse. Tokens are pulled from Gemini only
+     * as fast as the client reads them.
+     */
+    public Flux<ServerSentEvent<Object>> streamUserMessage(UserMessageRequest request) {
+        Long userId = chatService.getCurrentUserId();
+
+        return prepareTurn(request, userId).flatMapMany(turn -> {
+            Mono<String> emotion = reactiveAiService.analyzeEmotion(request.getUserMessage()).cache();
+            StringBuilder fullText = new StringBuilder();
+
+            Flux<ServerSentEvent<Object>> tokens = reactiveAiService
+                    .streamAiResponse(null, turn.context, request.getUserMessage())
+                    .doOnNext(fullText::append)
+                    .map(chunk -> event("token", chunk));
+            Flux<ServerSentEvent<Object>> emotionEvent = emotion.map(detected -> event("emotion", detected)).flux();
+
+            Mono<ServerSentEvent<Object>> done = Mono.defer(() -> emotion
+                    .flatMap(detected -> saveTurn(turn, detected, fullText.toString().trim()))
+                    .map(response -> event("done", response)));
+
+            return Flux.merge(tokens, emotionEvent).concatWith(done);
+        });
+    }
+
+    private Mono<PreparedTurn> prepareTurn(UserMessageRequest request, Long userId) {
+        return Mono.fromCallable(() -> {
+            Conversation conversation = chatService.resolveConversation(request, userRepository.getReferenceById(userId));
+            Message userMsg = chatService.newUserMessage(conversation, request.getUserMessage());
+            return new PreparedTurn(conversation, userMsg, chatService.buildContext(request, conversation));
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<ChatResponse> saveTurn(PreparedTurn turn, String emotion, String aiResponseText) {
+        return Mono.fromCallable(() -> {
+            chatService.completeTurn(turn.conversation, turn.userMsg, emotion, aiResponseText);
+            return new ChatResponse(aiResponseText, emotion, turn.conversation.getId());
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
+
+    private static class PreparedTurn {
+        private final Conversation conversation;
+        private final Message userMsg;
+        private final String context;
+
+        PreparedTurn(Conversation conversation, Message userMsg, String context) {
+            this.conversation = conversation;
+            this.userMsg = userMsg;
+            this.context = context;
+        }
+    }
+}
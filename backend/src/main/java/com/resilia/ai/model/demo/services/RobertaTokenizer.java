@@ -0,0 +1,175 @@
+package com.resilia.ai.model.demo.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte-level BPE tokenizer of RoBERTa (same algorithm as GPT-2), in plain Java, so the
+ * ONNX classifier does not need Python to prepare its inputs.
+ *
+ * Loaded from the files saved with the model: tokenizer.json, or vocab.json + merges.txt.
+ * encode() gives the same ids as the Hugging Face RobertaTokenizer with add_prefix_space=false:
+ * <s> tokens </s>, truncated to maxLength. Special tokens written in the text ("<s>", "<mask>")
+ * are tokenized as plain text.
+ */
+public class RobertaTokenizer {
+
+    // GPT-2 pre-tokenization: contractions, words, numbers, punctuation, spaces.
+    private static final Pattern PRE_TOKENIZER = Pattern.compile(
+            "'s|'t|'re|'ve|'m|'ll|'d| ?\\p{L}+| ?\\p{N}+| ?[^\\s\\p{L}\\p{N}]+|\\s+(?!\\S)|\\s+",
+            Pattern.UNICODE_CHARACTER_CLASS);
+
+    private static final char[] BYTE_TO_CHAR = byteToUnicode();
+
+    private final Map<String, Integer> vocab;
+    private final Map<String, Integer> mergeRanks;
+    private final int bosId;
+    private final int eosId;
+    private final int padId;
+    private final int unkId;
+    // Words repeat a lot in chat messages: their BPE result is kept.
+    private final Cache<String, int[]> wordCache = Caffeine.newBuilder().maximumSize(50_000).build();
+
+    RobertaTokenizer(Map<String, Integer> vocab, List<String> merges) {
+        this.vocab = vocab;
+        this.mergeRanks = new HashMap<>();
+        for (String merge : merges) {
+            mergeRanks.putIfAbsent(merge, mergeRanks.size());
+        }
+        this.bosId = vocab.getOrDefault("<s>", 0);
+        this.padId = vocab.getOrDefault("<pad>", 1);
+        this.eosId = vocab.getOrDefault("</s>", 2);
+        this.unkId = vocab.getOrDefault("<unk>", 3);
+    }
+
+    /**
+     * Loads tokenizer.json from the model directory, or vocab.json + merges.txt when it is missing.
+     */
+    public static RobertaTokenizer load(Path modelDir) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Integer> vocab = new HashMap<>();
+        List<String> merges = new ArrayList<>();
+
+        Path tokenizerJson = modelDir.resolve("tokenizer.json");
+        if (Files.exists(tokenizerJson)) {
+            JsonNode root = objectMapper.readTree(tokenizerJson.toFile());
+            JsonNode model = root.path("model");
+            model.path("vocab").fields().forEachRemaining(entry -> vocab.put(entry.getKey(), entry.getValue().asInt()));
+            for (JsonNode merge : model.path("merges")) {
+                // Older files store "a b", newer ones ["a", "b"].
+                merges.add(merge.isArray() ? merge.get(0).asText() + " " + merge.get(1).asText() : merge.asText());
+            }
+            for (JsonNode added : root.path("added_tokens")) {
+                vocab.put(added.path("content").asText(), added.path("id").asInt());
+            }
+        } else {
+            objectMapper.readTree(modelDir.resolve("vocab.json").toFile())
+                    .fields().forEachRemaining(entry -> vocab.put(entry.getKey(), entry.getValue().asInt()));
+            for (String line : Files.readAllLines(modelDir.resolve("merges.txt"), StandardCharsets.UTF_8)) {
+                if (!line.isBlank() && !line.startsWith("#version")) {
+                    merges.add(line);
+                }
+            }
+        }
+        if (vocab.isEmpty() || merges.isEmpty()) {
+            throw new IOException("No BPE vocabulary in " + modelDir);
+        }
+        return new RobertaTokenizer(vocab, merges);
+    }
+
+    /**
+     * Token ids of one text: <s> ... </s>, at most maxLength ids in total.
+     */
+    public int[] encode(String text, int maxLength) {
+        List<Integer> ids = new ArrayList<>();
+        ids.add(bosId);
+        Matcher matcher = PRE_TOKENIZER.matcher(text);
+        while (matcher.find() && ids.size() < maxLength - 1) {
+            for (int id : wordCache.get(matcher.group(), this::bpe)) {
+                if (ids.size() == maxLength - 1) {
+                    break;
+                }
+                ids.add(id);
+            }
+        }
+        ids.add(eosId);
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public int getPadId() {
+        return padId;
+    }
+
+    /**
+     * Maps the UTF-8 bytes of a word to printable characters, then applies the merges
+     * from the lowest rank up until no known pair is left.
+     */
+    private int[] bpe(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        List<String> symbols = new ArrayList<>(bytes.length);
+        for (byte b : bytes) {
+            symbols.add(String.valueOf(BYTE_TO_CHAR[b & 0xFF]));
+        }
+
+        while (symbols.size() > 1) {
+            int bestRank = Integer.MAX_VALUE;
+            int bestIndex = -1;
+            for (int i = 0; i < symbols.size() - 1; i++) {
+                Integer rank = mergeRanks.get(symbols.get(i) + " " + symbols.get(i + 1));
+                if (rank != null && rank < bestRank) {
+                    bestRank = rank;
+                    bestIndex = i;
+                }
+            }
+            if (bestIndex < 0) {
+                break;
+            }
+            // Merge every occurrence of the best pair, left to right.
+            String first = symbols.get(bestIndex);
+            String second = symbols.get(bestIndex + 1);
+            List<String> merged = new ArrayList<>(symbols.size());
+            for (int i = 0; i < symbols.size(); i++) {
+                if (i < symbols.size() - 1 && symbols.get(i).equals(first) && symbols.get(i + 1).equals(second)) {
+                    merged.add(first + second);
+                    i++;
+                } else {
+                    merged.add(symbols.get(i));
+                }
+            }
+            symbols = merged;
+        }
+
+        int[] ids = new int[symbols.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = vocab.getOrDefault(symbols.get(i), unkId);
+        }
+        return ids;
+    }
+
+    /**
+     * GPT-2's reversible byte -> character table: printable bytes map to themselves,
+     * the others (spaces, control bytes) to characters from U+0100 on (a space becomes U+0120).
+     */
+    private static char[] byteToUnicode() {
+        char[] table = new char[256];
+        int next = 0;
+        for (int b = 0; b < 256; b++) {
+            boolean printable = (b >= '!' && b <= '~') || (b >= 0xA1 && b <= 0xAC) || (b >= 0xAE && b <= 0xFF);
+            table[b] = printable ? (char) b : (char) (256 + next++);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,409 @@
+package com.resilia.ai.model.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.KnnFloatVectorQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Semantic cache of Gemini answers: a paraphrase of a prompt already answered ("I feel so lonely",
+ * "i'm really lonely tonight") with the same emotion label gets one of the kept answers.
+ * Sits behind GenerationCache (exact match) and only sees its misses.
+ *
+ * - Messages are embedded by the SentenceEncoder (hidden states of the emotion model, ONNX, CPU).
+ * - Embeddings live in a Lucene HNSW vector index (dot product on normalized vectors = cosine).
+ *   With gemini.semantic-cache.dir set, the index is memory-mapped from that directory: vectors
+ *   and graph stay off-heap, and the last snapshot is reopened as is on restart (no re-embedding).
+ *   Empty dir: in-memory index, lost on restart.
+ * - A lookup returns a random answer among the 3 nearest ones of the same emotion whose cosine
+ *   similarity is at least gemini.semantic-cache.min-similarity. Otherwise Gemini is called and
+ *   its answer indexed. Failed calls are never indexed.
+ * - Like GenerationCache, only prompts without conversation context are looked up, and only with
+ *   a detected emotion: a null emotion is a bypass, never a match across tones. In parallel mode,
+ *   AiService.respond() only waits for the emotion when hasNeighbour() finds a similar prompt (any
+ *   emotion); otherwise Gemini starts right away and its answer is indexed with remember().
+ * - Bounded: beyond gemini.semantic-cache.max-entries the oldest answers are deleted, and answers
+ *   older than gemini.semantic-cache.ttl-minutes are ignored then deleted. A maintenance thread
+ *   refreshes the searcher every second, evicts, and commits a snapshot every
+ *   gemini.semantic-cache.snapshot-interval-s seconds (and on shutdown).
+ * - Lookups are bounded by gemini.semantic-cache.lookup-timeout-ms: a slow or failed encoder
+ *   only costs that delay, the prompt then goes to Gemini.
+ *
+ * Disabled unless gemini.semantic-cache.enabled=true (it needs encoder.onnx, see OnnxSentenceEncoder).
+ * Metrics: gemini.semantic-cache.requests (tag result=hit|miss|bypass|error),
+ * gemini.semantic-cache.similarity (best similarity of each lookup, to tune the threshold),
+ * gemini.semantic-cache.lookup (timer), gemini.semantic-cache.size.
+ */
+@Component
+public class SemanticReplyCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticReplyCache.class);
+
+    private static final String VECTOR = "embedding";
+    private static final String EMOTION = "emotion";
+    private static final String SEQ = "seq";
+    private static final String CREATED = "created";
+    private static final String REPLY = "reply";
+    private static final int CANDIDATES = 3;
+
+    private final boolean enabled;
+    private final String dir;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final double minSimilarity;
+    private final int maxContextChars;
+    private final int maxMessageChars;
+    private final long lookupTimeoutMs;
+    private final long snapshotIntervalS;
+    private final SentenceEncoder encoder;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypasses;
+    private final Counter errors;
+    private final DistributionSummary similarities;
+    private final Timer lookupTimer;
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private ScheduledExecutorService maintenance;
+    private final AtomicLong lastSeq = new AtomicLong();
+    private volatile long size;
+
+    @Autowired
+    public SemanticReplyCache(@Value("${gemini.semantic-cache.enabled:false}") boolean enabled,
+                              @Value("${gemini.semantic-cache.dir:}") String dir,
+                              @Value("${gemini.semantic-cache.max-entries:20000}") int maxEntries,
+                              @Value("${gemini.semantic-cache.ttl-minutes:10080}") long ttlMinutes,
+                              @Value("${gemini.semantic-cache.min-similarity:0.92}") double minSimilarity,
+                              @Value("${gemini.cache.max-context-chars:0}") int maxContextChars,
+                              @Value("${gemini.cache.max-message-chars:200}") int maxMessageChars,
+                              @Value("${gemini.semantic-cache.lookup-timeout-ms:200}") long lookupTimeoutMs,
+                              @Value("${gemini.semantic-cache.snapshot-interval-s:60}") long snapshotIntervalS,
+                              @Nullable SentenceEncoder encoder,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled && encoder != null;
+        this.dir = dir;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = Duration.ofMinutes(ttlMinutes).toMillis();
+        this.minSimilarity = minSimilarity;
+        this.maxContextChars = maxContextChars;
+        this.maxMessageChars = maxMessageChars;
+        this.lookupTimeoutMs = lookupTimeoutMs;
+        this.snapshotIntervalS = snapshotIntervalS;
+        this.encoder = encoder;
+
+        hits = meterRegistry.counter("gemini.semantic-cache.requests", "result", "hit");
+        misses = meterRegistry.counter("gemini.semantic-cache.requests", "result", "miss");
+        bypasses = meterRegistry.counter("gemini.semantic-cache.requests", "result", "bypass");
+        errors = meterRegistry.counter("gemini.semantic-cache.requests", "result", "error");
+        similarities = DistributionSummary.builder("gemini.semantic-cache.similarity")
+                .description("Cosine similarity of the nearest kept prompt, per lookup")
+                .register(meterRegistry);
+        lookupTimer = Timer.builder("gemini.semantic-cache.lookup")
+                .description("Embedding + vector search of one prompt")
+                .register(meterRegistry);
+        Gauge.builder("gemini.semantic-cache.size", this, cache -> cache.size)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        directory = dir.isBlank() ? new ByteBuffersDirectory() : new MMapDirectory(Path.of(dir));
+        writer = new IndexWriter(directory, new IndexWriterConfig()
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        if (writer.getLiveCommitData() != null) {
+            for (Map.Entry<String, String> entry : writer.getLiveCommitData()) {
+                if (SEQ.equals(entry.getKey())) {
+                    lastSeq.set(Long.parseLong(entry.getValue()));
+                }
+            }
+        }
+        searcherManager = new SearcherManager(writer, null);
+        evict();
+        refresh();
+        // First search loads the vector codecs: not on a user's lookup
+        float[] probe = new float[encoder.dimension()];
+        probe[0] = 1;
+        find("", probe);
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "semantic-cache-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::refreshQuietly, 1, 1, TimeUnit.SECONDS);
+        maintenance.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalS, snapshotIntervalS, TimeUnit.SECONDS);
+        log.info("Semantic cache: {} answers loaded in {} ms ({})", size,
+                (System.nanoTime() - start) / 1_000_000, dir.isBlank() ? "in memory" : dir);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!enabled || writer == null) {
+            return;
+        }
+        maintenance.shutdownNow();
+        snapshot();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    /**
+     * Returns a kept answer to a similar prompt, or calls the generator (Gemini) and indexes its answer.
+     * The generator must fail (not return a fallback sentence) when Gemini could not answer.
+     */
+    public CompletableFuture<String> get(String emotion, String contextHistory, String message,
+                                         Supplier<CompletableFuture<String>> generator) {
+        if (!enabled) {
+            return generator.get();
+        }
+        if (emotion == null || emotion.isBlank() || !accepts(contextHistory, message)) {
+            bypasses.increment();
+            return generator.get();
+        }
+
+        String label = emotion.toUpperCase(Locale.ROOT);
+        Timer.Sample sample = Timer.start();
+        CompletableFuture<Lookup> lookup = encoder.embed(message)
+                .thenApply(vector -> new Lookup(vector, find(label, vector)))
+                .orTimeout(lookupTimeoutMs, TimeUnit.MILLISECONDS);
+        return lookup.handle((found, error) -> {
+            sample.stop(lookupTimer);
+            if (error != null) {
+                errors.increment();
+                log.warn("SEMANTIC CACHE LOOKUP FAILED: {}", error.toString());
+                return generator.get();
+            }
+            if (found.reply != null) {
+                hits.increment();
+                return CompletableFuture.completedFuture(found.reply);
+            }
+            misses.increment();
+            return generator.get().thenApply(answer -> {
+                if (answer != null && !answer.isBlank()) {
+                    add(label, found.vector, answer);
+                }
+                return answer;
+            });
+        }).thenCompose(reply -> reply);
+    }
+
+    /**
+     * True when a similar prompt was answered before, with any emotion: a lookup with the detected
+     * emotion may hit. False when the prompt is not cacheable, or after lookup-timeout-ms.
+     */
+    public CompletableFuture<Boolean> hasNeighbour(String contextHistory, String message) {
+        if (!accepts(contextHistory, message)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return encoder.embed(message)
+                .thenApply(vector -> find(null, vector) != null)
+                .orTimeout(lookupTimeoutMs, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> false);
+    }
+
+    /**
+     * Indexes an answer Gemini gave to this prompt outside of get() (generated before the emotion
+     * was known), as one miss. Embeds the message in the background.
+     */
+    public void remember(String emotion, String contextHistory, String message, String answer) {
+        if (emotion == null || emotion.isBlank() || !accepts(contextHistory, message)
+                || answer == null || answer.isBlank()) {
+            return;
+        }
+        misses.increment();
+        String label = emotion.toUpperCase(Locale.ROOT);
+        encoder.embed(message)
+                .orTimeout(lookupTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((vector, error) -> {
+                    if (error != null) {
+                        errors.increment();
+                        log.warn("SEMANTIC CACHE EMBEDDING FAILED: {}", error.toString());
+                    } else {
+                        add(label, vector, answer);
+                    }
+                });
+    }
+
+    /**
+     * Indexes an answer. Visible to lookups after the next refresh (at most a second later).
+     */
+    void add(String emotion, float[] vector, String reply) {
+        Document document = new Document();
+        document.add(new KnnFloatVectorField(VECTOR, vector, VectorSimilarityFunction.DOT_PRODUCT));
+        document.add(new StringField(EMOTION, emotion, Field.Store.NO));
+        document.add(new LongPoint(SEQ, lastSeq.incrementAndGet()));
+        document.add(new LongPoint(CREATED, System.currentTimeMillis()));
+        document.add(new StoredField(REPLY, reply));
+        try {
+            writer.addDocument(document);
+        } catch (IOException e) {
+            log.warn("SEMANTIC CACHE WRITE FAILED: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A random answer among the nearest ones above the threshold, or null.
+     * A null emotion searches the answers of every emotion.
+     */
+    private String find(String emotion, float[] vector) {
+        BooleanQuery.Builder filterBuilder = new BooleanQuery.Builder()
+                .add(LongPoint.newRangeQuery(CREATED, System.currentTimeMillis() - ttlMillis, Long.MAX_VALUE),
+                        BooleanClause.Occur.FILTER);
+        if (emotion != null) {
+            filterBuilder.add(new TermQuery(new Term(EMOTION, emotion)), BooleanClause.Occur.FILTER);
+        }
+        Query filter = filterBuilder.build();
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                ScoreDoc[] nearest = searcher.search(new KnnFloatVectorQuery(VECTOR, vector, CANDIDATES, filter), CANDIDATES).scoreDocs;
+                if (nearest.length == 0) {
+                    return null;
+                }
+                if (emotion != null) {
+                    similarities.record(similarity(nearest[0].score));
+                }
+                List<String> replies = new ArrayList<>(nearest.length);
+                for (ScoreDoc candidate : nearest) {
+                    if (similarity(candidate.score) >= minSimilarity) {
+                        replies.add(searcher.storedFields().document(candidate.doc).get(REPLY));
+                    }
+                }
+                return replies.isEmpty() ? null : replies.get(ThreadLocalRandom.current().nextInt(replies.size()));
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lucene scores DOT_PRODUCT as (1 + dot) / 2; the dot product of normalized vectors is the cosine.
+     */
+    private static double similarity(float score) {
+        return 2.0 * score - 1.0;
+    }
+
+    /**
+     * True when answers to this prompt may come from the cache (cache enabled, short prompt
+     * without conversation context).
+     */
+    public boolean accepts(String contextHistory, String message) {
+        if (!enabled) {
+            return false;
+        }
+        int contextLength = contextHistory == null ? 0 : contextHistory.strip().length();
+        return message != null && !message.isBlank()
+                && message.length() <= maxMessageChars
+                && contextLength <= maxContextChars;
+    }
+
+    /**
+     * Makes the answers added so far visible to lookups, after evicting the ones over the bounds.
+     */
+    void refresh() throws IOException {
+        evict();
+        searcherManager.maybeRefreshBlocking();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            size = searcher.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private void evict() throws IOException {
+        writer.deleteDocuments(
+                LongPoint.newRangeQuery(SEQ, Long.MIN_VALUE, lastSeq.get() - maxEntries),
+                LongPoint.newRangeQuery(CREATED, Long.MIN_VALUE, System.currentTimeMillis() - ttlMillis - 1));
+    }
+
+    /**
+     * Commits the index (with the sequence counter) to its directory: what a restart reopens.
+     */
+    void snapshot() throws IOException {
+        writer.setLiveCommitData(Map.of(SEQ, Long.toString(lastSeq.get())).entrySet());
+        writer.commit();
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (IOException | RuntimeException e) {
+            log.warn("SEMANTIC CACHE REFRESH FAILED: {}", e.getMessage());
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.warn("SEMANTIC CACHE SNAPSHOT FAILED: {}", e.getMessage());
+        }
+    }
+
+    private static class Lookup {
+        private final float[] vector;
+        private final String reply;
+
+        Lookup(float[] vector, String reply) {
+            this.vector = vector;
+            this.reply = reply;
+        }
+    }
+}
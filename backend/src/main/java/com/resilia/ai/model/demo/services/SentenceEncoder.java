@@ -0,0 +1,17 @@
+package com.resilia.ai.model.demo.services;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Turns a message into a sentence embedding, so that paraphrases ("I feel so lonely",
+ * "i'm really lonely tonight") end up close to each other. Used by SemanticReplyCache.
+ *
+ * Implementations return L2-normalized vectors of dimension() floats: the dot product of two
+ * embeddings is their cosine similarity.
+ */
+public interface SentenceEncoder {
+
+    CompletableFuture<float[]> embed(String message);
+
+    int dimension();
+}
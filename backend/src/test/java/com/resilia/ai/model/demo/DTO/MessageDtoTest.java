@@ -0,0 +1,29 @@
+package com.resilia.ai.model.demo.DTO;
+
+import com.resilia.ai.model.demo.DTO.ChatDtos.MessageDto;
+import com.resilia.ai.model.demo.entites.Message;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageDtoTest {
+
+    @Test
+    void entityAndProjectionGiveTheSameTimestamp() {
+        LocalDateTime sentAt = LocalDateTime.of(2024, 3, 1, 20, 15, 30);
+        Message message = new Message();
+        message.setId(7L);
+        message.setContent("hello");
+        message.setSender("user");
+        message.setEmotion("JOY");
+        message.setTimestamp(sentAt);
+
+        MessageDto fromEntity = new MessageDto(message);
+        MessageDto fromProjection = new MessageDto(7L, "hello", "user", "JOY", sentAt);
+
+        assertEquals("2024-03-01T20:15:30", fromEntity.getTimestamp());
+        assertEquals(fromEntity.getTimestamp(), fromProjection.getTimestamp());
+    }
+}
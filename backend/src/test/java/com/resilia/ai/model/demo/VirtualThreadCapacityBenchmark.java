@@ -0,0 +1,134 @@
+package com.resilia.ai.model.demo;
+
+import com.resilia.ai.model.demo.config.VirtualThreads;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * How many chats can be in flight at once, per threading mode.
+ *
+ * Each simulated chat does what ChatService does on the request thread: a blocking call
+ * to an AI backend that takes BACKEND_LATENCY_MS (a stub standing in for Gemini).
+ * - "platform": a pool of 200 threads, like Tomcat's default server.tomcat.threads.max.
+ * - "virtual": one virtual thread per chat (spring.threads.virtual.enabled=true), Java 21+ only.
+ *
+ * Run with: mvn -Pbenchmark test -Dtest=VirtualThreadCapacityBenchmark [-Dbenchmark.chats=2000]
+ * (use -Pjava21,benchmark on a Java 21 JDK to measure the virtual mode).
+ */
+@Tag("benchmark")
+class VirtualThreadCapacityBenchmark {
+
+    private static final int BACKEND_LATENCY_MS = 1000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int CHATS = Integer.getInteger("benchmark.chats", 2000);
+
+    private static HttpServer backend;
+    private static ExecutorService backendExecutor;
+    private static URI backendUri;
+
+    @BeforeAll
+    static void startBackend() throws Exception {
+        backend = HttpServer.create(new InetSocketAddress("localhost", 0), CHATS);
+        backendExecutor = VirtualThreads.newPerTaskExecutor("stub-backend");
+        backend.setExecutor(backendExecutor);
+        backend.createContext("/generate", exchange -> {
+            try {
+                Thread.sleep(BACKEND_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"text\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        backend.start();
+        backendUri = URI.create("http://localhost:" + backend.getAddress().getPort() + "/generate");
+    }
+
+    @AfterAll
+    static void stopBackend() {
+        backend.stop(0);
+        backendExecutor.shutdownNow();
+    }
+
+    @Test
+    void platformThreadPool() throws Exception {
+        Result result = run("platform", Executors.newFixedThreadPool(PLATFORM_THREADS));
+        assertTrue(result.peakInFlight <= PLATFORM_THREADS);
+    }
+
+    @Test
+    void virtualThreads() throws Exception {
+        Assumptions.assumeTrue(VirtualThreads.isSupported(), "Virtual threads need Java 21+");
+        Result result = run("virtual", VirtualThreads.newPerTaskExecutor("chat"));
+        assertTrue(result.peakInFlight > PLATFORM_THREADS);
+    }
+
+    private Result run(String mode, ExecutorService requestThreads) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+
+        long start = System.nanoTime();
+        List<Future<?>> chats = new ArrayList<>(CHATS);
+        for (int i = 0; i < CHATS; i++) {
+            chats.add(requestThreads.submit(() -> {
+                peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    HttpRequest request = HttpRequest.newBuilder(backendUri).GET().build();
+                    if (client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() != 200) {
+                        failures.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> chat : chats) {
+            chat.get();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        requestThreads.shutdown();
+
+        Result result = new Result(peakInFlight.get(), elapsedMs);
+        System.out.printf("[%s] %d chats, backend %d ms: peak in flight %d, total %d ms, %.0f chats/s, %d failures%n",
+                mode, CHATS, BACKEND_LATENCY_MS, result.peakInFlight, elapsedMs,
+                CHATS * 1000.0 / Math.max(elapsedMs, 1), failures.get());
+        return result;
+    }
+
+    private static class Result {
+        private final int peakInFlight;
+        private final long elapsedMs;
+
+        Result(int peakInFlight, long elapsedMs) {
+            this.peakInFlight = peakInFlight;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+}
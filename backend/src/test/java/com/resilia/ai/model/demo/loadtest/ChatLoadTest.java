@@ -0,0 +1,104 @@
+package com.resilia.ai.model.demo.loadtest;
+
+import com.resilia.ai.model.demo.services.ChatMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end load test of the chat path: the real backend (embedded H2 database,
+ * "loadtest" profile) with stub AI backends, driven by LoadDriver.
+ *
+ * Run with: mvn -Ploadtest test
+ * Knobs (-D...): loadtest.rps (10), loadtest.duration-s (20), loadtest.turns (5),
+ * loadtest.flask.replicas (2),
+ * loadtest.flask.median-ms / p99-ms / error-rate (30 / 150 / 0.0),
+ * loadtest.gemini.median-ms / p99-ms / error-rate (800 / 3000 / 0.01).
+ */
+@Tag("loadtest")
+@ActiveProfiles("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ChatLoadTest {
+
+    private static final StubAiServers STUBS = startStubs();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void stubUrls(DynamicPropertyRegistry registry) {
+        registry.add("ia.service.urls", STUBS::flaskUrls);
+        registry.add("gemini.api.url", STUBS::generateUrl);
+        registry.add("gemini.api.stream-url", STUBS::streamGenerateUrl);
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        STUBS.close();
+    }
+
+    @Test
+    void chatSessionsAtTargetRate() throws Exception {
+        LoadDriver driver = new LoadDriver("http://localhost:" + port, Integer.getInteger("loadtest.turns", 5));
+        LoadDriver.Report report = driver.run(
+                Double.parseDouble(System.getProperty("loadtest.rps", "10")),
+                Duration.ofSeconds(Integer.getInteger("loadtest.duration-s", 20)));
+
+        System.out.println(report);
+        printStages();
+        System.out.println("Flask requests with a traceparent header: "
+                + STUBS.getTracedFlaskRequests() + " / " + STUBS.getFlaskRequests());
+        System.out.println("Flask requests per replica: " + STUBS.getFlaskRequestsPerReplica());
+        System.out.printf("Gemini cache: hit ratio %.1f%%, %.0f calls saved, %.1f s of Gemini time saved%n",
+                meterRegistry.get("gemini.cache.hit.ratio").gauge().value() * 100,
+                meterRegistry.get("gemini.cache.saved.calls").counter().count(),
+                meterRegistry.get("gemini.cache.saved.latency").counter().count());
+        System.out.printf("Search index: %.0f messages indexed, %.0f dropped%n",
+                meterRegistry.get("chat.search.indexed").counter().count(),
+                meterRegistry.get("chat.search.dropped").counter().count());
+        System.out.printf("Distress detector: %.0f users tracked, %.0f escalations, %.0f dropped%n",
+                meterRegistry.get("distress.users").gauge().value(),
+                meterRegistry.get("distress.escalations").counter().count(),
+                meterRegistry.get("distress.dropped").counter().count());
+        assertTrue(report.getTotalRequests() > 0);
+    }
+
+    // Server-side breakdown of a chat turn (ChatMetrics stages), to see where the time goes.
+    private void printStages() {
+        System.out.printf("%-20s %8s %10s %10s%n", "stage", "count", "mean ms", "max ms");
+        for (Timer timer : meterRegistry.find(ChatMetrics.STAGE_OBSERVATION).timers()) {
+            System.out.printf("%-20s %8d %10.1f %10.1f%n", timer.getId().getTag("stage"), timer.count(),
+                    timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static StubAiServers startStubs() {
+        try {
+            return new StubAiServers(Integer.getInteger("loadtest.flask.replicas", 2),
+                    new StubAiServers.LatencyProfile(Long.getLong("loadtest.flask.median-ms", 30),
+                            Long.getLong("loadtest.flask.p99-ms", 150),
+                            Double.parseDouble(System.getProperty("loadtest.flask.error-rate", "0.0"))),
+                    new StubAiServers.LatencyProfile(Long.getLong("loadtest.gemini.median-ms", 800),
+                            Long.getLong("loadtest.gemini.p99-ms", 3000),
+                            Double.parseDouble(System.getProperty("loadtest.gemini.error-rate", "0.01"))));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot start the stub AI servers", e);
+        }
+    }
+}
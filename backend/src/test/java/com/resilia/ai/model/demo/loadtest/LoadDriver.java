@@ -0,0 +1,211 @@
+package com.resilia.ai.model.demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.resilia.ai.model.demo.config.VirtualThreads;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays user sessions against a running backend:
+ * register -> login -> N chat turns -> sidebar page -> message history page -> mood trends
+ * -> history search.
+ *
+ * Open model: sessions start at a fixed rate (derived from the target requests per second),
+ * whatever the response times, so a slow backend shows up as growing latencies instead of
+ * a silently lower load. Latencies are recorded per endpoint.
+ */
+public class LoadDriver {
+
+    private static final String[] MESSAGES = {
+            "I feel anxious about my exams tomorrow.",
+            "Today was actually a good day, I went for a walk.",
+            "I can't sleep and my thoughts keep racing.",
+            "My friend didn't answer my messages and I feel ignored.",
+            "I'm proud of myself, I finished my project.",
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private final String baseUrl;
+    private final int chatTurns;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+
+    public LoadDriver(String baseUrl, int chatTurns) {
+        this.baseUrl = baseUrl;
+        this.chatTurns = chatTurns;
+        for (String endpoint : List.of("POST /api/auth/register", "POST /api/auth/login", "POST /api/chat/message",
+                "GET /api/chat/conversations/page", "GET /api/chat/conversations/{id}/messages/page",
+                "GET /api/trends", "GET /api/trends/streaks", "GET /api/chat/search")) {
+            stats.put(endpoint, new EndpointStats());
+        }
+    }
+
+    /**
+     * Runs sessions for `duration` at about `targetRps` requests per second, waits for
+     * the started sessions to finish, and returns the report.
+     */
+    public Report run(double targetRps, Duration duration) throws InterruptedException {
+        int requestsPerSession = 4 + chatTurns;
+        long sessionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) * requestsPerSession / targetRps);
+
+        ExecutorService sessions = VirtualThreads.newPerTaskExecutor("load-session");
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        long start = System.nanoTime();
+        scheduler.scheduleAtFixedRate(() -> sessions.execute(this::session),
+                0, sessionIntervalNanos, TimeUnit.NANOSECONDS);
+
+        Thread.sleep(duration.toMillis());
+        scheduler.shutdownNow();
+        sessions.shutdown();
+        sessions.awaitTermination(5, TimeUnit.MINUTES);
+        return new Report(stats, System.nanoTime() - start);
+    }
+
+    private void session() {
+        try {
+            String email = "load-" + UUID.randomUUID() + "@resilia.test";
+            Map<String, Object> credentials = Map.of("email", email, "password", "Password123!");
+
+            Map<String, Object> registration = new LinkedHashMap<>(credentials);
+            registration.put("name", "Load");
+            registration.put("surname", "Test");
+            registration.put("username", email);
+            registration.put("age", 25);
+            registration.put("gender", "F");
+            if (send("POST /api/auth/register", post("/api/auth/register", registration, null)) == null) {
+                return;
+            }
+            JsonNode login = send("POST /api/auth/login", post("/api/auth/login", credentials, null));
+            if (login == null) {
+                return;
+            }
+            String token = login.get("jwt").asText();
+
+            Long conversationId = null;
+            for (int turn = 0; turn < chatTurns; turn++) {
+                Map<String, Object> chat = new LinkedHashMap<>();
+                chat.put("userMessage", MESSAGES[turn % MESSAGES.length]);
+                chat.put("conversationId", conversationId);
+                JsonNode reply = send("POST /api/chat/message", post("/api/chat/message", chat, token));
+                if (reply != null && reply.hasNonNull("conversationId")) {
+                    conversationId = reply.get("conversationId").asLong();
+                }
+            }
+
+            send("GET /api/chat/conversations/page", get("/api/chat/conversations/page?size=20", token));
+            if (conversationId != null) {
+                send("GET /api/chat/conversations/{id}/messages/page",
+                        get("/api/chat/conversations/" + conversationId + "/messages/page?size=30", token));
+            }
+            send("GET /api/trends", get("/api/trends?granularity=week", token));
+            send("GET /api/trends/streaks", get("/api/trends/streaks?days=30", token));
+            send("GET /api/chat/search", get("/api/chat/search?q=sleep&size=20", token));
+        } catch (Exception e) {
+            System.err.println("LOAD SESSION FAILED: " + e.getMessage());
+        }
+    }
+
+    private JsonNode send(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            boolean ok = response.statusCode() / 100 == 2;
+            stats.get(endpoint).record(System.nanoTime() - start, ok);
+            return ok ? objectMapper.readTree(response.body()) : null;
+        } catch (Exception e) {
+            stats.get(endpoint).record(System.nanoTime() - start, false);
+            return null;
+        }
+    }
+
+    private HttpRequest post(String path, Object body, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return request.build();
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    static class EndpointStats {
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(long nanos, boolean ok) {
+            latencies.add(nanos);
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Per endpoint: requests, errors, throughput and latency percentiles.
+     */
+    public static class Report {
+        private final List<String> lines = new ArrayList<>();
+        private long totalRequests;
+        private long totalErrors;
+
+        Report(Map<String, EndpointStats> stats, long elapsedNanos) {
+            double seconds = elapsedNanos / 1e9;
+            lines.add(String.format("%-48s %8s %7s %9s %9s %9s %9s",
+                    "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms"));
+            stats.forEach((endpoint, endpointStats) -> {
+                long[] sorted = endpointStats.latencies.stream().mapToLong(Long::longValue).toArray();
+                Arrays.sort(sorted);
+                totalRequests += sorted.length;
+                totalErrors += endpointStats.errors.get();
+                lines.add(String.format("%-48s %8d %7d %9.1f %9.1f %9.1f %9.1f",
+                        endpoint, sorted.length, endpointStats.errors.get(), sorted.length / seconds,
+                        percentileMs(sorted, 0.50), percentileMs(sorted, 0.99),
+                        sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6));
+            });
+            lines.add(String.format("total: %d requests, %d errors, %.1f req/s over %.1f s",
+                    totalRequests, totalErrors, totalRequests / seconds, seconds));
+        }
+
+        private static double percentileMs(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+
+        public long getTotalRequests() { return totalRequests; }
+        public long getTotalErrors() { return totalErrors; }
+
+        @Override
+        public String toString() {
+            return String.join(System.lineSeparator(), lines);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.resilia.ai.model.demo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.resilia.ai.model.demo.config.VirtualThreads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-ins for the two AI backends, so the chat path can be load tested
+ * without a Gemini key or the Python model:
+ * - Flask: POST /analyze and /analyze_batch (random emotion labels), GET /health,
+ *   on one or more replicas (one port each) to exercise the client-side load balancing.
+ * - Gemini: POST /v1beta/models/stub:generateContent and :streamGenerateContent (canned answer).
+ *
+ * Each stub answers after a latency drawn from its LatencyProfile and fails
+ * (HTTP 500) with the given error rate.
+ * The Flask stub also counts the requests that carry a W3C traceparent header.
+ */
+public class StubAiServers implements AutoCloseable {
+
+    private static final String[] EMOTIONS = {"JOY", "SADNESS", "ANGER", "FEAR", "NEUTRAL", "SURPRISE"};
+    private static final String ANSWER = "That sounds hard. I'm here with you. What would help you most right now?";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor = VirtualThreads.newPerTaskExecutor("stub-ai");
+    private final List<HttpServer> flaskReplicas = new ArrayList<>();
+    private final List<AtomicInteger> requestsPerReplica = new ArrayList<>();
+    private final HttpServer gemini;
+    private final LatencyProfile flaskLatency;
+    private final LatencyProfile geminiLatency;
+    private final AtomicInteger flaskRequests = new AtomicInteger();
+    private final AtomicInteger tracedFlaskRequests = new AtomicInteger();
+
+    public StubAiServers(int flaskReplicaCount, LatencyProfile flaskLatency, LatencyProfile geminiLatency) throws IOException {
+        this.flaskLatency = flaskLatency;
+        this.geminiLatency = geminiLatency;
+
+        for (int i = 0; i < flaskReplicaCount; i++) {
+            AtomicInteger replicaRequests = new AtomicInteger();
+            HttpServer flask = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+            flask.setExecutor(executor);
+            flask.createContext("/analyze", exchange -> {
+                countTrace(exchange, replicaRequests);
+                respond(exchange, flaskLatency, Map.of("emotion", randomEmotion()));
+            });
+            flask.createContext("/analyze_batch", exchange -> analyzeBatch(exchange, replicaRequests));
+            flask.createContext("/health", exchange -> {
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            });
+            flask.start();
+            flaskReplicas.add(flask);
+            requestsPerReplica.add(replicaRequests);
+        }
+
+        gemini = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        gemini.setExecutor(executor);
+        gemini.createContext("/v1beta/models/", this::generate);
+        gemini.start();
+    }
+
+    /**
+     * Base URLs of the Flask replicas, comma-separated (ia.service.urls).
+     */
+    public String flaskUrls() {
+        return String.join(",", flaskReplicas.stream()
+                .map(flask -> "http://localhost:" + flask.getAddress().getPort())
+                .toList());
+    }
+
+    public String generateUrl() {
+        return "http://localhost:" + gemini.getAddress().getPort() + "/v1beta/models/stub:generateContent";
+    }
+
+    public String streamGenerateUrl() {
+        return "http://localhost:" + gemini.getAddress().getPort() + "/v1beta/models/stub:streamGenerateContent";
+    }
+
+    public int getFlaskRequests() {
+        return flaskRequests.get();
+    }
+
+    public int getTracedFlaskRequests() {
+        return tracedFlaskRequests.get();
+    }
+
+    public List<Integer> getFlaskRequestsPerReplica() {
+        return requestsPerReplica.stream().map(AtomicInteger::get).toList();
+    }
+
+    @Override
+    public void close() {
+        flaskReplicas.forEach(flask -> flask.stop(0));
+        gemini.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void analyzeBatch(HttpExchange exchange, AtomicInteger replicaRequests) throws IOException {
+        countTrace(exchange, replicaRequests);
+        Map<?, ?> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+        List<String> emotions = new ArrayList<>();
+        for (Object ignored : (List<?>) request.get("messages")) {
+            emotions.add(randomEmotion());
+        }
+        respond(exchange, flaskLatency, Map.of("emotions", emotions));
+    }
+
+    private void countTrace(HttpExchange exchange, AtomicInteger replicaRequests) {
+        flaskRequests.incrementAndGet();
+        replicaRequests.incrementAndGet();
+        if (exchange.getRequestHeaders().getFirst("traceparent") != null) {
+            tracedFlaskRequests.incrementAndGet();
+        }
+    }
+
+    private void generate(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        if (!exchange.getRequestURI().getPath().endsWith(":streamGenerateContent")) {
+            respond(exchange, geminiLatency, geminiChunk(ANSWER));
+            return;
+        }
+        if (!waitAndCheck(exchange, geminiLatency)) {
+            return;
+        }
+        // Server-Sent Events: one "data:" line per chunk.
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (String word : ANSWER.split("(?<= )")) {
+                out.write(("data: " + objectMapper.writeValueAsString(geminiChunk(word)) + "\n\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        }
+    }
+
+    private void respond(HttpExchange exchange, LatencyProfile latency, Object body) throws IOException {
+        if (!waitAndCheck(exchange, latency)) {
+            return;
+        }
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    /**
+     * Sleeps for the simulated latency. Returns false after sending a 500 (simulated error).
+     */
+    private boolean waitAndCheck(HttpExchange exchange, LatencyProfile latency) throws IOException {
+        try {
+            Thread.sleep(latency.nextMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (latency.nextIsError()) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return false;
+        }
+        return true;
+    }
+
+    private static Map<String, Object> geminiChunk(String text) {
+        return Map.of("candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text))))));
+    }
+
+    private static String randomEmotion() {
+        return EMOTIONS[ThreadLocalRandom.current().nextInt(EMOTIONS.length)];
+    }
+
+    /**
+     * Log-normal latency (typical for network services: most calls near the median,
+     * a long tail up to the p99) plus a fixed error rate.
+     */
+    public static class LatencyProfile {
+        private static final double Z_99 = 2.326;
+
+        private final double mu;
+        private final double sigma;
+        private final double errorRate;
+
+        public LatencyProfile(long medianMs, long p99Ms, double errorRate) {
+            this.mu = Math.log(Math.max(medianMs, 1));
+            this.sigma = Math.log((double) Math.max(p99Ms, medianMs) / Math.max(medianMs, 1)) / Z_99;
+            this.errorRate = errorRate;
+        }
+
+        long nextMillis() {
+            return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+
+        boolean nextIsError() {
+            return ThreadLocalRandom.current().nextDouble() < errorRate;
+        }
+    }
+}
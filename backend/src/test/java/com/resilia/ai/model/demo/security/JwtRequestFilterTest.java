@@ -0,0 +1,154 @@
+package com.resilia.ai.model.demo.security;
+
+import com.resilia.ai.model.demo.repositories.UserRepository;
+import com.resilia.ai.model.demo.services.ChatMetrics;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtRequestFilterTest {
+
+    private static final String SECRET = "a_test_secret_that_is_long_enough_for_hs256_signatures";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+    private final JwtUtil jwtUtil = jwtUtil();
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void uidTokenIsVerifiedOnceThenServedFromTheCache() throws Exception {
+        JwtRequestFilter filter = filter(new VerifiedTokenCache(100, 60, TimeUnit.SECONDS, new SimpleMeterRegistry()));
+        when(userRepository.existsById(7L)).thenReturn(true);
+        String token = jwtUtil.generateToken(new AuthenticatedUser(7L, "ana@example.com", "", List.of()));
+
+        for (int i = 0; i < 3; i++) {
+            AuthenticatedUser user = authenticate(filter, token);
+            assertEquals(7L, user.getId());
+            assertEquals("ana@example.com", user.getUsername());
+        }
+        verify(userRepository, times(1)).existsById(7L);
+        verify(userDetailsService, never()).loadUserByUsername(any());
+    }
+
+    @Test
+    void expiredTokensAreRejected() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 60, TimeUnit.SECONDS, new SimpleMeterRegistry());
+        JwtRequestFilter filter = filter(cache);
+        when(userRepository.existsById(7L)).thenReturn(true);
+        String expired = Jwts.builder()
+                .setClaims(Map.of(JwtUtil.USER_ID_CLAIM, 7L))
+                .setSubject("ana@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertNull(authenticate(filter, expired));
+
+        // A cached entry is not served past the expiration of its token either.
+        cache.put(expired, new AuthenticatedUser(7L, "ana@example.com", "", List.of()), System.currentTimeMillis() - 1);
+        assertNull(cache.get(expired));
+    }
+
+    @Test
+    void tamperedTokensAreRejectedEvenOnceTheOriginalIsCached() throws Exception {
+        JwtRequestFilter filter = filter(new VerifiedTokenCache(100, 60, TimeUnit.SECONDS, new SimpleMeterRegistry()));
+        when(userRepository.existsById(any())).thenReturn(true);
+        String token = jwtUtil.generateToken(new AuthenticatedUser(7L, "ana@example.com", "", List.of()));
+        assertEquals(7L, authenticate(filter, token).getId());
+
+        String[] parts = token.split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+        String otherUser = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replace("\"uid\":7", "\"uid\":8").getBytes(StandardCharsets.UTF_8));
+        char last = parts[2].charAt(parts[2].length() - 1);
+        String badSignature = parts[2].substring(0, parts[2].length() - 1) + (last == 'A' ? 'B' : 'A');
+
+        // Same signature, another payload: not the token that was verified.
+        assertNull(authenticate(filter, parts[0] + "." + otherUser + "." + parts[2]));
+        assertNull(authenticate(filter, parts[0] + "." + parts[1] + "." + badSignature));
+    }
+
+    @Test
+    void deletedUserIsRejectedOnceTheCachedEntryExpires() throws Exception {
+        JwtRequestFilter filter = filter(new VerifiedTokenCache(100, 200, TimeUnit.MILLISECONDS, new SimpleMeterRegistry()));
+        when(userRepository.existsById(7L)).thenReturn(true);
+        String token = jwtUtil.generateToken(new AuthenticatedUser(7L, "ana@example.com", "", List.of()));
+        assertEquals(7L, authenticate(filter, token).getId());
+
+        when(userRepository.existsById(7L)).thenReturn(false);
+        Thread.sleep(300);
+
+        assertNull(authenticate(filter, token));
+    }
+
+    @Test
+    void tokensWithoutUidLookTheUserUpOnce() throws Exception {
+        JwtRequestFilter filter = filter(new VerifiedTokenCache(100, 60, TimeUnit.SECONDS, new SimpleMeterRegistry()));
+        when(userDetailsService.loadUserByUsername("ana@example.com"))
+                .thenReturn(new AuthenticatedUser(7L, "ana@example.com", "hash", List.of()));
+        // Issued before the uid claim existed.
+        String legacy = jwtUtil.generateToken(org.springframework.security.core.userdetails.User
+                .withUsername("ana@example.com").password("hash").authorities(List.of()).build());
+
+        assertEquals(7L, authenticate(filter, legacy).getId());
+        assertEquals(7L, authenticate(filter, legacy).getId());
+        verify(userDetailsService, times(1)).loadUserByUsername("ana@example.com");
+    }
+
+    private AuthenticatedUser authenticate(JwtRequestFilter filter, String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/chat/conversations");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : (AuthenticatedUser) authentication.getPrincipal();
+    }
+
+    private JwtRequestFilter filter(VerifiedTokenCache cache) {
+        JwtRequestFilter filter = new JwtRequestFilter();
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "userRepository", userRepository);
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "verifiedTokenCache", cache);
+        ReflectionTestUtils.setField(filter, "chatMetrics", new ChatMetrics(ObservationRegistry.NOOP, new SimpleMeterRegistry()));
+        return filter;
+    }
+
+    private static JwtUtil jwtUtil() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", 60_000L);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+}
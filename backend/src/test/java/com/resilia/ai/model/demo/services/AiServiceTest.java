@@ -0,0 +1,201 @@
+package com.resilia.ai.model.demo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiServiceTest {
+
+    // Normalized 3-d "embeddings": the three lonely prompts are paraphrases (cosine >= 0.96).
+    private static final Map<String, float[]> EMBEDDINGS = Map.of(
+            "I feel so lonely", new float[]{1, 0, 0},
+            "i'm really lonely tonight", new float[]{0.96f, 0.28f, 0},
+            "lonely but free, finally!", new float[]{0.96f, -0.28f, 0});
+    private static final Map<String, String> EMOTIONS = Map.of(
+            "I feel so lonely", "sadness",
+            "i'm really lonely tonight", "sadness",
+            "lonely but free, finally!", "joy");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger geminiCalls = new AtomicInteger();
+    // The classifier answers once this completes
+    private volatile CompletableFuture<Void> classifierGate = CompletableFuture.completedFuture(null);
+    // Latency of each backend
+    private volatile long classifierDelayMs;
+    private volatile long geminiDelayMs;
+    private HttpServer gemini;
+    private SemanticReplyCache semanticReplyCache;
+
+    @BeforeEach
+    void startGemini() throws Exception {
+        // Stub Gemini: "answer N" for the Nth call.
+        gemini = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        gemini.createContext("/generate", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            sleep(geminiDelayMs);
+            String text = "answer " + geminiCalls.incrementAndGet();
+            byte[] json = objectMapper.writeValueAsBytes(Map.of("candidates",
+                    List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text)))))));
+            exchange.sendResponseHeaders(200, json.length);
+            exchange.getResponseBody().write(json);
+            exchange.close();
+        });
+        gemini.start();
+    }
+
+    @AfterEach
+    void stopGemini() throws Exception {
+        gemini.stop(0);
+        semanticReplyCache.close();
+    }
+
+    @Test
+    void parallelModeOnlyReusesAnswersOfTheSameDetectedEmotion() throws Exception {
+        AiService aiService = newAiService("parallel");
+
+        AiService.AiReply first = aiService.respond("", "I feel so lonely").join();
+        semanticReplyCache.refresh();
+        AiService.AiReply paraphrase = aiService.respond("", "i'm really lonely tonight").join();
+        AiService.AiReply otherTone = aiService.respond("", "lonely but free, finally!").join();
+
+        assertEquals("SADNESS", first.getEmotion());
+        assertEquals("answer 1", first.getText());
+        assertEquals("answer 1", paraphrase.getText());
+        assertEquals("JOY", otherTone.getEmotion());
+        assertEquals("answer 2", otherTone.getText());
+        assertEquals(2, geminiCalls.get());
+    }
+
+    @Test
+    void parallelModeDoesNotWaitForTheClassifierOnANewPrompt() throws Exception {
+        AiService aiService = newAiService("parallel");
+
+        classifierGate = new CompletableFuture<>();
+        CompletableFuture<AiService.AiReply> first = aiService.respond("", "I feel so lonely");
+        awaitGeminiCalls(1);
+        assertFalse(first.isDone());
+        classifierGate.complete(null);
+        assertEquals("answer 1", first.join().getText());
+        semanticReplyCache.refresh();
+
+        // A paraphrase of a kept answer waits for its emotion, then hits.
+        classifierGate = new CompletableFuture<>();
+        CompletableFuture<AiService.AiReply> paraphrase = aiService.respond("", "i'm really lonely tonight");
+        Thread.sleep(200);
+        assertFalse(paraphrase.isDone());
+        classifierGate.complete(null);
+        assertEquals("answer 1", paraphrase.join().getText());
+        assertEquals(1, geminiCalls.get());
+    }
+
+    @Test
+    void parallelModeTakesAboutTheSlowerBackendNotTheSum() throws Exception {
+        AiService parallelService = newAiService("parallel");
+        // Warm-up (connection, JIT), with a context so that no cache keeps the answer.
+        parallelService.respond("User: hello", "lonely but free, finally!").join();
+        classifierDelayMs = 500;
+        geminiDelayMs = 500;
+
+        long parallel = timeOf(parallelService, "I feel so lonely");
+        semanticReplyCache.close();
+        long classifyFirst = timeOf(newAiService("classify-first"), "lonely but free, finally!");
+
+        // max(500, 500) plus overhead, against 500 + 500.
+        assertTrue(parallel >= 500 && parallel < 900, "parallel turn took " + parallel + " ms");
+        assertTrue(classifyFirst >= 1000, "classify-first turn took " + classifyFirst + " ms");
+    }
+
+    private long timeOf(AiService aiService, String message) {
+        long start = System.nanoTime();
+        AiService.AiReply reply = aiService.respond("", message).join();
+        assertEquals(EMOTIONS.get(message).toUpperCase(), reply.getEmotion());
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitGeminiCalls(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (geminiCalls.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, geminiCalls.get());
+    }
+
+    private AiService newAiService(String pipelineMode) throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ChatMetrics chatMetrics = new ChatMetrics(ObservationRegistry.NOOP, meterRegistry);
+        EmotionClassifier classifier = new EmotionClassifier() {
+            @Override
+            public CompletableFuture<String> classify(String message, Observation parent) {
+                return classifierGate.thenApplyAsync(ignored -> EMOTIONS.get(message),
+                        CompletableFuture.delayedExecutor(classifierDelayMs, TimeUnit.MILLISECONDS));
+            }
+
+            @Override
+            public CompletableFuture<List<String>> classifyBatch(List<String> messages, Observation parent) {
+                return CompletableFuture.completedFuture(messages.stream().map(EMOTIONS::get).toList());
+            }
+        };
+        SentenceEncoder encoder = new SentenceEncoder() {
+            @Override
+            public CompletableFuture<float[]> embed(String message) {
+                return CompletableFuture.completedFuture(EMBEDDINGS.get(message).clone());
+            }
+
+            @Override
+            public int dimension() {
+                return 3;
+            }
+        };
+        semanticReplyCache = new SemanticReplyCache(true, "", 100, 60, 0.92, 0, 200, 1000, 60, encoder, meterRegistry);
+        semanticReplyCache.open();
+
+        AiService aiService = new AiService();
+        ReflectionTestUtils.setField(aiService, "chatMetrics", chatMetrics);
+        ReflectionTestUtils.setField(aiService, "emotionClassifier", classifier);
+        ReflectionTestUtils.setField(aiService, "emotionBatcher", new EmotionBatcher(false, 16, 5, 4, 2000,
+                meterRegistry, chatMetrics, classifier, new BackendGuard("emotion", 10, 10, 10, 50, 1000, meterRegistry)));
+        ReflectionTestUtils.setField(aiService, "emotionCache", new EmotionCache(100, 60, List.of(), meterRegistry));
+        // Exact-match cache off: the paraphrase can only come from the semantic cache.
+        ReflectionTestUtils.setField(aiService, "generationCache", new GenerationCache(false, 100, 60, 3, 0, 200, meterRegistry));
+        ReflectionTestUtils.setField(aiService, "semanticReplyCache", semanticReplyCache);
+        ReflectionTestUtils.setField(aiService, "emotionGuard", new BackendGuard("emotion", 10, 10, 10, 50, 1000, meterRegistry));
+        ReflectionTestUtils.setField(aiService, "geminiGuard", new BackendGuard("gemini", 10, 10, 10, 50, 1000, meterRegistry));
+        ReflectionTestUtils.setField(aiService, "geminiApiKey", "test");
+        ReflectionTestUtils.setField(aiService, "geminiApiUrl", "http://127.0.0.1:" + gemini.getAddress().getPort() + "/generate");
+        ReflectionTestUtils.setField(aiService, "pipelineMode", pipelineMode);
+        ReflectionTestUtils.setField(aiService, "emotionDeadlineMs", 1500L);
+        ReflectionTestUtils.setField(aiService, "fallbackEmotion", "NEUTRAL");
+        ReflectionTestUtils.setField(aiService, "turnDeadlineMs", 10_000L);
+        ReflectionTestUtils.setField(aiService, "connectTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(aiService, "emotionTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(aiService, "geminiTimeoutMs", 5000L);
+        aiService.init();
+        return aiService;
+    }
+}
@@ -0,0 +1,68 @@
+package com.resilia.ai.model.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BackendGuardTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(1);
+
+    @Test
+    void opensAfterFailuresThenRecoversThroughTrialCall() {
+        AtomicLong now = new AtomicLong();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BackendGuard guard = new BackendGuard("test", 10, 4, 4, 50, 1000, registry, now::get);
+        AtomicInteger sent = new AtomicInteger();
+
+        for (int i = 0; i < 4; i++) {
+            guard.call(() -> { sent.incrementAndGet(); return CompletableFuture.failedFuture(new IllegalStateException()); }, TIMEOUT);
+        }
+        assertEquals(BackendGuard.State.OPEN, guard.getState());
+
+        // Rejected without reaching the backend.
+        CompletionException rejected = assertThrows(CompletionException.class,
+                () -> guard.call(() -> { sent.incrementAndGet(); return CompletableFuture.completedFuture("ok"); }, TIMEOUT).join());
+        assertInstanceOf(BackendGuard.BackendUnavailableException.class, rejected.getCause());
+        assertEquals(4, sent.get());
+        assertEquals(1.0, registry.get("ai.backend.rejected").tag("reason", "circuit_open").counter().count());
+
+        // After the open period, one successful call closes the circuit.
+        now.addAndGet(Duration.ofMillis(1000).toNanos());
+        assertEquals("ok", guard.call(() -> CompletableFuture.completedFuture("ok"), TIMEOUT).join());
+        assertEquals(BackendGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondTheLimit() {
+        BackendGuard guard = new BackendGuard("test", 1, 10, 10, 50, 1000, new SimpleMeterRegistry());
+        CompletableFuture<String> slow = new CompletableFuture<>();
+
+        guard.call(() -> slow, TIMEOUT);
+        CompletionException rejected = assertThrows(CompletionException.class,
+                () -> guard.call(() -> CompletableFuture.completedFuture("ok"), TIMEOUT).join());
+        assertInstanceOf(BackendGuard.BackendUnavailableException.class, rejected.getCause());
+
+        slow.complete("done");
+        assertEquals("ok", guard.call(() -> CompletableFuture.completedFuture("ok"), TIMEOUT).join());
+    }
+
+    @Test
+    void slowCallsFailAtTheDeadline() {
+        BackendGuard guard = new BackendGuard("test", 10, 10, 10, 50, 1000, new SimpleMeterRegistry());
+
+        CompletionException timedOut = assertThrows(CompletionException.class,
+                () -> guard.call(CompletableFuture::new, Duration.ofMillis(50)).join());
+        assertInstanceOf(TimeoutException.class, timedOut.getCause());
+    }
+}
@@ -0,0 +1,141 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.DTO.ChatDtos.UserMessageRequest;
+import com.resilia.ai.model.demo.controller.ChatController;
+import com.resilia.ai.model.demo.entites.Conversation;
+import com.resilia.ai.model.demo.entites.User;
+import com.resilia.ai.model.demo.repositories.ConversationRepository;
+import com.resilia.ai.model.demo.repositories.UserRepository;
+import com.resilia.ai.model.demo.security.AuthenticatedUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class ChatServiceTest {
+
+    private static final String MESSAGE = "I can't sleep";
+
+    private final AiService aiService = mock(AiService.class);
+    private final ChatTurnWriter chatTurnWriter = mock(ChatTurnWriter.class);
+    private final CompletableFuture<String> emotion = new CompletableFuture<>();
+    private final CompletableFuture<String> text = new CompletableFuture<>();
+    // Hands chunks to the SSE emitter, like the Gemini stream does
+    private Consumer<String> onChunk;
+    private ChatService chatService;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setId(7L);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.getReferenceById(7L)).thenReturn(user);
+        ConversationRepository conversationRepository = mock(ConversationRepository.class);
+        when(conversationRepository.save(any())).thenAnswer(invocation -> {
+            Conversation conversation = invocation.getArgument(0);
+            conversation.setId(3L);
+            return conversation;
+        });
+        when(aiService.analyzeEmotionWithDeadline(MESSAGE)).thenReturn(emotion);
+        when(aiService.streamAiResponse(isNull(), anyString(), anyString(), any())).thenAnswer(invocation -> {
+            onChunk = invocation.getArgument(3);
+            return text;
+        });
+        ConversationContextService contextService = mock(ConversationContextService.class);
+        when(contextService.startContext(3L)).thenReturn("");
+
+        chatService = new ChatService();
+        ReflectionTestUtils.setField(chatService, "conversationRepository", conversationRepository);
+        ReflectionTestUtils.setField(chatService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(chatService, "aiService", aiService);
+        ReflectionTestUtils.setField(chatService, "chatTurnWriter", chatTurnWriter);
+        ReflectionTestUtils.setField(chatService, "conversationContextService", contextService);
+        ReflectionTestUtils.setField(chatService, "chatMetrics", new ChatMetrics(ObservationRegistry.NOOP, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(chatService, "streamTimeoutMs", 60_000L);
+
+        AuthenticatedUser principal = new AuthenticatedUser(7L, "user@example.com", "", List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void streamSendsTokensThenEmotionThenDone() throws Exception {
+        ChatController controller = new ChatController();
+        ReflectionTestUtils.setField(controller, "chatService", chatService);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        MvcResult result = mockMvc.perform(post("/api/chat/message/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userMessage\": \"" + MESSAGE + "\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        onChunk.accept("Sleep ");
+        onChunk.accept("can be hard.");
+        emotion.complete("SADNESS");
+        verify(chatTurnWriter, never()).write(any());
+        text.complete("Sleep can be hard.");
+
+        String body = result.getResponse().getContentAsString();
+        assertEquals(List.of("token", "token", "emotion", "done"), body.lines()
+                .filter(line -> line.startsWith("event:")).map(line -> line.substring("event:".length())).toList());
+        assertTrue(body.contains("\"aiResponse\":\"Sleep can be hard.\""));
+        assertSavedTurn("SADNESS", "Sleep can be hard.");
+    }
+
+    @Test
+    void turnIsSavedWhenTheClientDisconnects() {
+        UserMessageRequest request = new UserMessageRequest();
+        request.setUserMessage(MESSAGE);
+        SseEmitter emitter = chatService.streamUserMessage(request);
+
+        onChunk.accept("Sleep ");
+        // The browser tab is closed: every later send fails.
+        emitter.completeWithError(new IOException("Broken pipe"));
+        onChunk.accept("can be hard.");
+        emotion.complete("SADNESS");
+        text.complete("Sleep can be hard.");
+
+        assertSavedTurn("SADNESS", "Sleep can be hard.");
+    }
+
+    private void assertSavedTurn(String emotion, String reply) {
+        ArgumentCaptor<ChatTurn> turn = ArgumentCaptor.forClass(ChatTurn.class);
+        verify(chatTurnWriter).write(turn.capture());
+        assertEquals(MESSAGE, turn.getValue().getUserMessage().getContent());
+        assertEquals(emotion, turn.getValue().getUserMessage().getEmotion());
+        assertEquals(reply, turn.getValue().getBotMessage().getContent());
+        assertEquals(3L, turn.getValue().getConversation().getId());
+    }
+}
@@ -0,0 +1,195 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.entites.Conversation;
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.repositories.ConversationEmotionCountRepository;
+import com.resilia.ai.model.demo.repositories.ConversationRepository;
+import com.resilia.ai.model.demo.repositories.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatTurnWriterTest {
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ConversationRepository conversationRepository = mock(ConversationRepository.class);
+    private final ConversationEmotionCountRepository emotionCountRepository = mock(ConversationEmotionCountRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Published turns, with the thread that published them
+    private final Map<ChatTurn, String> published = new ConcurrentHashMap<>();
+    // Holds the flusher thread inside its first write until released
+    private final CountDownLatch flusherBlocked = new CountDownLatch(1);
+    private final CountDownLatch releaseFlusher = new CountDownLatch(1);
+    private ChatTurnWriter writer;
+
+    @AfterEach
+    void stopWriter() throws Exception {
+        releaseFlusher.countDown();
+        writer.stop();
+    }
+
+    @Test
+    void syncModePublishesTheTurnAfterItsTransaction() {
+        writer = newWriter("sync", 10);
+        ChatTurn turn = turn("I can't sleep", "SADNESS");
+
+        writer.write(turn);
+
+        InOrder order = inOrder(messageRepository, conversationRepository, emotionCountRepository, eventPublisher);
+        order.verify(messageRepository).saveAll(List.of(turn.getUserMessage(), turn.getBotMessage()));
+        order.verify(conversationRepository).updateSummary(1L, 2, "I can't sleep");
+        order.verify(emotionCountRepository).increment(1L, "SADNESS", 1);
+        order.verify(eventPublisher).publishEvent(turn);
+        assertEquals(Thread.currentThread().getName(), published.get(turn));
+    }
+
+    @Test
+    void fullQueueWritesOnTheCallersThread() throws Exception {
+        writer = newWriter("write-behind", 1);
+        blockFlusher();
+        ChatTurn held = turn("held by the flusher", "JOY");
+        ChatTurn queued = turn("queued", "JOY");
+        ChatTurn overflow = turn("overflow", "JOY");
+
+        writer.write(held);
+        assertTrue(flusherBlocked.await(5, TimeUnit.SECONDS));
+        writer.write(queued);
+        writer.write(overflow);
+
+        // The queue (capacity 1) was full: written and published right away, by the caller.
+        assertEquals(Thread.currentThread().getName(), published.get(overflow));
+        assertFalse(published.containsKey(queued));
+        assertEquals(1.0, meterRegistry.get("chat.persistence.overflow").counter().count());
+
+        releaseFlusher.countDown();
+        writer.stop();
+        assertEquals("chat-turn-writer", published.get(held));
+        assertEquals("chat-turn-writer", published.get(queued));
+    }
+
+    @Test
+    void failedBatchIsRetriedTurnByTurn() throws Exception {
+        writer = newWriter("write-behind", 10);
+        blockFlusher();
+        ChatTurn first = turn("first", "JOY");
+        ChatTurn bad = turn("bad row", "FEAR");
+        ChatTurn last = turn("last", "SADNESS");
+        writer.write(turn("warm-up", "JOY"));
+        assertTrue(flusherBlocked.await(5, TimeUnit.SECONDS));
+        writer.write(first);
+        writer.write(bad);
+        writer.write(last);
+        releaseFlusher.countDown();
+        writer.stop();
+
+        // One grouped insert of the three turns, then one per turn.
+        verify(messageRepository).saveAll(List.of(first.getUserMessage(), first.getBotMessage(),
+                bad.getUserMessage(), bad.getBotMessage(), last.getUserMessage(), last.getBotMessage()));
+        verify(messageRepository).saveAll(List.of(first.getUserMessage(), first.getBotMessage()));
+        verify(messageRepository).saveAll(List.of(last.getUserMessage(), last.getBotMessage()));
+        assertTrue(published.containsKey(first));
+        assertTrue(published.containsKey(last));
+        assertFalse(published.containsKey(bad));
+    }
+
+    @Test
+    void stopWritesEveryQueuedTurn() throws Exception {
+        writer = newWriter("write-behind", 10);
+        blockFlusher();
+        writer.write(turn("warm-up", "JOY"));
+        assertTrue(flusherBlocked.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            writer.write(turn("queued " + i, "NEUTRAL"));
+        }
+
+        releaseFlusher.countDown();
+        writer.stop();
+
+        assertEquals(6, published.size());
+        verify(eventPublisher, times(6)).publishEvent(any(ChatTurn.class));
+    }
+
+    /**
+     * The flusher thread's first insert waits for releaseFlusher; other threads are not held.
+     * Inserts of a "bad row" message fail.
+     */
+    private void blockFlusher() {
+        when(messageRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            if ("chat-turn-writer".equals(Thread.currentThread().getName()) && flusherBlocked.getCount() > 0) {
+                flusherBlocked.countDown();
+                releaseFlusher.await(5, TimeUnit.SECONDS);
+            }
+            List<Message> messages = invocation.getArgument(0);
+            if (messages.stream().anyMatch(message -> "bad row".equals(message.getContent()))) {
+                throw new IllegalStateException("Data too long for column 'content'");
+            }
+            return messages;
+        });
+    }
+
+    private ChatTurnWriter newWriter(String mode, int queueCapacity) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        doAnswer(invocation -> published.put(invocation.getArgument(0), Thread.currentThread().getName()))
+                .when(eventPublisher).publishEvent(any(Object.class));
+
+        ChatTurnWriter chatTurnWriter = new ChatTurnWriter();
+        ReflectionTestUtils.setField(chatTurnWriter, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(chatTurnWriter, "conversationRepository", conversationRepository);
+        ReflectionTestUtils.setField(chatTurnWriter, "conversationEmotionCountRepository", emotionCountRepository);
+        ReflectionTestUtils.setField(chatTurnWriter, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(chatTurnWriter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(chatTurnWriter, "chatMetrics", new ChatMetrics(ObservationRegistry.NOOP, meterRegistry));
+        ReflectionTestUtils.setField(chatTurnWriter, "emotionTrendService", mock(EmotionTrendService.class));
+        ReflectionTestUtils.setField(chatTurnWriter, "messageSearchIndex", mock(MessageSearchIndex.class));
+        ReflectionTestUtils.setField(chatTurnWriter, "emotionTimeline", mock(EmotionTimeline.class));
+        ReflectionTestUtils.setField(chatTurnWriter, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(chatTurnWriter, "mode", mode);
+        ReflectionTestUtils.setField(chatTurnWriter, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(chatTurnWriter, "flushIntervalMs", 10L);
+        ReflectionTestUtils.setField(chatTurnWriter, "maxBatch", 100);
+        chatTurnWriter.start();
+        return chatTurnWriter;
+    }
+
+    private static ChatTurn turn(String content, String emotion) {
+        Conversation conversation = new Conversation();
+        conversation.setId(1L);
+        return new ChatTurn(conversation, message("user", content, emotion), message("bot", "reply to " + content, null));
+    }
+
+    private static Message message(String sender, String content, String emotion) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setContent(content);
+        message.setEmotion(emotion);
+        message.setTimestamp(LocalDateTime.now());
+        return message;
+    }
+}
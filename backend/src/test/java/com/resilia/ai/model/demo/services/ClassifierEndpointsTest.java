@@ -0,0 +1,63 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.services.BackendGuard.BackendUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClassifierEndpointsTest {
+
+    private static final List<String> REPLICAS = List.of("http://replica-a:5000", "http://replica-b:5000/");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClassifierEndpoints endpoints = new ClassifierEndpoints(REPLICAS, 2, 1, false, 1000,
+            "/health", 0, 500, meterRegistry, new ChatMetrics(ObservationRegistry.NOOP, meterRegistry));
+
+    @AfterEach
+    void stop() {
+        endpoints.stop();
+    }
+
+    @Test
+    void callsGoToTheReplicaWithFewestOutstandingRequests() {
+        ClassifierEndpoints.Lease first = endpoints.acquire();
+        ClassifierEndpoints.Lease second = endpoints.acquire();
+        assertNotEquals(host(first), host(second));
+
+        // a is busy again, b is free: the next call must go to b whatever the rotation says.
+        ClassifierEndpoints.Lease onB = host(first).equals("replica-b") ? first : second;
+        onB.release(200);
+        for (int i = 0; i < 2; i++) {
+            ClassifierEndpoints.Lease next = endpoints.acquire();
+            assertEquals("replica-b", host(next));
+            next.release(200);
+        }
+        assertEquals("http://replica-b:5000/analyze", endpoints.acquire().uri("/analyze").toString());
+    }
+
+    @Test
+    void failedReplicaIsSkippedAndFullReplicasReject() {
+        ClassifierEndpoints.Lease lease = endpoints.acquire();
+        String failed = host(lease);
+        lease.release(503);
+
+        for (int i = 0; i < 2; i++) {
+            assertNotEquals(failed, host(endpoints.acquire()));
+        }
+        // The only healthy replica has its 2 slots taken.
+        assertThrows(BackendUnavailableException.class, endpoints::acquire);
+        assertEquals(1.0, meterRegistry.get("ai.classifier.ejections").tag("endpoint", "http://" + failed + ":5000")
+                .counter().count());
+    }
+
+    private static String host(ClassifierEndpoints.Lease lease) {
+        return lease.uri("/").getHost();
+    }
+}
@@ -0,0 +1,162 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.DTO.ChatDtos.MessageDto;
+import com.resilia.ai.model.demo.entites.Conversation;
+import com.resilia.ai.model.demo.entites.ConversationContext;
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.repositories.ConversationContextRepository;
+import com.resilia.ai.model.demo.repositories.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationContextServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 20, 0);
+
+    private final ConversationContextRepository contextRepository = mock(ConversationContextRepository.class);
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final AiService aiService = mock(AiService.class);
+    // Summaries requested so far, completed by the tests
+    private final List<CompletableFuture<String>> summaries = new ArrayList<>();
+    private ConversationContextService service;
+
+    @BeforeEach
+    void setUp() {
+        when(contextRepository.findById(any())).thenReturn(Optional.empty());
+        when(aiService.summarizeAsync(any(), anyString(), anyInt())).thenAnswer(invocation -> {
+            CompletableFuture<String> summary = new CompletableFuture<>();
+            summaries.add(summary);
+            return summary;
+        });
+
+        service = new ConversationContextService();
+        ReflectionTestUtils.setField(service, "contextRepository", contextRepository);
+        ReflectionTestUtils.setField(service, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(service, "aiService", aiService);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "windowTurns", 2);
+        ReflectionTestUtils.setField(service, "maxMessageChars", 500);
+        ReflectionTestUtils.setField(service, "summaryMaxWords", 120);
+        ReflectionTestUtils.setField(service, "cacheSize", 100L);
+        ReflectionTestUtils.setField(service, "cacheIdleMinutes", 30L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void turnsLeavingTheWindowAreFoldedIntoTheSummary() throws Exception {
+        Conversation conversation = conversation(1L);
+        service.startContext(1L);
+        for (int i = 1; i <= 3; i++) {
+            service.onChatTurn(turn(conversation, i));
+        }
+
+        // Turn 1 left the window: it is being summarized, and still sent word for word meanwhile.
+        assertEquals(1, summaries.size());
+        assertEquals(lines(1, 3), service.buildContext(1L));
+
+        summaries.get(0).complete("The user talked about turn 1.");
+        awaitSummaryWriter();
+
+        assertEquals("Summary of earlier messages: The user talked about turn 1.\n" + lines(2, 3),
+                service.buildContext(1L));
+        verify(contextRepository).save(any(ConversationContext.class));
+    }
+
+    @Test
+    void failingSummariesKeepAtMostOneWindowWaiting() throws Exception {
+        Conversation conversation = conversation(1L);
+        service.startContext(1L);
+        for (int i = 1; i <= 6; i++) {
+            service.onChatTurn(turn(conversation, i));
+            if (!summaries.isEmpty()) {
+                summaries.get(summaries.size() - 1).completeExceptionally(new IllegalStateException("GEMINI ERROR: 503"));
+            }
+            awaitSummaryWriter();
+        }
+
+        // Window (turns 5, 6) + at most one window waiting to be folded (turns 3, 4).
+        assertEquals(lines(3, 6), service.buildContext(1L));
+        verify(contextRepository, never()).save(any());
+    }
+
+    @Test
+    void conversationsNotInMemoryAreRebuiltFromTheDatabase() {
+        // Write-behind: the entity's messageCount is still 0, the conversation is not new.
+        Conversation conversation = conversation(2L);
+        ChatTurn third = turn(conversation, 3);
+        service.onChatTurn(third);
+
+        List<MessageDto> newestFirst = new ArrayList<>();
+        for (int i = 3; i >= 1; i--) {
+            newestFirst.add(new MessageDto((long) i * 2, "reply " + i, "bot", null, START.plusMinutes(i).plusSeconds(1)));
+            newestFirst.add(new MessageDto((long) i * 2 - 1, "message " + i, "user", "SADNESS", START.plusMinutes(i)));
+        }
+        when(messageRepository.findLatestMessages(eq(2L), any(Pageable.class))).thenReturn(newestFirst);
+
+        assertEquals(lines(1, 3), service.buildContext(2L));
+
+        // The event of a turn the rebuild already read is not added twice.
+        service.onChatTurn(third);
+        assertEquals(lines(1, 3), service.buildContext(2L));
+        assertTrue(summaries.isEmpty());
+    }
+
+    private void awaitSummaryWriter() throws Exception {
+        ExecutorService summaryWriter = (ExecutorService) ReflectionTestUtils.getField(service, "summaryWriter");
+        summaryWriter.submit(() -> { }).get();
+    }
+
+    private static Conversation conversation(Long id) {
+        Conversation conversation = new Conversation();
+        conversation.setId(id);
+        return conversation;
+    }
+
+    private static ChatTurn turn(Conversation conversation, int i) {
+        return new ChatTurn(conversation, message("user", "message " + i, START.plusMinutes(i)),
+                message("bot", "reply " + i, START.plusMinutes(i).plusSeconds(1)));
+    }
+
+    private static Message message(String sender, String content, LocalDateTime timestamp) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setContent(content);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+
+    private static String lines(int first, int last) {
+        StringBuilder text = new StringBuilder();
+        for (int i = first; i <= last; i++) {
+            text.append("User: message ").append(i).append('\n').append("Resilia: reply ").append(i).append('\n');
+        }
+        return text.toString().trim();
+    }
+}
@@ -0,0 +1,93 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.entites.Conversation;
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.entites.User;
+import com.resilia.ai.model.demo.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DistressDetectorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 23, 0);
+
+    private final BlockingQueue<DistressEscalation> raised = new LinkedBlockingQueue<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DistressDetector detector = new DistressDetector(List.of(raised::add), users(),
+            true, new String[]{"SADNESS", "JOY", "LOVE", "ANGER", "FEAR", "SURPRISE"}, new String[]{"SADNESS", "FEAR", "ANGER"},
+            30, 3, 0.7, 20, 120, 1000, 120, 10, meterRegistry);
+
+    @Test
+    void raisesOnceForARunOfHighRiskEmotions() throws Exception {
+        detector.onChatTurn(turn(1L, "sadness", 0));
+        detector.onChatTurn(turn(1L, "FEAR", 5));
+        assertNull(raised.poll(200, TimeUnit.MILLISECONDS));
+
+        detector.onChatTurn(turn(1L, "SADNESS", 10));
+        DistressEscalation escalation = raised.poll(5, TimeUnit.SECONDS);
+        assertNotNull(escalation);
+        assertEquals(1L, escalation.getUserId());
+        assertEquals(3, escalation.getHighRiskTurns());
+        assertEquals("SADNESS", escalation.getDominantEmotion());
+        assertEquals("+33 6 00 00 00 01", escalation.getEmergencyContact());
+
+        // Cooldown: no second alert for the same run
+        detector.onChatTurn(turn(1L, "SADNESS", 15));
+        detector.onChatTurn(turn(1L, "FEAR", 20));
+        assertNull(raised.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(1.0, meterRegistry.get("distress.escalations").counter().count());
+    }
+
+    @Test
+    void ignoresSpreadOutOrMixedEmotions() throws Exception {
+        // Three high-risk messages, but not within 30 minutes
+        detector.onChatTurn(turn(2L, "SADNESS", 0));
+        detector.onChatTurn(turn(2L, "SADNESS", 40));
+        detector.onChatTurn(turn(2L, "SADNESS", 80));
+        // Three within the window, but among happier ones
+        detector.onChatTurn(turn(3L, "JOY", 0));
+        detector.onChatTurn(turn(3L, "ANGER", 1));
+        detector.onChatTurn(turn(3L, "LOVE", 2));
+        detector.onChatTurn(turn(3L, "SADNESS", 3));
+        detector.onChatTurn(turn(3L, "JOY", 4));
+        detector.onChatTurn(turn(3L, "FEAR", 5));
+
+        assertNull(raised.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(2.0, meterRegistry.get("distress.users").gauge().value());
+    }
+
+    private static UserRepository users() {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    User user = new User();
+                    user.setId((Long) args[0]);
+                    user.setEmergencyContact("+33 6 00 00 00 01");
+                    return Optional.of(user);
+                });
+    }
+
+    private static ChatTurn turn(Long userId, String emotion, int minutesLater) {
+        User user = new User();
+        user.setId(userId);
+        Conversation conversation = new Conversation();
+        conversation.setId(userId * 10);
+        conversation.setUser(user);
+        Message message = new Message();
+        message.setSender("user");
+        message.setEmotion(emotion);
+        message.setTimestamp(START.plusMinutes(minutesLater));
+        return new ChatTurn(conversation, message, new Message());
+    }
+}
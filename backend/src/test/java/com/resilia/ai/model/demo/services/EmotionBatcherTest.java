@@ -0,0 +1,143 @@
+package com.resilia.ai.model.demo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmotionBatcherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger batchCalls = new AtomicInteger();
+    private final AtomicInteger failedCalls = new AtomicInteger();
+    private HttpServer server;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        // Stub /analyze_batch: the label is the message upper-cased.
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/analyze_batch", exchange -> {
+            batchCalls.incrementAndGet();
+            Map<String, List<String>> body = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+            List<String> emotions = body.get("messages").stream().map(String::toUpperCase).toList();
+            byte[] json = objectMapper.writeValueAsString(Map.of("emotions", emotions)).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, json.length);
+            exchange.getResponseBody().write(json);
+            exchange.close();
+        });
+        // Under /failing: a 500 for every batch.
+        server.createContext("/failing/analyze_batch", exchange -> {
+            failedCalls.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void concurrentRequestsShareOneBatchAndGetTheirOwnLabel() {
+        EmotionBatcher batcher = newBatcher("", 50);
+        batcher.start();
+        try {
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(batcher.submit("joy" + i));
+            }
+            for (int i = 0; i < 8; i++) {
+                assertEquals("JOY" + i, results.get(i).join());
+            }
+            assertTrue(batchCalls.get() < 8, "messages should have been grouped");
+        } finally {
+            batcher.stop();
+        }
+    }
+
+    @Test
+    void failedBatchFailsEveryCaller() {
+        EmotionBatcher batcher = newBatcher("/missing", 1);
+        batcher.start();
+        try {
+            CompletionException failed = assertThrows(CompletionException.class, () -> batcher.submit("sad").join());
+            assertInstanceOf(IllegalStateException.class, failed.getCause());
+        } finally {
+            batcher.stop();
+        }
+    }
+
+    @Test
+    void oneFailedBatchOfManyCallersLeavesTheCircuitClosed() {
+        BackendGuard guard = new BackendGuard("emotion", 10, 4, 4, 50, 30_000, new SimpleMeterRegistry());
+        EmotionBatcher batcher = newBatcher("/failing", 200, guard);
+        batcher.start();
+        try {
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(batcher.submit("sad" + i));
+            }
+            results.forEach(result -> assertThrows(CompletionException.class, result::join));
+
+            assertEquals(1, failedCalls.get());
+            assertEquals(BackendGuard.State.CLOSED, guard.getState());
+        } finally {
+            batcher.stop();
+        }
+    }
+
+    @Test
+    void failedBatchesOpenTheEmotionCircuit() {
+        BackendGuard guard = new BackendGuard("emotion", 10, 4, 4, 50, 30_000, new SimpleMeterRegistry());
+        EmotionBatcher batcher = newBatcher("/failing", 1, guard);
+        batcher.start();
+        try {
+            for (int i = 0; i < 4; i++) {
+                assertThrows(CompletionException.class, () -> batcher.submit("sad").join());
+            }
+            assertEquals(BackendGuard.State.OPEN, guard.getState());
+
+            // Rejected by the guard: the classifier is not called again.
+            CompletionException rejected = assertThrows(CompletionException.class, () -> batcher.submit("sad").join());
+            assertInstanceOf(BackendGuard.BackendUnavailableException.class, rejected.getCause());
+            assertEquals(4, failedCalls.get());
+        } finally {
+            batcher.stop();
+        }
+    }
+
+    private EmotionBatcher newBatcher(String basePath, long maxWaitMs) {
+        return newBatcher(basePath, maxWaitMs, new BackendGuard("emotion", 10, 20, 10, 50, 30_000, new SimpleMeterRegistry()));
+    }
+
+    // The batcher posts to basePath + /analyze_batch: "/missing" gets a 404, "/failing" a 500.
+    private EmotionBatcher newBatcher(String basePath, long maxWaitMs, BackendGuard guard) {
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + basePath;
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ChatMetrics chatMetrics = new ChatMetrics(ObservationRegistry.NOOP, meterRegistry);
+        ClassifierEndpoints endpoints = new ClassifierEndpoints(List.of(baseUrl), 16, 2, false, 1000,
+                "/health", 0, 500, meterRegistry, chatMetrics);
+        return new EmotionBatcher(true, 16, maxWaitMs, 2, 2000, meterRegistry, chatMetrics,
+                new HttpEmotionClassifier(endpoints, 2000, 5000), guard);
+    }
+}
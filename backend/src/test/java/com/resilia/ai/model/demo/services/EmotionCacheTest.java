@@ -0,0 +1,68 @@
+package com.resilia.ai.model.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmotionCacheTest {
+
+    @Test
+    void keyFoldsCaseAndWhitespace() {
+        assertEquals(EmotionCache.keyOf("I'm sad"), EmotionCache.keyOf("  i'm   SAD \n"));
+        assertNotEquals(EmotionCache.keyOf("I'm sad"), EmotionCache.keyOf("I'm sad!"));
+    }
+
+    @Test
+    void unknownLabelsAreNotCached() {
+        EmotionCache cache = new EmotionCache(100, 60, List.of(), new SimpleMeterRegistry());
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("hmm", message -> { calls.incrementAndGet(); return CompletableFuture.completedFuture(null); }).join();
+        cache.get("hmm", message -> { calls.incrementAndGet(); return CompletableFuture.completedFuture("NEUTRAL"); }).join();
+        cache.get("hmm", message -> { calls.incrementAndGet(); return CompletableFuture.completedFuture("SAD"); }).join();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void hitRatioOnRecordedCorpus() throws Exception {
+        EmotionCache cache = new EmotionCache(10_000, 60, List.of(), new SimpleMeterRegistry());
+        AtomicInteger classifierCalls = new AtomicInteger();
+        Set<String> distinctKeys = new HashSet<>();
+        int messages = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getResourceAsStream("/emotion-corpus.txt"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                messages++;
+                distinctKeys.add(EmotionCache.keyOf(line));
+                cache.get(line, message -> {
+                    classifierCalls.incrementAndGet();
+                    return CompletableFuture.completedFuture("NEUTRAL");
+                }).join();
+            }
+        }
+
+        // The classifier sees each normalized message once; every repeat is a hit.
+        assertEquals(distinctKeys.size(), classifierCalls.get());
+        assertEquals(1 - (double) distinctKeys.size() / messages, cache.hitRate(), 1e-9);
+        assertEquals(messages - classifierCalls.get(), Math.round(cache.hitRate() * messages));
+        assertTrue(cache.hitRate() > 0.5);
+    }
+}
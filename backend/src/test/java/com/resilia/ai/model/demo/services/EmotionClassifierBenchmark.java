@@ -0,0 +1,128 @@
+package com.resilia.ai.model.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Python service (HTTP) vs the same model in the JVM (ONNX Runtime), through the
+ * EmotionClassifier interface the chat pipeline uses.
+ *
+ * For each backend: latency of one message at a time (what a chat turn waits for without
+ * batching), then throughput with batches of BATCH_SIZE messages (EmotionBatcher under load).
+ *
+ * Run with: mvn -Pbenchmark test -Dtest=EmotionClassifierBenchmark
+ * - HTTP: ia_service.py running on benchmark.http.url (http://localhost:5000), skipped otherwise.
+ * - ONNX: model.onnx exported by export_onnx.py into benchmark.onnx.model-dir, skipped otherwise.
+ * Knobs: benchmark.messages (200), benchmark.onnx.sessions (1).
+ */
+@Tag("benchmark")
+class EmotionClassifierBenchmark {
+
+    private static final String[] MESSAGES = {
+            "I feel anxious about my exams tomorrow.",
+            "Today was actually a good day, I went for a walk.",
+            "I can't sleep and my thoughts keep racing.",
+            "My friend didn't answer my messages and I feel ignored.",
+            "I'm proud of myself, I finished my project.",
+            "Why does everything always go wrong when I finally try?",
+            "I miss my grandmother so much, it still hurts.",
+            "Wow, I did not expect them to throw me a party!",
+    };
+    private static final int BATCH_SIZE = 16;
+    private static final int WARMUP = 20;
+    private static final int COUNT = Integer.getInteger("benchmark.messages", 200);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void httpClassifier() throws Exception {
+        String url = System.getProperty("benchmark.http.url", "http://localhost:5000");
+        assumeTrue(isUp(url + "/health"), "Python service not running on " + url);
+
+        ClassifierEndpoints endpoints = new ClassifierEndpoints(List.of(url), 64, 4, false, 1000,
+                "/health", 0, 500, meterRegistry, new ChatMetrics(ObservationRegistry.NOOP, meterRegistry));
+        try {
+            run("http", new HttpEmotionClassifier(endpoints, 10_000, 30_000));
+        } finally {
+            endpoints.stop();
+        }
+    }
+
+    @Test
+    void onnxClassifier() throws Exception {
+        String modelDir = System.getProperty("benchmark.onnx.model-dir", "../resilia-ai-service/final_roberta_emotion_model");
+        assumeTrue(Files.isRegularFile(Path.of(modelDir, "model.onnx")), "No model.onnx in " + modelDir);
+
+        OnnxEmotionClassifier classifier = new OnnxEmotionClassifier(modelDir, "model.onnx",
+                Integer.getInteger("benchmark.onnx.sessions", 1), 0, 128, 32, meterRegistry);
+        classifier.load();
+        try {
+            run("onnx", classifier);
+        } finally {
+            classifier.close();
+        }
+    }
+
+    private void run(String name, EmotionClassifier classifier) {
+        for (int i = 0; i < WARMUP; i++) {
+            classifier.classify(MESSAGES[i % MESSAGES.length], null).join();
+        }
+
+        // 1. One message at a time
+        long[] latencies = new long[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            long start = System.nanoTime();
+            classifier.classify(MESSAGES[i % MESSAGES.length], null).join();
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        // 2. Batches
+        List<String> batch = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(MESSAGES[i % MESSAGES.length]);
+        }
+        int batches = Math.max(COUNT / BATCH_SIZE, 1);
+        long start = System.nanoTime();
+        for (int i = 0; i < batches; i++) {
+            assertEquals(BATCH_SIZE, classifier.classifyBatch(batch, null).join().size());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%-5s single: p50 %.1f ms, p99 %.1f ms | batch of %d: %.1f ms per batch, %.0f messages/s%n",
+                name, percentileMs(latencies, 0.50), percentileMs(latencies, 0.99),
+                BATCH_SIZE, seconds * 1000 / batches, batches * BATCH_SIZE / seconds);
+    }
+
+    private static double percentileMs(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static boolean isUp(String healthUrl) {
+        try {
+            HttpResponse<Void> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create(healthUrl)).timeout(Duration.ofSeconds(2)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.DTO.TrendDtos.NegativeStreaks;
+import com.resilia.ai.model.demo.DTO.TrendDtos.TimelineEntry;
+import com.resilia.ai.model.demo.entites.Conversation;
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.entites.User;
+import com.resilia.ai.model.demo.repositories.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmotionTimelineTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now().withNano(0);
+
+    @Test
+    void distributionAndNegativeStreaksOverTheLastDays() {
+        EmotionTimeline timeline = timeline(List.of(), false);
+        String[] emotions = {"JOY", "SADNESS", "FEAR", "ANGER", "JOY", "SADNESS", "FEAR"};
+        for (int i = 0; i < emotions.length; i++) {
+            timeline.append(List.of(turn(1L, emotions[i], NOW.minusDays(emotions.length - i))));
+        }
+        timeline.append(List.of(turn(1L, "JOY", NOW.minusDays(39)), turn(2L, "SADNESS", NOW.minusDays(1))));
+        // Late write (write-behind): lands at its place in time
+        timeline.append(List.of(turn(1L, "love", NOW.minusDays(3).minusHours(1))));
+
+        assertEquals(Map.of("JOY", 2L, "SADNESS", 2L, "FEAR", 2L, "ANGER", 1L, "LOVE", 1L),
+                timeline.distribution(1L, 30).getEmotions());
+        assertEquals(3L, timeline.distribution(1L, 40).getEmotions().get("JOY"));
+
+        NegativeStreaks streaks = timeline.negativeStreaks(1L, 30);
+        assertEquals(3, streaks.getLongest().getLength());
+        assertEquals(NOW.minusDays(6), streaks.getLongest().getStart());
+        assertEquals(2, streaks.getCurrent().getLength());
+        assertEquals(NOW.minusDays(1), streaks.getCurrent().getEnd());
+        assertEquals(0, timeline.negativeStreaks(3L, 30).getLongest().getLength());
+    }
+
+    @Test
+    void turnsCommittedBeforeTheWarmUpAreMergedOnce() {
+        LocalDateTime saved = NOW.minusDays(2);
+        EmotionTimeline timeline = timeline(List.of(
+                new TimelineEntry(1L, 1L, "FEAR", saved.minusDays(1)),
+                new TimelineEntry(2L, 1L, "SADNESS", saved)), true);
+
+        // Committed after the web server started: one already in the database, one not yet read
+        timeline.append(List.of(turn(1L, "SADNESS", saved), turn(1L, "JOY", NOW.minusHours(1))));
+        timeline.warmUp();
+
+        assertEquals(Map.of("FEAR", 1L, "SADNESS", 1L, "JOY", 1L), timeline.distribution(1L, 30).getEmotions());
+    }
+
+    private static EmotionTimeline timeline(List<TimelineEntry> database, boolean warmUpOnStartup) {
+        MessageRepository repository = (MessageRepository) Proxy.newProxyInstance(MessageRepository.class.getClassLoader(),
+                new Class<?>[]{MessageRepository.class}, (proxy, method, args) -> {
+                    long afterId = (long) args[0];
+                    return database.stream().filter(entry -> entry.getMessageId() > afterId).toList();
+                });
+        return new EmotionTimeline(repository, new String[]{"SADNESS", "JOY", "LOVE", "ANGER", "FEAR", "SURPRISE"},
+                new String[]{"SADNESS", "ANGER", "FEAR"}, warmUpOnStartup, 100, 30, 366, new SimpleMeterRegistry());
+    }
+
+    private static ChatTurn turn(Long userId, String emotion, LocalDateTime timestamp) {
+        User user = new User();
+        user.setId(userId);
+        Conversation conversation = new Conversation();
+        conversation.setUser(user);
+        Message message = new Message();
+        message.setSender("user");
+        message.setEmotion(emotion);
+        message.setTimestamp(timestamp);
+        return new ChatTurn(conversation, message, new Message());
+    }
+}
@@ -0,0 +1,187 @@
+package com.resilia.ai.model.demo.services;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.resilia.ai.model.demo.DTO.TrendDtos.DailyEmotionCount;
+import com.resilia.ai.model.demo.DTO.TrendDtos.TrendPoint;
+import com.resilia.ai.model.demo.DTO.TrendDtos.TrendResponse;
+import com.resilia.ai.model.demo.controller.TrendController;
+import com.resilia.ai.model.demo.entites.Conversation;
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.entites.User;
+import com.resilia.ai.model.demo.repositories.EmotionDailyCountRepository;
+import com.resilia.ai.model.demo.security.AuthenticatedUser;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class EmotionTrendServiceTest {
+
+    // A Wednesday
+    private static final LocalDate DAY = LocalDate.of(2025, 1, 15);
+
+    private final EmotionDailyCountRepository repository = mock(EmotionDailyCountRepository.class);
+    private EmotionTrendService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new EmotionTrendService();
+        ReflectionTestUtils.setField(service, "emotionDailyCountRepository", repository);
+        ReflectionTestUtils.setField(service, "defaultRangeDays", 30);
+        ReflectionTestUtils.setField(service, "maxRangeDays", 366);
+        ReflectionTestUtils.setField(service, "backfillOnStartup", true);
+    }
+
+    @Test
+    void weeksStartOnMondayAndSumTheirDays() {
+        when(repository.findRange(7L, DAY.minusDays(9), DAY.plusDays(5))).thenReturn(List.of(
+                new DailyEmotionCount(DAY.minusDays(9), "JOY", 1),     // Monday 6th
+                new DailyEmotionCount(DAY.minusDays(3), "SADNESS", 2), // Sunday 12th
+                new DailyEmotionCount(DAY.minusDays(2), "SADNESS", 3), // Monday 13th
+                new DailyEmotionCount(DAY, "FEAR", 1),
+                new DailyEmotionCount(DAY, "SADNESS", 1),
+                new DailyEmotionCount(DAY.plusDays(5), "JOY", 4)));    // Monday 20th
+
+        TrendResponse days = service.getTrends(7L, DAY.minusDays(9), DAY.plusDays(5), "day");
+        TrendResponse weeks = service.getTrends(7L, DAY.minusDays(9), DAY.plusDays(5), "WEEK");
+
+        assertEquals(5, days.getPoints().size());
+        assertEquals(Map.of("FEAR", 1L, "SADNESS", 1L), days.getPoints().get(3).getEmotions());
+        assertEquals(List.of(DAY.minusDays(9), DAY.minusDays(2), DAY.plusDays(5)),
+                weeks.getPoints().stream().map(TrendPoint::getPeriodStart).toList());
+        assertEquals(Map.of("JOY", 1L, "SADNESS", 2L), weeks.getPoints().get(0).getEmotions());
+        assertEquals(Map.of("FEAR", 1L, "SADNESS", 4L), weeks.getPoints().get(1).getEmotions());
+        assertEquals(5L, weeks.getPoints().get(1).getTotal());
+        assertEquals(Map.of("FEAR", 1L, "JOY", 5L, "SADNESS", 6L), weeks.getTotals());
+        assertEquals(days.getTotals(), weeks.getTotals());
+    }
+
+    @Test
+    void defaultRangeIsTheLastThirtyDays() {
+        TrendResponse trend = service.getTrends(7L, null, DAY, null);
+
+        assertEquals("day", trend.getGranularity());
+        assertEquals(DAY.minusDays(29), trend.getFrom());
+        verify(repository).findRange(7L, DAY.minusDays(29), DAY);
+    }
+
+    @Test
+    void controllerPassesTheUsersRangeAndGranularity() throws Exception {
+        when(repository.findRange(7L, DAY.minusDays(2), DAY)).thenReturn(List.of(
+                new DailyEmotionCount(DAY.minusDays(2), "SADNESS", 3),
+                new DailyEmotionCount(DAY, "SADNESS", 1)));
+        TrendController controller = new TrendController();
+        ReflectionTestUtils.setField(controller, "emotionTrendService", service);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                // ISO dates, as with Spring Boot's ObjectMapper
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json()
+                        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build()))
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(7L, "ana@example.com", "", List.of()), null, List.of()));
+        try {
+            mockMvc.perform(get("/api/trends").param("from", "2025-01-13").param("to", "2025-01-15").param("granularity", "week"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.granularity").value("week"))
+                    .andExpect(jsonPath("$.points.length()").value(1))
+                    .andExpect(jsonPath("$.points[0].periodStart").value("2025-01-13"))
+                    .andExpect(jsonPath("$.points[0].total").value(4));
+            mockMvc.perform(get("/api/trends").param("granularity", "month"))
+                    .andExpect(status().isBadRequest());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    void invalidRequestsAreRejectedBeforeQuerying() {
+        assertBadRequest(() -> service.getTrends(7L, DAY, DAY, "month"));
+        assertBadRequest(() -> service.getTrends(7L, DAY, DAY.minusDays(1), "day"));
+        assertBadRequest(() -> service.getTrends(7L, DAY.minusDays(366), DAY, "day"));
+        verify(repository, never()).findRange(any(), any(), any());
+    }
+
+    @Test
+    void turnsAreCountedOncePerUserDayAndEmotion() {
+        service.record(List.of(
+                turn(7L, "SADNESS", DAY.atTime(9, 0)),
+                turn(7L, "SADNESS", DAY.atTime(23, 59)),
+                turn(7L, "SADNESS", DAY.plusDays(1).atStartOfDay()),
+                turn(8L, "JOY", DAY.atTime(12, 0)),
+                turn(8L, null, DAY.atTime(12, 1))));
+
+        verify(repository).increment(7L, DAY, "SADNESS", 2);
+        verify(repository).increment(7L, DAY.plusDays(1), "SADNESS", 1);
+        verify(repository).increment(8L, DAY, "JOY", 1);
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void backfillOnlyFillsAnEmptyTable() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:trend_backfill;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE conversation (id BIGINT PRIMARY KEY, user_id BIGINT)");
+        jdbc.execute("CREATE TABLE message (id BIGINT PRIMARY KEY, conversation_id BIGINT, sender VARCHAR(16), " +
+                "emotion VARCHAR(32), timestamp TIMESTAMP)");
+        jdbc.execute("CREATE TABLE emotion_daily_count (user_id BIGINT, stat_date DATE, emotion VARCHAR(32), " +
+                "message_count BIGINT, PRIMARY KEY (user_id, stat_date, emotion))");
+        jdbc.update("INSERT INTO conversation VALUES (1, 7)");
+        jdbc.update("INSERT INTO message VALUES (1, 1, 'user', 'SADNESS', ?), (2, 1, 'bot', NULL, ?), (3, 1, 'user', 'SADNESS', ?)",
+                DAY.atTime(9, 0), DAY.atTime(9, 0), DAY.atTime(21, 0));
+        String backfill = EmotionDailyCountRepository.class.getMethod("backfill").getAnnotation(Query.class).value();
+
+        assertEquals(1, jdbc.update(backfill));
+        // Turns saved since then were counted by ChatTurnWriter: a second run adds nothing.
+        jdbc.update("INSERT INTO message VALUES (4, 1, 'user', 'JOY', ?)", DAY.atTime(22, 0));
+        jdbc.update("INSERT INTO emotion_daily_count VALUES (7, ?, 'JOY', 1)", DAY);
+        assertEquals(0, jdbc.update(backfill));
+
+        assertEquals(2L, jdbc.queryForObject("SELECT message_count FROM emotion_daily_count WHERE emotion = 'SADNESS'", Long.class));
+    }
+
+    private static void assertBadRequest(Runnable call) {
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, call::run);
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+    }
+
+    private static ChatTurn turn(Long userId, String emotion, LocalDateTime timestamp) {
+        User user = new User();
+        user.setId(userId);
+        Conversation conversation = new Conversation();
+        conversation.setUser(user);
+        Message userMessage = new Message();
+        userMessage.setEmotion(emotion);
+        userMessage.setTimestamp(timestamp);
+        return new ChatTurn(conversation, userMessage, new Message());
+    }
+}
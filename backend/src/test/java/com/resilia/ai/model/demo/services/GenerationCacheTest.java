@@ -0,0 +1,85 @@
+package com.resilia.ai.model.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GenerationCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GenerationCache cache = new GenerationCache(true, 100, 30, 2, 0, 200, meterRegistry);
+    private final AtomicInteger geminiCalls = new AtomicInteger();
+
+    @Test
+    void keyFoldsCaseWhitespaceAndTrailingPunctuation() {
+        assertEquals(GenerationCache.keyOf("NEUTRAL", "", "Hi!"), GenerationCache.keyOf("neutral", null, "  hi "));
+        assertNotEquals(GenerationCache.keyOf("NEUTRAL", "", "hi"), GenerationCache.keyOf("SADNESS", "", "hi"));
+    }
+
+    @Test
+    void answersComeFromTheVariantPoolOnceItIsFull() {
+        Set<String> answers = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            answers.add(cache.get("NEUTRAL", "", "hi", this::gemini).join());
+        }
+
+        assertEquals(2, geminiCalls.get());
+        assertEquals(Set.of("answer 1", "answer 2"), answers);
+        assertEquals(8.0, meterRegistry.get("gemini.cache.saved.calls").counter().count());
+        assertEquals(0.8, cache.hitRate(), 1e-9);
+    }
+
+    @Test
+    void answersPutAfterTheFactFillThePoolOfTheirEmotion() {
+        cache.put("SADNESS", "", "Hi!", "answer 0", 1_000_000);
+        assertFalse(cache.hasAnswers("", "hi"));
+        cache.put("SADNESS", "", "hi", "answer 0", 1_000_000);
+
+        assertTrue(cache.hasAnswers("", "hi"));
+        assertEquals("answer 0", cache.get("SADNESS", "", "hi", this::gemini).join());
+        assertEquals("answer 1", cache.get("JOY", "", "hi", this::gemini).join());
+        assertFalse(cache.hasAnswers("User: I lost my job.", "hi"));
+    }
+
+    @Test
+    void promptsWithContextAlwaysGoToGemini() {
+        for (int i = 0; i < 3; i++) {
+            cache.get("NEUTRAL", "User: I lost my job.", "hi", this::gemini).join();
+        }
+
+        assertEquals(3, geminiCalls.get());
+        assertEquals(3.0, meterRegistry.get("gemini.cache.requests").tag("result", "bypass").counter().count());
+    }
+
+    @Test
+    void failuresAreNotKeptAndConcurrentMissesShareOneCall() {
+        CompletableFuture<String> failed = cache.get("NEUTRAL", "", "hi",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("503")));
+        assertTrue(failed.isCompletedExceptionally());
+
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> first = cache.get("NEUTRAL", "", "hi", () -> {
+            geminiCalls.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<String> second = cache.get("NEUTRAL", "", "hi", this::gemini);
+        pending.complete("hello");
+
+        assertEquals("hello", first.join());
+        assertEquals("hello", second.join());
+        assertEquals(1, geminiCalls.get());
+    }
+
+    private CompletableFuture<String> gemini() {
+        return CompletableFuture.completedFuture("answer " + geminiCalls.incrementAndGet());
+    }
+}
@@ -0,0 +1,70 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.DTO.ChatDtos.SearchHitDto;
+import com.resilia.ai.model.demo.DTO.ChatDtos.SearchPage;
+import com.resilia.ai.model.demo.DTO.ChatDtos.SearchableMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageSearchIndexTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 20, 0);
+
+    private final MessageSearchIndex index = new MessageSearchIndex(true, "", 100, 1000, 60, new SimpleMeterRegistry());
+
+    @BeforeEach
+    void open() throws Exception {
+        index.open();
+        index.index(List.of(
+                message(1, 10, 1, "user", "FEAR", "I am stressed about my exam tomorrow", 0),
+                message(2, 10, 1, "bot", null, "Exams are hard. Let's plan your revision together.", 0),
+                message(3, 11, 1, "user", "SADNESS", "I couldn't sleep, I keep thinking about the exam results", 2),
+                message(4, 11, 1, "user", "SADNESS", "I miss my grandmother", 3),
+                message(5, 20, 2, "user", "FEAR", "My exam is on Monday", 1)));
+        index.refresh();
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        index.close();
+    }
+
+    @Test
+    void findsStemmedWordsInTheUsersOwnMessagesOnly() {
+        SearchPage page = index.search(1L, "exams", null, 0, 20);
+
+        assertEquals(3, page.getTotal());
+        assertEquals(List.of(1L, 2L, 3L), page.getHits().stream().map(SearchHitDto::getMessageId).sorted().toList());
+        SearchHitDto stressed = page.getHits().stream().filter(hit -> hit.getMessageId() == 1L).findFirst().orElseThrow();
+        assertEquals("I am stressed about my <mark>exam</mark> tomorrow", stressed.getSnippet());
+        assertEquals(10L, stressed.getConversationId());
+        assertEquals("FEAR", stressed.getEmotion());
+    }
+
+    @Test
+    void filtersOnEmotionNewestFirstAndPages() {
+        SearchPage first = index.search(1L, null, List.of("sadness"), 0, 1);
+        SearchPage second = index.search(1L, null, List.of("sadness"), 1, 1);
+
+        assertEquals(4L, first.getHits().get(0).getMessageId());
+        assertTrue(first.isHasMore());
+        assertEquals(3L, second.getHits().get(0).getMessageId());
+        assertFalse(second.isHasMore());
+        assertEquals(List.of(3L), index.search(1L, "exam", List.of("SADNESS"), 0, 20).getHits().stream()
+                .map(SearchHitDto::getMessageId).toList());
+    }
+
+    private static SearchableMessage message(long id, long conversationId, long userId, String sender,
+                                             String emotion, String content, int daysLater) {
+        return new SearchableMessage(id, conversationId, userId, sender, emotion, content, DAY.plusDays(daysLater));
+    }
+}
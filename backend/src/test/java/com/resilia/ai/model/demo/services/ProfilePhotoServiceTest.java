@@ -0,0 +1,67 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.entites.User;
+import com.resilia.ai.model.demo.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProfilePhotoServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void migrationClearsTheLegacyColumnOnlyForPhotosItMoved() {
+        String png = "data:image/png;base64," + Base64.getEncoder().encodeToString(new byte[]{(byte) 0x89, 'P', 'N', 'G'});
+        Map<Long, String> legacyColumn = Map.of(
+                1L, png,
+                2L, "https://example.com/me.png",          // not a data URL
+                3L, "data:text/html;base64,PGgxPmhpPC9oMT4="); // type the store refuses
+        Map<Long, User> users = Map.of(1L, user(1L), 2L, user(2L), 3L, user(3L));
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class))).thenReturn(List.of(1L, 2L, 3L));
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class), any(Object[].class)))
+                .thenAnswer(invocation -> legacyColumn.get((Long) invocation.getArgument(2)));
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(any())).thenAnswer(invocation -> Optional.of(users.get((Long) invocation.getArgument(0))));
+
+        ProfilePhotoService service = new ProfilePhotoService();
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "profilePhotoStore", new ProfilePhotoStore(directory.toString(), 1024));
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "migrateOnStartup", true);
+
+        service.run(null);
+
+        assertNotNull(users.get(1L).getProfilePhotoKey());
+        assertNull(users.get(2L).getProfilePhotoKey());
+        assertNull(users.get(3L).getProfilePhotoKey());
+        verify(jdbcTemplate).update("UPDATE users SET profile_photo = NULL WHERE id = ?", 1L);
+        // Users 2 and 3 keep their value: no other UPDATE was sent.
+        verify(jdbcTemplate).update(anyString(), any(Object[].class));
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,52 @@
+package com.resilia.ai.model.demo.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProfilePhotoStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesPhotosUnderTheirContentHash() throws Exception {
+        ProfilePhotoStore store = new ProfilePhotoStore(directory.toString(), 1024);
+        byte[] image = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+
+        String key = store.save(7L, "image/png", new ByteArrayInputStream(image));
+        String again = store.save(7L, "image/png", new ByteArrayInputStream(image));
+
+        assertEquals(key, again);
+        assertEquals("image/png", ProfilePhotoStore.contentTypeOf(key));
+        assertArrayEquals(image, Files.readAllBytes(store.find(7L, key)));
+        // Another user's path, or a key that is not a hash, never resolves to a file.
+        assertNull(store.find(8L, key));
+        assertNull(store.find(7L, "../7-" + key));
+
+        store.delete(7L, key);
+        assertNull(store.find(7L, key));
+    }
+
+    @Test
+    void rejectsUnsupportedTypesAndOversizedImages() throws Exception {
+        ProfilePhotoStore store = new ProfilePhotoStore(directory.toString(), 4);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> store.save(1L, "text/html", new ByteArrayInputStream(new byte[]{1})));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.save(1L, "image/jpeg", new ByteArrayInputStream(new byte[10])));
+        // Nothing is left behind by a rejected upload.
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.resilia.ai.model.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReactiveAiServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(1);
+
+    private final AtomicLong now = new AtomicLong();
+    // One call at a time; the circuit opens after 4 failures out of 4 and stays open 1 s.
+    private final BackendGuard guard = new BackendGuard("gemini", 1, 4, 4, 50, 1000, new SimpleMeterRegistry(), now::get);
+
+    @Test
+    void clientErrorsLeaveTheCircuitClosed() {
+        for (int i = 0; i < 4; i++) {
+            Mono<String> badRequest = ReactiveAiService.guarded(guard, Mono.error(status(400)), TIMEOUT);
+            assertThrows(WebClientResponseException.class, badRequest::block);
+        }
+        assertEquals(BackendGuard.State.CLOSED, guard.getState());
+
+        // 429 means overloaded: it counts.
+        for (int i = 0; i < 2; i++) {
+            Mono<String> overloaded = ReactiveAiService.guarded(guard, Mono.error(status(429)), TIMEOUT);
+            assertThrows(WebClientResponseException.class, overloaded::block);
+        }
+        assertEquals(BackendGuard.State.OPEN, guard.getState());
+    }
+
+    @Test
+    void cancelledCallFreesItsSlotWithoutClosingTheCircuit() {
+        openCircuit();
+        now.addAndGet(Duration.ofMillis(1000).toNanos());
+
+        // The trial call is abandoned by its client: not a success.
+        Disposable trial = ReactiveAiService.guarded(guard, Mono.never(), TIMEOUT).subscribe();
+        trial.dispose();
+        assertEquals(BackendGuard.State.HALF_OPEN, guard.getState());
+
+        // Its slot and its trial are free for the next caller.
+        assertEquals("ok", ReactiveAiService.guarded(guard, Mono.just("ok"), TIMEOUT).block());
+        assertEquals(BackendGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void cancelledStreamFreesItsSlotWithoutClosingTheCircuit() {
+        openCircuit();
+        now.addAndGet(Duration.ofMillis(1000).toNanos());
+
+        Flux<String> endless = Flux.just("Hello").concatWith(Flux.never());
+        assertEquals("Hello", ReactiveAiService.guardedStream(guard, endless, TIMEOUT).blockFirst());
+        assertEquals(BackendGuard.State.HALF_OPEN, guard.getState());
+
+        Mono<String> serverError = ReactiveAiService.guarded(guard, Mono.error(status(503)), TIMEOUT);
+        assertThrows(WebClientResponseException.class, serverError::block);
+        assertEquals(BackendGuard.State.OPEN, guard.getState());
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            Mono<String> unavailable = ReactiveAiService.guarded(guard, Mono.error(status(503)), TIMEOUT);
+            assertThrows(WebClientResponseException.class, unavailable::block);
+        }
+        assertEquals(BackendGuard.State.OPEN, guard.getState());
+    }
+
+    private static WebClientResponseException status(int code) {
+        return WebClientResponseException.create(code, "status " + code, HttpHeaders.EMPTY, new byte[0], StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package com.resilia.ai.model.demo.services;
+
+import com.resilia.ai.model.demo.DTO.ChatDtos.UserMessageRequest;
+import com.resilia.ai.model.demo.DTO.ChatResponse;
+import com.resilia.ai.model.demo.entites.Conversation;
+import com.resilia.ai.model.demo.entites.Message;
+import com.resilia.ai.model.demo.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveChatServiceTest {
+
+    private final ChatService chatService = mock(ChatService.class);
+    private final ReactiveAiService reactiveAiService = mock(ReactiveAiService.class);
+    private final Conversation conversation = new Conversation();
+    private final Message userMsg = new Message();
+    private final UserMessageRequest request = new UserMessageRequest();
+    private ReactiveChatService service;
+
+    @BeforeEach
+    void setUp() {
+        conversation.setId(3L);
+        request.setUserMessage("I can't sleep");
+        when(chatService.getCurrentUserId()).thenReturn(7L);
+        when(chatService.resolveConversation(any(), any())).thenReturn(conversation);
+        when(chatService.newUserMessage(conversation, "I can't sleep")).thenReturn(userMsg);
+        when(chatService.buildContext(request, conversation)).thenReturn("");
+
+        service = new ReactiveChatService();
+        ReflectionTestUtils.setField(service, "chatService", chatService);
+        ReflectionTestUtils.setField(service, "reactiveAiService", reactiveAiService);
+        ReflectionTestUtils.setField(service, "userRepository", mock(UserRepository.class));
+    }
+
+    @Test
+    void streamSendsTokensThenEmotionThenTheSavedTurn() {
+        when(reactiveAiService.streamAiResponse(isNull(), anyString(), anyString()))
+                .thenReturn(Flux.just("Sleep ", "can be ", "hard."));
+        when(reactiveAiService.analyzeEmotion("I can't sleep"))
+                .thenReturn(Mono.just("SADNESS").delayElement(Duration.ofMillis(100)));
+
+        List<ServerSentEvent<Object>> events = service.streamUserMessage(request).collectList().block();
+
+        assertEquals(List.of("token", "token", "token", "emotion", "done"),
+                events.stream().map(ServerSentEvent::event).toList());
+        assertEquals("SADNESS", events.get(3).data());
+        ChatResponse done = (ChatResponse) events.get(4).data();
+        assertEquals("Sleep can be hard.", done.getAiResponse());
+        assertEquals(3L, done.getConversationId());
+        verify(chatService).completeTurn(conversation, userMsg, "SADNESS", "Sleep can be hard.");
+    }
+
+    @Test
+    void failedPipelineStillSavesTheTurnWithTheFallbackReply() {
+        when(reactiveAiService.respond("", "I can't sleep")).thenReturn(Mono.error(new IllegalStateException("boom")));
+
+        ChatResponse response = service.processUserMessage(request).block();
+
+        assertEquals("NEUTRAL", response.getDetectedEmotion());
+        verify(chatService).completeTurn(conversation, userMsg, "NEUTRAL", response.getAiResponse());
+    }
+}
@@ -0,0 +1,46 @@
+package com.resilia.ai.model.demo.services;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Ids checked against the Hugging Face RobertaTokenizer of the fine-tuned model.
+ */
+class RobertaTokenizerTest {
+
+    private static final Path MODEL_DIR = Path.of("../resilia-ai-service/final_roberta_emotion_model");
+
+    private static RobertaTokenizer tokenizer;
+
+    @BeforeAll
+    static void load() throws Exception {
+        assumeTrue(Files.exists(MODEL_DIR.resolve("tokenizer.json")), "tokenizer.json not found");
+        tokenizer = RobertaTokenizer.load(MODEL_DIR);
+    }
+
+    @Test
+    void encodesLikeTheHuggingFaceTokenizer() {
+        assertArrayEquals(new int[]{0, 31414, 232, 2}, tokenizer.encode("Hello world", 128));
+        assertArrayEquals(new int[]{0, 100, 619, 13473, 59, 127, 15734, 3859, 4, 2},
+                tokenizer.encode("I feel anxious about my exams tomorrow.", 128));
+        assertArrayEquals(new int[]{0, 100, 64, 75, 3581, 8, 127, 4312, 489, 4930, 734, 2},
+                tokenizer.encode("I can't sleep and my thoughts keep racing...", 128));
+        // Accents, double space, emoji (4 UTF-8 bytes) and a number
+        assertArrayEquals(new int[]{0, 347, 2001, 1140, 10768, 267, 5269, 748, 257, 1437, 17841, 7258, 17072, 2},
+                tokenizer.encode("Caf\u00e9 d\u00e9j\u00e0 vu  \uD83D\uDE22 123", 128));
+    }
+
+    @Test
+    void truncatesButKeepsTheSpecialTokens() {
+        int[] ids = tokenizer.encode("I feel anxious about my exams tomorrow.", 5);
+        assertArrayEquals(new int[]{0, 100, 619, 13473, 2}, ids);
+        assertEquals(1, tokenizer.getPadId());
+    }
+}
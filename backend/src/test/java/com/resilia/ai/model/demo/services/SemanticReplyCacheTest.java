@@ -0,0 +1,84 @@
+package com.resilia.ai.model.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SemanticReplyCacheTest {
+
+    // Normalized 3-d "embeddings": the two lonely prompts have a cosine of 0.96, the exam one 0.28.
+    private static final Map<String, float[]> EMBEDDINGS = Map.of(
+            "I feel so lonely", new float[]{1, 0, 0},
+            "i'm really lonely tonight", new float[]{0.96f, 0.28f, 0},
+            "my exam went badly", new float[]{0.28f, 0.96f, 0},
+            "nobody talks to me", new float[]{0, 0, 1});
+
+    private SimpleMeterRegistry meterRegistry;
+    private final AtomicInteger geminiCalls = new AtomicInteger();
+    private SemanticReplyCache cache;
+
+    @AfterEach
+    void close() throws Exception {
+        cache.close();
+    }
+
+    @Test
+    void paraphraseWithTheSameEmotionGetsTheKeptAnswer() throws Exception {
+        cache = open("", 100);
+        assertEquals("answer 1", cache.get("SADNESS", "", "I feel so lonely", this::gemini).join());
+        cache.refresh();
+
+        assertEquals("answer 1", cache.get("SADNESS", "", "i'm really lonely tonight", this::gemini).join());
+        assertEquals("answer 2", cache.get("FEAR", "", "i'm really lonely tonight", this::gemini).join());
+        assertEquals("answer 3", cache.get("SADNESS", "", "my exam went badly", this::gemini).join());
+        assertEquals("answer 4", cache.get("SADNESS", "User: hi", "I feel so lonely", this::gemini).join());
+        assertEquals(1.0, meterRegistry.get("gemini.semantic-cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("gemini.semantic-cache.requests").tag("result", "bypass").counter().count());
+    }
+
+    @Test
+    void snapshotIsReopenedWithinTheBound(@TempDir Path dir) throws Exception {
+        cache = open(dir.toString(), 2);
+        cache.get("SADNESS", "", "I feel so lonely", this::gemini).join();
+        cache.get("SADNESS", "", "my exam went badly", this::gemini).join();
+        cache.get("SADNESS", "", "nobody talks to me", this::gemini).join();
+        cache.close();
+
+        cache = open(dir.toString(), 2);
+        assertEquals(2.0, meterRegistry.get("gemini.semantic-cache.size").gauge().value());
+        // The oldest answer was evicted, the two others come back from the snapshot.
+        assertEquals("answer 4", cache.get("SADNESS", "", "i'm really lonely tonight", this::gemini).join());
+        assertEquals("answer 3", cache.get("SADNESS", "", "nobody talks to me", this::gemini).join());
+    }
+
+    private SemanticReplyCache open(String dir, int maxEntries) throws Exception {
+        SentenceEncoder encoder = new SentenceEncoder() {
+            @Override
+            public CompletableFuture<float[]> embed(String message) {
+                return CompletableFuture.completedFuture(EMBEDDINGS.get(message).clone());
+            }
+
+            @Override
+            public int dimension() {
+                return 3;
+            }
+        };
+        meterRegistry = new SimpleMeterRegistry();
+        SemanticReplyCache semanticCache = new SemanticReplyCache(true, dir, maxEntries, 60, 0.92, 0, 200,
+                1000, 60, encoder, meterRegistry);
+        semanticCache.open();
+        return semanticCache;
+    }
+
+    private CompletableFuture<String> gemini() {
+        return CompletableFuture.completedFuture("answer " + geminiCalls.incrementAndGet());
+    }
+}
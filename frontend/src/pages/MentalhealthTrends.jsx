@@ -1,10 +1,23 @@
-import React, { useState } from "react";
+import React, { useState, useEffect } from "react";
 import { ArrowLeft, TrendingUp, Brain, Heart, Activity, Lightbulb, Users } from "lucide-react";
 import { useNavigate } from "react-router-dom";
 import { motion } from "framer-motion";
+import api from "../utils/api";
 
 export default function MentalHealthTrends() {
   const navigate = useNavigate();
+  const [moodTrend, setMoodTrend] = useState(null);
+
+  // The user's own mood over the last 30 days, precomputed by the backend (one row per day and emotion).
+  useEffect(() => {
+    api.get("/trends", { params: { granularity: "week" } })
+      .then((response) => setMoodTrend(response.data))
+      .catch(() => setMoodTrend(null));
+  }, []);
+
+  const moodTotal = moodTrend
+    ? Object.values(moodTrend.totals).reduce((sum, count) => sum + count, 0)
+    : 0;
 
   // You can easily edit these statistics
   const statistics = [
@@ -121,6 +134,37 @@ export default function MentalHealthTrends() {
           ))}
         </div>
 
+        {/* Your Mood (last 30 days) */}
+        {moodTotal > 0 && (
+          <motion.div
+            initial={{ opacity: 0, y: 20 }}
+            animate={{ opacity: 1, y: 0 }}
+            transition={{ delay: 0.2 }}
+            className="bg-white/80 backdrop-blur-xl rounded-3xl p-8 shadow-2xl border border-[#b2f2c3]/50"
+          >
+            <div className="flex items-center gap-3 mb-6">
+              <Activity className="w-7 h-7 text-[#b2f2c3]" />
+              <h2 className="text-2xl font-bold text-gray-800">Your Mood (last 30 days)</h2>
+            </div>
+            <div className="space-y-3">
+              {Object.entries(moodTrend.totals)
+                .sort(([, a], [, b]) => b - a)
+                .map(([emotion, count]) => (
+                  <div key={emotion} className="flex items-center gap-4">
+                    <span className="w-28 text-sm font-medium text-gray-700 capitalize">{emotion.toLowerCase()}</span>
+                    <div className="flex-1 bg-[#c4f0ed] rounded-full h-3">
+                      <div
+                        className="bg-gradient-to-r from-[#b2f2c3] to-teal-400 h-3 rounded-full"
+                        style={{ width: `${(count / moodTotal) * 100}%` }}
+                      ></div>
+                    </div>
+                    <span className="w-10 text-right text-sm text-gray-600">{count}</span>
+                  </div>
+                ))}
+            </div>
+          </motion.div>
+        )}
+
         {/* Latest Trends */}
         <motion.div
           initial={{ opacity: 0, y: 20 }}
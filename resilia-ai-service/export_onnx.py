@@ -0,0 +1,128 @@
+# export_onnx.py
+# Exporte le modèle RoBERTa fine-tuné au format ONNX pour le classifieur Java
+# (ia.classifier=onnx, OnnxEmotionClassifier) : plus de service Flask dans le chemin du chat.
+#
+# --encoder exporte aussi encoder.onnx : les états cachés du même RoBERTa, moyennés et normalisés,
+# qui servent d'embeddings de phrases au cache sémantique des réponses (gemini.semantic-cache.*).
+#
+# Usage : python export_onnx.py [--quantize] [--encoder]
+# Prérequis : pip install torch transformers (+ onnxruntime pour --quantize et la vérification)
+import argparse
+import logging
+import os
+
+import torch
+from transformers import AutoModelForSequenceClassification, AutoTokenizer
+
+logging.basicConfig(level=logging.INFO, format='%(asctime)s - %(levelname)s - %(message)s')
+
+MODEL_DIR = 'final_roberta_emotion_model'
+
+
+def export(model_dir, output, opset):
+    tokenizer = AutoTokenizer.from_pretrained(model_dir)
+    model = AutoModelForSequenceClassification.from_pretrained(model_dir)
+    model.eval()
+
+    # Exemple d'entrée : seules les formes comptent, batch et longueur restent dynamiques
+    sample = tokenizer(["I feel anxious about my exams tomorrow.", "Today was a good day."],
+                       padding=True, return_tensors='pt')
+    with torch.no_grad():
+        torch.onnx.export(
+            model,
+            (sample['input_ids'], sample['attention_mask']),
+            output,
+            input_names=['input_ids', 'attention_mask'],
+            output_names=['logits'],
+            dynamic_axes={
+                'input_ids': {0: 'batch', 1: 'sequence'},
+                'attention_mask': {0: 'batch', 1: 'sequence'},
+                'logits': {0: 'batch'},
+            },
+            opset_version=opset,
+        )
+    logging.info(f"Modèle exporté : {output} ({os.path.getsize(output) / 1e6:.0f} Mo)")
+    return tokenizer, model
+
+
+class SentenceEncoder(torch.nn.Module):
+    """Moyenne des états cachés de la dernière couche (hors padding), normalisée L2."""
+
+    def __init__(self, model):
+        super().__init__()
+        self.roberta = model.roberta
+
+    def forward(self, input_ids, attention_mask):
+        hidden = self.roberta(input_ids=input_ids, attention_mask=attention_mask).last_hidden_state
+        mask = attention_mask.unsqueeze(-1).to(hidden.dtype)
+        pooled = (hidden * mask).sum(dim=1) / mask.sum(dim=1).clamp(min=1e-9)
+        return torch.nn.functional.normalize(pooled, p=2, dim=1)
+
+
+def export_encoder(tokenizer, model, output, opset):
+    encoder = SentenceEncoder(model).eval()
+    sample = tokenizer(["I feel so lonely", "i'm really lonely tonight"], padding=True, return_tensors='pt')
+    with torch.no_grad():
+        torch.onnx.export(
+            encoder,
+            (sample['input_ids'], sample['attention_mask']),
+            output,
+            input_names=['input_ids', 'attention_mask'],
+            output_names=['sentence_embedding'],
+            dynamic_axes={
+                'input_ids': {0: 'batch', 1: 'sequence'},
+                'attention_mask': {0: 'batch', 1: 'sequence'},
+                'sentence_embedding': {0: 'batch'},
+            },
+            opset_version=opset,
+        )
+        similarity = float(encoder(**sample).prod(dim=0).sum())
+    logging.info(f"Encodeur exporté : {output} (similarité des deux phrases d'exemple : {similarity:.3f})")
+
+
+def verify(output, tokenizer, model):
+    """Compare les logits ONNX et PyTorch sur quelques phrases."""
+    import numpy as np
+    import onnxruntime
+
+    sentences = ["I can't sleep and my thoughts keep racing.", "I'm proud of myself!", "ok"]
+    encoded = tokenizer(sentences, padding=True, return_tensors='pt')
+    with torch.no_grad():
+        expected = model(**encoded).logits.numpy()
+    session = onnxruntime.InferenceSession(output, providers=['CPUExecutionProvider'])
+    actual = session.run(['logits'], {
+        'input_ids': encoded['input_ids'].numpy(),
+        'attention_mask': encoded['attention_mask'].numpy(),
+    })[0]
+    logging.info(f"Écart max ONNX / PyTorch : {np.abs(expected - actual).max():.2e}")
+    if (expected.argmax(axis=1) != actual.argmax(axis=1)).any():
+        raise SystemExit("Les émotions prédites diffèrent entre ONNX et PyTorch.")
+
+
+def quantize(output):
+    """Poids en int8 (quantification dynamique) : modèle ~4x plus petit, inférence CPU plus rapide."""
+    from onnxruntime.quantization import QuantType, quantize_dynamic
+
+    quantized = output.replace('.onnx', '.int8.onnx')
+    quantize_dynamic(output, quantized, weight_type=QuantType.QInt8)
+    logging.info(f"Modèle quantifié : {quantized} (ia.onnx.model-file={os.path.basename(quantized)})")
+
+
+if __name__ == '__main__':
+    parser = argparse.ArgumentParser(description="Export ONNX du classifieur d'émotions")
+    parser.add_argument('--model-dir', default=MODEL_DIR)
+    parser.add_argument('--opset', type=int, default=14)
+    parser.add_argument('--quantize', action='store_true', help="produit aussi model.int8.onnx")
+    parser.add_argument('--encoder', action='store_true', help="produit aussi encoder.onnx (cache sémantique)")
+    args = parser.parse_args()
+
+    output = os.path.join(args.model_dir, 'model.onnx')
+    tokenizer, model = export(args.model_dir, output, args.opset)
+    try:
+        verify(output, tokenizer, model)
+    except ImportError:
+        logging.warning("onnxruntime non installé : vérification ignorée.")
+    if args.quantize:
+        quantize(output)
+    if args.encoder:
+        export_encoder(tokenizer, model, os.path.join(args.model_dir, 'encoder.onnx'), args.opset)
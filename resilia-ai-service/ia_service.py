@@ -1,8 +1,10 @@
 # ia_service.py
 from flask import Flask, request, jsonify
+from werkzeug.serving import WSGIRequestHandler
 from transformers import pipeline, AutoModelForSequenceClassification, AutoTokenizer
 import os
 import logging
+from contextlib import contextmanager
 from time import time
 
 # Configuration du logging
@@ -10,6 +12,42 @@ logging.basicConfig(level=logging.INFO, format='%(asctime)s - %(levelname)s - %(
 
 app = Flask(__name__)
 
+# --- Tracing distribué (optionnel : pip install opentelemetry-sdk) ---
+# Le backend Java envoie l'en-tête W3C "traceparent" : le span d'inférence est rattaché
+# à la trace du tour de chat. Les spans sont affichés sur la console (pas de collecteur).
+try:
+    from opentelemetry import trace
+    from opentelemetry.sdk.resources import Resource
+    from opentelemetry.sdk.trace import TracerProvider
+    from opentelemetry.sdk.trace.export import BatchSpanProcessor, ConsoleSpanExporter
+    from opentelemetry.trace.propagation.tracecontext import TraceContextTextMapPropagator
+
+    tracer_provider = TracerProvider(resource=Resource.create({"service.name": "resilia-ai-service"}))
+    tracer_provider.add_span_processor(BatchSpanProcessor(ConsoleSpanExporter()))
+    trace.set_tracer_provider(tracer_provider)
+    tracer = trace.get_tracer("resilia-ai-service")
+    propagator = TraceContextTextMapPropagator()
+    TRACING_ENABLED = True
+except ImportError:
+    TRACING_ENABLED = False
+
+
+@contextmanager
+def inference_span(name, **attributes):
+    """
+    Mesure une inférence. Avec opentelemetry : span enfant de la trace Java.
+    Sans : simple log de la durée avec le traceparent reçu (pour retrouver la trace côté Java).
+    """
+    start = time()
+    if TRACING_ENABLED:
+        parent = propagator.extract(carrier=dict(request.headers))
+        with tracer.start_as_current_span(name, context=parent, kind=trace.SpanKind.SERVER, attributes=attributes):
+            yield
+    else:
+        yield
+    logging.info(f"{name} en {(time() - start) * 1000:.1f} ms "
+                 f"(traceparent={request.headers.get('traceparent', '-')})")
+
 # Le chemin vers votre modèle
 MODEL_DIR = 'final_roberta_emotion_model'
 
@@ -59,7 +97,8 @@ def analyze():
         
         # 2. Exécuter l'analyse émotionnelle (F3)
         # Note: L'analyse doit être rapide pour respecter la contrainte de < 3s [cite: 18]
-        analysis_result = emotion_analyzer(user_message)
+        with inference_span("emotion.inference", batch_size=1):
+            analysis_result = emotion_analyzer(user_message)
         
         # 3. Extraire le label de l'émotion dominante (ex: 'LABEL_0', 'LABEL_1', etc.)
         # Assurez-vous que le mapping de votre modèle (id2label) est correct.
@@ -74,7 +113,54 @@ def analyze():
         logging.error(f"Erreur lors du traitement de la requête: {e}")
         return jsonify({"error": "Erreur interne du service IA."}), 500
 
+# --- Endpoint batch (POST /analyze_batch) ---
+@app.route('/analyze_batch', methods=['POST'])
+def analyze_batch():
+    """
+    Endpoint pour l'analyse émotionnelle par lot.
+    Reçoit {"messages": [...]} (regroupés par l'EmotionBatcher Java) et retourne
+    {"emotions": [...]} dans le même ordre, en un seul passage du modèle.
+    """
+    if not MODEL_LOADED:
+        return jsonify({"error": "Le modèle IA n'a pas pu être chargé."}), 503
+
+    try:
+        data = request.get_json()
+        if not data or not isinstance(data.get('messages'), list):
+            return jsonify({"error": "Champ 'messages' (liste) manquant dans la requête."}), 400
+
+        messages = data['messages']
+        if not messages:
+            return jsonify({"emotions": []})
+
+        start = time()
+        # Un seul appel au pipeline pour tout le lot
+        with inference_span("emotion.inference", batch_size=len(messages)):
+            analysis_results = emotion_analyzer(messages, batch_size=len(messages))
+        detected_emotions = [result[0]['label'] for result in analysis_results]
+
+        logging.info(f"Lot de {len(messages)} messages analysé en {(time() - start) * 1000:.1f} ms")
+        return jsonify({"emotions": detected_emotions})
+
+    except Exception as e:
+        logging.error(f"Erreur lors du traitement du lot: {e}")
+        return jsonify({"error": "Erreur interne du service IA."}), 500
+
+# --- Santé du service (GET /health) ---
+# Interrogé par le backend Java (ClassifierEndpoints) : une réplique qui répond 503
+# ne reçoit plus de messages jusqu'au prochain contrôle réussi.
+@app.route('/health', methods=['GET'])
+def health():
+    if not MODEL_LOADED:
+        return jsonify({"status": "DOWN", "model_loaded": False}), 503
+    return jsonify({"status": "UP", "model_loaded": True})
+
 if __name__ == '__main__':
-    # Le service doit s'exécuter sur le port 5000 pour que le ChatService Java puisse le joindre
-    logging.info("Démarrage du service IA sur http://127.0.0.1:5000")
-    app.run(host='0.0.0.0', port=5000)
\ No newline at end of file
+    # Port 5000 par défaut ; IA_SERVICE_PORT permet de lancer plusieurs répliques
+    # (à lister dans ia.service.urls côté Java).
+    port = int(os.environ.get('IA_SERVICE_PORT', 5000))
+    # HTTP/1.1 : le backend Java garde ses connexions ouvertes (keep-alive) au lieu
+    # d'en ouvrir une nouvelle à chaque message.
+    WSGIRequestHandler.protocol_version = "HTTP/1.1"
+    logging.info(f"Démarrage du service IA sur http://127.0.0.1:{port}")
+    app.run(host='0.0.0.0', port=port, threaded=True)
\ No newline at end of file